@@ -1,34 +1,557 @@
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Random;
+import java.util.function.BooleanSupplier;
 /**
  * Responsible for the checkers artifical intelligence.
+ * Looks ahead with an alpha-beta search, scoring repeated positions and long stretches
+ * without progress as draws (see Board.isDraw) so games between engines can't loop forever.
+ * At the end of the search, captures keep being followed until the position is quiet,
+ * so we never stop looking right in the middle of an exchange.
+ * Can also analyse a position, finding the few best moves and what's expected to follow them.
  * 
  * @author Mckenna Cisler 
- * @version 11.24.2015
+ * @version 10.19.2026
  */
 public class AIPlayer extends Player
 {
+    // search constants
+    public static final int DEFAULT_SEARCH_DEPTH = 6;
+    public static final int WIN_SCORE = 1000000;
+    public static final int DRAW_SCORE = 0;
+    private static final int INFINITE_SCORE = WIN_SCORE + 1;
+    
+    // the deepest a search can possibly go (used to tell wins and losses apart from other scores)
+    private static final int MAX_PLY = 1000;
+    
+    // the number of positions to remember between searches, and the fewest to make do with when memory is short
+    // (the table is sized by the memory the MemoryGovernor gives it, up to TABLE_ENTRIES)
+    private static final int TABLE_ENTRIES = 1 << 18;
+    private static final int MIN_TABLE_ENTRIES = 1 << 12;
+    
+    // the shallowest search worth keeping in the persistent table (shallower ones are quick to redo)
+    private static final int PERSISTENT_MIN_DEPTH = 3;
+    
+    // the most moves kept in a principal variation
+    private static final int MAX_PV_LENGTH = 64;
+    
+    // how often (in nodes) to check whether the search has been called off
+    private static final int NODES_PER_CANCEL_CHECK = 1024;
+    
     // global variables
     boolean isWhite;
+    int searchDepth;
+    // the table (made when the player first searches, and replaced when it's resized, so reports may see either)
+    // and the memory it's been given (null until then, and again once it's given back)
+    volatile TranspositionTable table;
+    private MemoryGovernor.Grant tableGrant;
+    PersistentTable persistentTable;
+    
+    // the number of positions visited by the last search (in the main search and in the quiescence search)
+    long nodes;
+    long quiescenceNodes;
+    
+    // says whether the move being searched for has been called off (null if it can't be), and whether it has
+    private BooleanSupplier isCancelled;
+    private boolean stopped;
+    
+    // the most positions to visit in each search (0 for no limit), and the limit for the depth being searched
+    // (there's none until the first depth is done, so there's always a move to give)
+    private long nodeLimit;
+    private long depthNodeLimit;
+    
+    // the best line found from each ply of the search (the triangular principal variation table)
+    private Move[][] pvMoves = new Move[MAX_PV_LENGTH][MAX_PV_LENGTH];
+    private int[] pvLengths = new int[MAX_PV_LENGTH];
+    
+    // the score of the last move chosen (from this player's point of view), or NO_SCORE if it wasn't searched
+    private volatile int lastScore = NO_SCORE;
     
     /**
      * Constructor for objects of class AIPlayer.
-     * Initializes this AI's color.
+     * Initializes this AI's color, searching to the default depth.
      * @param color This "player's" color.
      */
     public AIPlayer(boolean isWhite)
 	{
-		this.isWhite = isWhite;
+		this(isWhite, DEFAULT_SEARCH_DEPTH);
+    }
+    
+    /**
+     * Constructor for objects of class AIPlayer.
+     * Initializes this AI's color and how far ahead it looks.
+     * @param color This "player's" color.
+     * @param searchDepth The number of plies to search (0 to just use a quick heuristic)
+     */
+    public AIPlayer(boolean isWhite, int searchDepth)
+    {
+        this.isWhite = isWhite;
+        this.searchDepth = searchDepth;
+    }
+
+    /**
+     * Limits how many positions each search visits (on top of the depth), which keeps each move's cost the same
+     * whatever the position. A search that runs out gives the best move of the deepest depth it finished.
+     * @param nodeLimit The most positions to visit (counting both the main and quiescence searches), or 0 for no limit
+     */
+    public void setNodeLimit(long nodeLimit)
+    {
+        this.nodeLimit = nodeLimit;
     }
 
     /**
-     * Gets a move, generated by the AI.
-     * @param board The board to apply the move to
-     * @return Returns the board, modified according to the computer's move
+     * Gives this player a table on disk to remember its searches in (as well as its own table),
+     * so they are still known after a restart, or by other players using the same file.
+     * @param persistentTable The table to use, or null to stop using one
+     */
+    public void setPersistentTable(PersistentTable persistentTable)
+    {
+        this.persistentTable = persistentTable;
+    }
+
+    /**
+     * Decides on a move, generated by the AI.
+     * Only one move is thought about at a time, so a new request waits for one that was called off to stop.
+     * @param board The board to move on (it is left unchanged)
+     * @param isCancelled Says whether the move isn't wanted any more (checked every so often while searching)
+     * @return Returns the computer's move, or null if it has none (or was cancelled before finding one)
+     */
+    public synchronized Move chooseMove(Board board, BooleanSupplier isCancelled)
+    {
+        // with no search depth, fall back on the quick jump-preferring heuristic
+        if (searchDepth <= 0)
+        {
+            lastScore = NO_SCORE;
+            return getHeuristicMove(board);
+        }
+        
+        // just analyse for the single best move (giving up where we are if it's called off)
+        this.isCancelled = isCancelled;
+        try
+        {
+            List<AnalysisLine> lines = analyse(board, 1, searchDepth, null);
+            lastScore = lines.isEmpty() ? NO_SCORE : lines.get(0).getScore();
+            return lines.isEmpty() ? null : lines.get(0).getMove();
+        }
+        finally
+        {
+            this.isCancelled = null;
+        }
+    }
+    
+    /**
+     * @return Returns the score of the last move chosen, from this player's point of view (or NO_SCORE if it wasn't searched).
+     */
+    public int getLastScore()
+    {
+        return lastScore;
+    }
+    
+    /**
+     * Gives the memory for this player's table back to be shared out again, once it's finished playing (otherwise
+     * that only happens once the player is garbage collected). It waits for a move being thought about first,
+     * and can still play afterwards, starting again with a new table.
      */
-    public Board getMove(Board board)
+    public synchronized void releaseMemory()
+    {
+        if (tableGrant != null)
+            tableGrant.release();
+        tableGrant = null;
+        table = null;
+    }
+    
+    /**
+     * Forgets every position searched so far, as if the player were new (keeping the table's memory).
+     */
+    public synchronized void clearTable()
+    {
+        if (table != null)
+            table.clear();
+    }
+    
+    /**
+     * Makes the table the first time there's a search to do (so a player that never searches takes no memory),
+     * or resizes it if the memory it's been given has changed since the last search (between searches is the only
+     * time it's safe to).
+     */
+    private void fitTableToGrant()
+    {
+        if (tableGrant == null)
+            tableGrant = MemoryGovernor.getGlobal().register("AIPlayer table",
+                                                             (long)TABLE_ENTRIES * TranspositionTable.BYTES_PER_ENTRY,
+                                                             (long)MIN_TABLE_ENTRIES * TranspositionTable.BYTES_PER_ENTRY,
+                                                             this::getTableBytes);
+        int entries = TranspositionTable.getEntriesFor(tableGrant.getBytes());
+        if (table == null)
+            table = new TranspositionTable(entries);
+        else if (entries != table.size())
+            table = table.resize(entries);
+    }
+    
+    /**
+     * @return Returns the memory the table is using, in bytes (0 if there isn't one yet).
+     */
+    private long getTableBytes()
+    {
+        TranspositionTable current = table;
+        return current != null ? current.getMemoryBytes() : 0;
+    }
+    
+    /**
+     * Finds the best few moves for the player to move, along with their scores and the moves expected to follow.
+     * Searches one ply deeper each time (using the last results to search the best moves first), 
+     * giving the results so far to the listener after every depth.
+     * All the lines are found in the same search: a move is only searched fully if it can beat the
+     * worst of the best moves found so far.
+     * @param board The board to analyse (it is left unchanged)
+     * @param lineCount The number of best moves to find
+     * @param maxDepth The depth to search to
+     * @param listener Told the results after each depth is finished (may be null)
+     * @return Returns the best moves found (up to lineCount of them), best first. Empty if there are no moves.
+     */
+    public synchronized List<AnalysisLine> analyse(Board board, int lineCount, int maxDepth, AnalysisListener listener)
+    {
+        // find every move we could do
+        Move[] moves = board.getLegalMoves();
+        ArrayList<RootMove> rootMoves = new ArrayList<RootMove>();
+        for (int i = 0; i < moves.length; i++)
+        {
+            rootMoves.add(new RootMove(moves[i]));
+        }
+        
+        nodes = 0;
+        quiescenceNodes = 0;
+        stopped = false;
+        fitTableToGrant();
+        if (persistentTable != null)
+            persistentTable.newSearch();
+        List<AnalysisLine> lines = new ArrayList<AnalysisLine>();
+        maxDepth = Math.min(maxDepth, MAX_PV_LENGTH - 1);
+        for (int depth = 1; depth <= maxDepth && !rootMoves.isEmpty(); depth++)
+        {
+            depthNodeLimit = depth > 1 ? nodeLimit : 0;
+            
+            // the scores of the best moves so far at this depth, best first
+            int[] bestScores = new int[lineCount];
+            int bestCount = 0;
+            
+            for (int i = 0; i < rootMoves.size(); i++)
+            {
+                RootMove rootMove = rootMoves.get(i);
+                
+                // a move only needs an exact score if it does better than the worst of the best ones so far
+                int alpha = bestCount < lineCount ? -INFINITE_SCORE : bestScores[lineCount - 1];
+                
+                board.applyMoveToBoard(rootMove.move);
+                rootMove.score = -negamax(board, depth - 1, -INFINITE_SCORE, -alpha, 1);
+                rootMove.isExact = false;
+                board.undoLastMove();
+                
+                // a search that was called off part way through says nothing, so keep the last depth's results
+                if (stopped)
+                    return lines;
+                
+                if (rootMove.score > alpha)
+                {
+                    // it's one of the best, so remember the line and its place in the best scores
+                    rootMove.isExact = true;
+                    rootMove.principalVariation = new Move[pvLengths[1]];
+                    rootMove.principalVariation[0] = rootMove.move;
+                    for (int ply = 1; ply < pvLengths[1]; ply++)
+                    {
+                        rootMove.principalVariation[ply] = pvMoves[1][ply];
+                    }
+                    
+                    int place = Math.min(bestCount, lineCount - 1);
+                    while (place > 0 && bestScores[place - 1] < rootMove.score)
+                    {
+                        bestScores[place] = bestScores[place - 1];
+                        place--;
+                    }
+                    bestScores[place] = rootMove.score;
+                    bestCount = Math.min(bestCount + 1, lineCount);
+                }
+            }
+            
+            // put the best moves first (the sort keeps the order of equal ones), and pass them on
+            Collections.sort(rootMoves);
+            lines = new ArrayList<AnalysisLine>();
+            for (int i = 0; i < bestCount; i++)
+            {
+                lines.add(new AnalysisLine(depth, rootMoves.get(i).score, rootMoves.get(i).principalVariation));
+            }
+            if (listener != null)
+                listener.depthCompleted(depth, lines);
+        }
+        return lines;
+    }
+    
+    /**
+     * Searches the given position with alpha-beta pruning (in negamax form, so scores are always
+     * from the point of view of the player to move).
+     * @param board The board to search (moves are applied and taken back, leaving it unchanged)
+     * @param depth The number of plies left to search
+     * @param alpha The score the player to move is already guaranteed
+     * @param beta The score the opponent is already guaranteed (so anything above it won't be allowed)
+     * @param ply The number of plies from the root of the search
+     * @return Returns the score of the position
+     */
+    private int negamax(Board board, int depth, int alpha, int beta, int ply)
+    {
+        nodes++;
+        pvLengths[ply] = ply;
+        
+        // once called off (or out of positions to visit), just get back out (the scores don't matter any more)
+        if (shouldStop(nodes))
+            return DRAW_SCORE;
+        
+        // repeated or stagnant positions are draws no matter what's on the board
+        if (board.isDraw())
+            return DRAW_SCORE;
+        
+        // once we're out of depth, just settle any captures left
+        if (depth == 0)
+            return quiescence(board, alpha, beta, ply);
+        
+        // see if we've already searched this position (or an equivalent one) before
+        // (the table stores everything in the canonical position's coordinates, so moves have to be transformed to and from it)
+        Symmetry symmetry = board.getCanonicalSymmetry();
+        long key = board.getHash(symmetry);
+        int hintFrom = -1, hintTo = -1;
+        int slot = table.find(key);
+        if (slot < 0 && persistentTable != null)
+            slot = findInPersistentTable(key);
+        if (slot >= 0)
+        {
+            // use the stored score if it's from a deep enough search and settles things here
+            if (table.getDepth(slot) >= depth)
+            {
+                int score = fromTableScore(table.getScore(slot), ply);
+                int bound = table.getBound(slot);
+                if (bound == TranspositionTable.EXACT ||
+                    bound == TranspositionTable.LOWER_BOUND && score >= beta ||
+                    bound == TranspositionTable.UPPER_BOUND && score <= alpha)
+                    return score;
+            }
+            
+            // otherwise at least try the best move from last time first
+            if (table.getBestMoveFrom(slot) >= 0)
+            {
+                hintFrom = symmetry.mapPosition(table.getBestMoveFrom(slot), board.size);
+                hintTo = symmetry.mapPosition(table.getBestMoveTo(slot), board.size);
+            }
+        }
+        
+        Move[] moves = board.getLegalMoves();
+        
+        // no moves means we've lost (prefer losing later, so it's worse the closer it is)
+        if (moves.length == 0)
+            return -WIN_SCORE + ply;
+        
+        if (hintFrom >= 0)
+            moveToFront(board, moves, hintFrom, hintTo);
+        
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE_SCORE;
+        int bestIndex = 0;
+        for (int i = 0; i < moves.length; i++)
+        {
+            board.applyMoveToBoard(moves[i]);
+            int score = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+            board.undoLastMove();
+            
+            if (score > bestScore)
+            {
+                bestScore = score;
+                bestIndex = i;
+            }
+            if (score > alpha)
+            {
+                alpha = score;
+                
+                // this is the best line from here so far: this move followed by the best line after it
+                pvMoves[ply][ply] = moves[i];
+                for (int next = ply + 1; next < pvLengths[ply + 1]; next++)
+                {
+                    pvMoves[ply][next] = pvMoves[ply + 1][next];
+                }
+                pvLengths[ply] = pvLengths[ply + 1];
+            }
+            
+            // the opponent will never let us get here, so stop looking
+            if (alpha >= beta)
+                break;
+        }
+        
+        // don't remember anything from a search that was called off
+        if (stopped)
+            return bestScore;
+        
+        // remember what we found (in the canonical position)
+        int bound;
+        if (bestScore <= originalAlpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        else if (bestScore >= beta)
+            bound = TranspositionTable.LOWER_BOUND;
+        else
+            bound = TranspositionTable.EXACT;
+        int[] bestFrom = moves[bestIndex].getOriginPosition();
+        int[] bestTo = moves[bestIndex].getEndingPosition();
+        int tableFrom = symmetry.mapPosition(board.getPositionFromCoordinates(bestFrom[0], bestFrom[1]), board.size);
+        int tableTo = symmetry.mapPosition(board.getPositionFromCoordinates(bestTo[0], bestTo[1]), board.size);
+        table.store(key, depth, toTableScore(bestScore, ply), bound, tableFrom, tableTo);
+        if (persistentTable != null && depth >= PERSISTENT_MIN_DEPTH)
+            persistentTable.store(key, depth, toTableScore(bestScore, ply), bound, tableFrom, tableTo);
+        
+        return bestScore;
+    }
+    
+    /**
+     * Looks for a position in the persistent table, copying it into our own table if it's there.
+     * @param key The canonical hash of the position
+     * @return Returns the slot of the entry in our own table, or -1 if there isn't one
+     */
+    private int findInPersistentTable(long key)
+    {
+        long entry = persistentTable.probe(key);
+        if (entry == PersistentTable.NOT_FOUND)
+            return -1;
+        
+        table.store(key, TranspositionTable.unpackDepth(entry), TranspositionTable.unpackScore(entry),
+                    TranspositionTable.unpackBound(entry), TranspositionTable.unpackBestMoveFrom(entry),
+                    TranspositionTable.unpackBestMoveTo(entry));
+        return table.find(key);
+    }
+    
+    /**
+     * Swaps the move with the given start and end positions (if there is one) to the front of the array,
+     * so it gets searched first.
+     * @param board The board the moves are on
+     * @param moves The moves
+     * @param from The position the move starts at
+     * @param to The position the move ends at
+     */
+    private void moveToFront(Board board, Move[] moves, int from, int to)
+    {
+        for (int i = 1; i < moves.length; i++)
+        {
+            int[] start = moves[i].getOriginPosition();
+            int[] end = moves[i].getEndingPosition();
+            if (board.getPositionFromCoordinates(start[0], start[1]) == from &&
+                board.getPositionFromCoordinates(end[0], end[1]) == to)
+            {
+                Move move = moves[i];
+                moves[i] = moves[0];
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Win and loss scores depend on how far they are from the root of the search, so they are
+     * stored relative to the position itself instead.
+     * @param score The score relative to the root
+     * @param ply The number of plies from the root
+     * @return Returns the score to store in the table
+     */
+    private int toTableScore(int score, int ply)
+    {
+        if (score > WIN_SCORE - MAX_PLY)
+            return score + ply;
+        else if (score < -WIN_SCORE + MAX_PLY)
+            return score - ply;
+        else
+            return score;
+    }
+    
+    /**
+     * Converts a score from the table back to being relative to the root (see toTableScore).
+     * @param score The score stored in the table
+     * @param ply The number of plies from the root
+     * @return Returns the score relative to the root
+     */
+    private int fromTableScore(int score, int ply)
+    {
+        if (score > WIN_SCORE - MAX_PLY)
+            return score - ply;
+        else if (score < -WIN_SCORE + MAX_PLY)
+            return score + ply;
+        else
+            return score;
+    }
+    
+    /**
+     * Checks whether the search should stop: once it has been called off (which is only asked every so often),
+     * or once it has visited as many positions as it may.
+     * @param count The positions visited so far by the search doing the checking (main or quiescence)
+     * @return Returns true if the search should stop (and notes it, so the rest of the search stops too)
+     */
+    private boolean shouldStop(long count)
+    {
+        if (isCancelled != null && count % NODES_PER_CANCEL_CHECK == 0 && isCancelled.getAsBoolean())
+            stopped = true;
+        if (depthNodeLimit > 0 && nodes + quiescenceNodes >= depthNodeLimit)
+            stopped = true;
+        return stopped;
+    }
+    
+    /**
+     * Searches only capturing moves past the end of the main search, until the position is quiet.
+     * Once there's nothing to capture, the position is scored as it stands ("stand pat").
+     * Jumping is compulsory, so there's no standing pat while there is something to capture.
+     * @param board The board to search (moves are applied and taken back, leaving it unchanged)
+     * @param alpha The score the player to move is already guaranteed
+     * @param beta The score the opponent is already guaranteed
+     * @param ply The number of plies from the root of the search
+     * @return Returns the score of the position
+     */
+    private int quiescence(Board board, int alpha, int beta, int ply)
+    {
+        quiescenceNodes++;
+        
+        // long runs of captures count against the limits too, so stop here just as in the main search
+        if (shouldStop(quiescenceNodes))
+            return DRAW_SCORE;
+        
+        // a quiet position is just scored as it is (unless the player to move can't move at all, and so has lost)
+        if (!board.hasCapture())
+        {
+            if (!board.hasStep())
+                return -WIN_SCORE + ply;
+            return Evaluator.evaluate(board);
+        }
+        
+        // otherwise keep following captures (there's always fewer pieces each time, so this ends)
+        Move[] captures = board.getLegalMoves();
+        int bestScore = -INFINITE_SCORE;
+        for (int i = 0; i < captures.length; i++)
+        {
+            board.applyMoveToBoard(captures[i]);
+            int score = -quiescence(board, -beta, -alpha, ply + 1);
+            board.undoLastMove();
+            
+            if (score > bestScore)
+                bestScore = score;
+            if (score > alpha)
+                alpha = score;
+            if (alpha >= beta)
+                break;
+        }
+        return bestScore;
+    }
+    
+    /**
+     * Gets a move quickly without searching: does the longest jump available,
+     * otherwise moves the furthest forward or furthest back piece.
+     * @param board The board to move on
+     * @return Returns the computer's move, or null if it has none
+     */
+    private Move getHeuristicMove(Board board)
     {
         // create list of possible pieces and their moves
         HashMap<Piece, Move[]> possibleChoices = new HashMap<Piece, Move[]>();
@@ -53,6 +576,10 @@ public class AIPlayer extends Player
             }
         }
                
+        // (with nothing to move, there's no move to make)
+        if (possibleChoices.isEmpty())
+            return null;
+        
         // record furthest back and furthest forward peice to alternate between (just assign the first for now)
         Piece furthestBackwardPiece = possibleChoices.keySet().toArray(new Piece[1])[0]; // convert to array to make it work
         Piece furthestForwardPiece = possibleChoices.keySet().toArray(new Piece[1])[0];
@@ -131,22 +658,20 @@ public class AIPlayer extends Player
         // if we have a jump to do, do it...
         if (absoluteBestMoveJumpLength > 0)
         {
-            board.applyMoveToBoard(absoluteBestMove, bestMovesPerPiece.get(absoluteBestMove));
+            return absoluteBestMove;
         }
         else // ...otherwise, choose at 50-50 random either the furthest forward or furthest back movable piece (to balance agressiveness)
         {
             int randomNum = new Random().nextInt(2);
             if (randomNum == 0)
             {
-                board.applyMoveToBoard(getKeyByValue(bestMovesPerPiece, furthestBackwardPiece), furthestBackwardPiece);
+                return getKeyByValue(bestMovesPerPiece, furthestBackwardPiece);
             }
             else
             {
-                board.applyMoveToBoard(getKeyByValue(bestMovesPerPiece, furthestForwardPiece), furthestForwardPiece);
+                return getKeyByValue(bestMovesPerPiece, furthestForwardPiece);
             }  
         }
-        
-        return board;
     }
     
     /**
@@ -167,4 +692,29 @@ public class AIPlayer extends Player
         }
         return null;
     }
+    
+    /**
+     * A move available at the root of an analysis, along with what the last search found for it.
+     * Sorts with the highest score first (and exact scores before equal bounds).
+     */
+    private static class RootMove implements Comparable<RootMove>
+    {
+        Move move;
+        int score;
+        boolean isExact;
+        Move[] principalVariation;
+        
+        RootMove(Move move)
+        {
+            this.move = move;
+        }
+        
+        public int compareTo(RootMove other)
+        {
+            if (score != other.score)
+                return Integer.compare(other.score, this.score);
+            else
+                return Boolean.compare(other.isExact, this.isExact);
+        }
+    }
 }
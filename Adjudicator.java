@@ -0,0 +1,446 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * Calls the result of computer-vs-computer games early, once it's clear, instead of playing on until a side
+ * can't move (which can take hundreds of plies in a game that's long decided, or dead drawn). A game is called:
+ * - as a win, when both players have scored the position as won by more than a margin for some moves in a row,
+ * - by proof, when there are few enough pieces left for a ProofNumberSolver to settle the position quickly
+ *   (which stands in for an endgame tablebase, as we don't have one),
+ * - as a draw, when both players have scored the position as about even for some moves in a row,
+ *   with nothing captured or crowned in that time.
+ * Scores are the ones players give for their own moves (see Player.getLastScore), so only games between players that
+ * score their moves (like AIPlayer) can be called as wins or draws; any game can be called by proof.
+ *
+ * One adjudicator looks after all the games of a run, each through its own Tracker. Every game it calls is logged
+ * with the reason, and it adds up the CPU time the games took and how much calling them early saved. How long a called
+ * game would have gone on can't be known, so that's estimated: it's taken to have lasted as long as the games that
+ * weren't called did on average, at the rate it had been using CPU time lately (moves get cheaper as pieces come off). For an exact figure, an adjudicator can
+ * just check instead: games are played out, and it notes when and how it would have called them, then counts
+ * the CPU time spent after that point, and how often the call matched the result the game was played out to
+ * (a call can be right even when it doesn't: players often fail to win a won ending, which just repeats until it's drawn).
+ *
+ * Settings are read from system properties (see fromSystemProperties), like -Dcheckers.adjudication=check.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class Adjudicator
+{
+    // the system properties that set up adjudication: whether to do it at all ("on", "off" or "check"),
+    // and the settings of each way of calling a game (as two numbers separated by a comma, see below)
+    public static final String MODE_PROPERTY = "checkers.adjudication";
+    public static final String WIN_PROPERTY = "checkers.adjudication.win";
+    public static final String DRAW_PROPERTY = "checkers.adjudication.draw";
+    public static final String PROOF_PROPERTY = "checkers.adjudication.proof";
+
+    // the default settings: a win needs both players to see a side up by three men for four moves each,
+    // a draw needs both to see it within a quarter of a man for eight moves each, and proof is tried with four pieces or fewer
+    // (with more, most tries run out of positions without proving anything, and cost more than calling the game saves)
+    public static final int DEFAULT_WIN_SCORE = 3 * Evaluator.MAN_VALUE;
+    public static final int DEFAULT_WIN_MOVES = 4;
+    public static final int DEFAULT_DRAW_SCORE = Evaluator.MAN_VALUE / 4;
+    public static final int DEFAULT_DRAW_MOVES = 8;
+    public static final int DEFAULT_PROOF_PIECES = 4;
+    public static final long DEFAULT_PROOF_NODES = 20000;
+
+    // the size of the table for each proof search (it's thrown away afterwards)
+    private static final int PROOF_TABLE_ENTRIES = 1 << 16;
+
+    // how much the latest move counts for in the average CPU time of recent moves (for estimating the time saved)
+    private static final double RECENT_WEIGHT = 0.125;
+
+    private static final ThreadMXBean threadTimes = ManagementFactory.getThreadMXBean();
+
+    private final int winScore;
+    private final int winMoves;
+    private final int drawScore;
+    private final int drawMoves;
+    private final int proofPieces;
+    private final long proofNodes;
+    private final boolean isCheckOnly;
+
+    // what happened to the games so far (all guarded by this)
+    private int gameCount;
+    private int calledCount;
+    private final int[] reasonCounts = new int[GameResult.Reason.values().length];
+    private long cpuNanos;
+    private long proofCpuNanos;
+    private int uncalledCount;
+    private long uncalledPlies;
+    private final List<double[]> calledGames = new ArrayList<double[]>(); // (ply called at, recent CPU nanoseconds per ply)
+    private int rightCalls;
+    private long checkedSavedCpuNanos;
+    private long checkedSavedPlies;
+
+    /**
+     * Constructor for the Adjudicator
+     * @param winScore The score both players must give one side for a game to be called as a win for it
+     * @param winMoves The moves in a row (by each player) they must both give it for (0 to never call wins this way)
+     * @param drawScore The furthest from even both players' scores can be for a game to be called a draw
+     * @param drawMoves The moves in a row (by each player) they must both be that close, with nothing captured or crowned (0 to never call draws this way)
+     * @param proofPieces The most pieces there can be on the board to try proving the result
+     * @param proofNodes The most positions to search in each try (0 to never try)
+     * @param isCheckOnly Whether to only note when games would be called, letting them play out
+     */
+    public Adjudicator(int winScore, int winMoves, int drawScore, int drawMoves, int proofPieces, long proofNodes,
+                       boolean isCheckOnly)
+    {
+        this.winScore = winScore;
+        this.winMoves = winMoves;
+        this.drawScore = drawScore;
+        this.drawMoves = drawMoves;
+        this.proofPieces = proofPieces;
+        this.proofNodes = proofNodes;
+        this.isCheckOnly = isCheckOnly;
+    }
+
+    /**
+     * Sets up an adjudicator from the system properties: checkers.adjudication is "on" (the default), "off", or "check"
+     * (see above); checkers.adjudication.win and checkers.adjudication.draw are each a score and a number of moves,
+     * and checkers.adjudication.proof is a number of pieces and of positions (like -Dcheckers.adjudication.win=300,4).
+     * @return Returns the adjudicator, or null if adjudication is off
+     */
+    public static Adjudicator fromSystemProperties()
+    {
+        String mode = System.getProperty(MODE_PROPERTY, "on").trim().toLowerCase();
+        if (mode.equals("off"))
+            return null;
+        if (!mode.equals("on") && !mode.equals("check"))
+            throw new IllegalArgumentException(MODE_PROPERTY + " should be on, off or check, not " + mode);
+
+        long[] win = readSettings(WIN_PROPERTY, DEFAULT_WIN_SCORE, DEFAULT_WIN_MOVES);
+        long[] draw = readSettings(DRAW_PROPERTY, DEFAULT_DRAW_SCORE, DEFAULT_DRAW_MOVES);
+        long[] proof = readSettings(PROOF_PROPERTY, DEFAULT_PROOF_PIECES, DEFAULT_PROOF_NODES);
+        return new Adjudicator((int)win[0], (int)win[1], (int)draw[0], (int)draw[1], (int)proof[0], proof[1],
+                               mode.equals("check"));
+    }
+
+    /**
+     * Reads a pair of numbers from a system property.
+     * @param property The property
+     * @param first The first number if the property isn't set
+     * @param second The second number if the property isn't set
+     * @return Returns the two numbers
+     */
+    private static long[] readSettings(String property, long first, long second)
+    {
+        String value = System.getProperty(property);
+        if (value == null)
+            return new long[] {first, second};
+
+        String[] parts = value.split(",");
+        if (parts.length != 2)
+            throw new IllegalArgumentException(property + " should be two numbers separated by a comma, not " + value);
+        return new long[] {Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim())};
+    }
+
+    /**
+     * Starts watching a game.
+     * @return Returns the tracker to tell about the game's moves and its end
+     */
+    public synchronized Tracker startGame()
+    {
+        return new Tracker(++gameCount);
+    }
+
+    /**
+     * @return Returns whether games are only checked, not called early.
+     */
+    public boolean isCheckOnly()
+    {
+        return isCheckOnly;
+    }
+
+    /**
+     * @return Returns the number of games called so far (or that would have been, when only checking).
+     */
+    public synchronized int getCalledCount()
+    {
+        return calledCount;
+    }
+
+    /**
+     * @return Returns the CPU time saved by calling games early so far, in nanoseconds: measured when only checking,
+     * otherwise estimated (see above). The time spent on proof searches is taken off.
+     */
+    public synchronized long getSavedCpuNanos()
+    {
+        if (isCheckOnly)
+            return checkedSavedCpuNanos - proofCpuNanos;
+        if (uncalledCount == 0)
+            return 0;
+
+        double averagePlies = (double)uncalledPlies / uncalledCount;
+        double saved = 0;
+        for (double[] game : calledGames)
+        {
+            saved += Math.max(0, averagePlies - game[0]) * game[1];
+        }
+        return (long)saved - proofCpuNanos;
+    }
+
+    /**
+     * @return Returns a few lines saying how many games were called and why, and the CPU time that saved.
+     */
+    public synchronized String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s %d of %d games early", isCheckOnly ? "Would have called" : "Called",
+                                    calledCount, gameCount));
+        for (GameResult.Reason reason : GameResult.Reason.values())
+        {
+            if (reasonCounts[reason.ordinal()] > 0)
+                report.append(String.format("%n  %s: %d", reason, reasonCounts[reason.ordinal()]));
+        }
+        report.append(String.format("%nThe games used %.1fs of CPU (%.2fs of it on proof searches)", cpuNanos / 1e9, proofCpuNanos / 1e9));
+        if (isCheckOnly)
+        {
+            report.append(String.format("%n%d of %d calls matched the result played out; calling them would have saved %d plies " +
+                                        "and %.2fs of CPU (%.2fs after the proof searches)",
+                                        rightCalls, calledCount, checkedSavedPlies, checkedSavedCpuNanos / 1e9, getSavedCpuNanos() / 1e9));
+        }
+        else if (calledCount > 0 && uncalledCount == 0)
+            report.append(String.format("%nEvery game was called, so there's nothing to estimate the CPU time saved from (check instead to measure it)"));
+        else if (calledCount > 0)
+            report.append(String.format("%nCalling them saved about %.2fs of CPU (estimated, after the proof searches)", getSavedCpuNanos() / 1e9));
+        return report.toString();
+    }
+
+    /**
+     * Counts up a game once it's over, and logs it if it was called.
+     */
+    private synchronized void gameFinished(Tracker tracker, GameResult result)
+    {
+        cpuNanos += tracker.cpuNanos;
+        proofCpuNanos += tracker.proofCpuNanos;
+        GameResult call = isCheckOnly ? tracker.call : result;
+        boolean isCalled = call != null && isCalled(call.getReason());
+        if (isCalled)
+        {
+            calledCount++;
+            reasonCounts[call.getReason().ordinal()]++;
+        }
+
+        if (isCheckOnly && isCalled)
+        {
+            boolean isRight = call.getOutcome() == result.getOutcome();
+            if (isRight)
+                rightCalls++;
+            checkedSavedPlies += result.getPlies() - call.getPlies();
+            checkedSavedCpuNanos += tracker.cpuNanos - tracker.cpuNanosAtCall;
+            System.out.println("Game " + tracker.id + " would have been called at ply " + call.getPlies() + " (" +
+                               call.getReason() + ", " + call.getOutcome() + "); it ended at ply " + result.getPlies() +
+                               " (" + result.getReason() + ", " + result.getOutcome() + ")" + (isRight ? "" : " - differs"));
+        }
+        else if (isCalled)
+        {
+            calledGames.add(new double[] {result.getPlies(), tracker.recentCpuNanosPerPly});
+            System.out.println("Game " + tracker.id + " called at ply " + result.getPlies() + " (" + result.getReason() +
+                               "): " + result.getOutcome());
+        }
+        else
+        {
+            uncalledCount++;
+            uncalledPlies += result.getPlies();
+        }
+    }
+
+    /**
+     * @return Returns whether games that end for the given reason were called by an adjudicator.
+     */
+    private static boolean isCalled(GameResult.Reason reason)
+    {
+        return reason == GameResult.Reason.AGREED_WIN || reason == GameResult.Reason.AGREED_DRAW ||
+               reason == GameResult.Reason.PROVEN;
+    }
+
+    /**
+     * Watches one game for the adjudicator: told about each move (on whichever thread plays it, but one at a time),
+     * it keeps count of how long the players have agreed on the position, and tries proving it when there are few pieces.
+     */
+    public class Tracker
+    {
+        final int id;
+
+        // the latest score from each player (from white's point of view), and the plies in a row they've agreed for
+        private int whiteScore = Player.NO_SCORE;
+        private int blackScore = Player.NO_SCORE;
+        private int winPlies;
+        private boolean isWinForWhite;
+        private int drawPlies;
+
+        // the pieces on the board after the last move (men and kings of each side), and whether it was tried proving
+        private int[] material;
+        private boolean isProofTried;
+
+        // the CPU time the game has used, what it had used when it would have been called, and the call (when only checking)
+        private long cpuNanos;
+        private long proofCpuNanos;
+        private long cpuNanosAtCall;
+
+        // the CPU time of recent moves, as a moving average (each move counting for RECENT_WEIGHT of it)
+        private double recentCpuNanosPerPly;
+        private GameResult call;
+
+        /**
+         * @param id The number of the game (for the log)
+         */
+        Tracker(int id)
+        {
+            this.id = id;
+        }
+
+        /**
+         * Looks at the position after a move, to see if the game can be called.
+         * @param board The board after the move
+         * @param position The snapshot of the same position
+         * @param mover The player who made the move (for its score, and the time it took)
+         * @return Returns the game's result if it should end now, otherwise null (always null when only checking)
+         */
+        public GameResult movePlayed(Board board, BoardSnapshot position, Player mover)
+        {
+            cpuNanos += mover.getLastMoveCpuNanos();
+            recentCpuNanosPerPly += (mover.getLastMoveCpuNanos() - recentCpuNanosPerPly) * RECENT_WEIGHT;
+            if (call != null)
+                return null;
+
+            // see how both players now rate the position (the player who moved is the one not to move now)
+            int score = mover.getLastScore();
+            if (score != Player.NO_SCORE && board.isWhiteTurn)
+                blackScore = -score;
+            else if (score != Player.NO_SCORE)
+                whiteScore = score;
+
+            int[] newMaterial = countMaterial(board);
+            boolean isMaterialChanged = material == null || !Arrays.equals(material, newMaterial);
+            material = newMaterial;
+
+            GameResult result = checkScores(board, position, isMaterialChanged);
+            if (result == null)
+                result = tryProof(board, position, isMaterialChanged);
+            if (result == null || !isCheckOnly)
+                return result;
+
+            // when only checking, just note the call and play on
+            call = result;
+            cpuNanosAtCall = cpuNanos;
+            return null;
+        }
+
+        /**
+         * Tells the adjudicator the game is over.
+         * @param result The result (or null if it didn't finish, which isn't counted)
+         */
+        public void gameEnded(GameResult result)
+        {
+            if (result != null)
+                gameFinished(this, result);
+        }
+
+        /**
+         * Counts how long the players have agreed on the position, and calls the game if it's been long enough.
+         * @return Returns the result, or null if it can't be called yet
+         */
+        private GameResult checkScores(Board board, BoardSnapshot position, boolean isMaterialChanged)
+        {
+            if (whiteScore == Player.NO_SCORE || blackScore == Player.NO_SCORE)
+                return null;
+
+            // agreeing on a win for the same side as before keeps the count going
+            boolean isWhiteWinning = whiteScore >= winScore && blackScore >= winScore;
+            boolean isBlackWinning = whiteScore <= -winScore && blackScore <= -winScore;
+            if ((isWhiteWinning || isBlackWinning) && isWhiteWinning == isWinForWhite)
+                winPlies++;
+            else
+                winPlies = isWhiteWinning || isBlackWinning ? 1 : 0;
+            isWinForWhite = isWhiteWinning;
+
+            // a draw has to be agreed on with nothing captured or crowned
+            if (!isMaterialChanged && Math.abs(whiteScore) <= drawScore && Math.abs(blackScore) <= drawScore)
+                drawPlies++;
+            else
+                drawPlies = 0;
+
+            if (winMoves > 0 && winPlies >= 2 * winMoves)
+                return new GameResult(isWinForWhite ? GameResult.Outcome.WHITE_WINS : GameResult.Outcome.BLACK_WINS,
+                                      GameResult.Reason.AGREED_WIN, board, position);
+            else if (drawMoves > 0 && drawPlies >= 2 * drawMoves)
+                return new GameResult(GameResult.Outcome.DRAW, GameResult.Reason.AGREED_DRAW, board, position);
+            else
+                return null;
+        }
+
+        /**
+         * Tries proving the result, if there are few enough pieces left and it hasn't already been tried with these pieces.
+         * @return Returns the result, or null if it couldn't be proven
+         */
+        private GameResult tryProof(Board board, BoardSnapshot position, boolean isMaterialChanged)
+        {
+            if (isMaterialChanged)
+                isProofTried = false;
+            if (proofNodes <= 0 || isProofTried || countPieces() > proofPieces)
+                return null;
+            isProofTried = true;
+
+            long startCpuNanos = threadTimes.getCurrentThreadCpuTime();
+            ProofResult proof;
+            try (ProofNumberSolver solver = new ProofNumberSolver(PROOF_TABLE_ENTRIES, proofNodes, 0, 1))
+            {
+                proof = solver.solve(board);
+            }
+            long time = threadTimes.getCurrentThreadCpuTime() - startCpuNanos;
+            proofCpuNanos += time;
+            cpuNanos += time;
+
+            // (the outcome is for the player to move now)
+            switch (proof.getOutcome())
+            {
+                case WIN:
+                    return new GameResult(board.isWhiteTurn ? GameResult.Outcome.WHITE_WINS : GameResult.Outcome.BLACK_WINS,
+                                          GameResult.Reason.PROVEN, board, position);
+                case LOSS:
+                    return new GameResult(board.isWhiteTurn ? GameResult.Outcome.BLACK_WINS : GameResult.Outcome.WHITE_WINS,
+                                          GameResult.Reason.PROVEN, board, position);
+                case DRAW:
+                    return new GameResult(GameResult.Outcome.DRAW, GameResult.Reason.PROVEN, board, position);
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return Returns the number of pieces on the board after the last move.
+         */
+        private int countPieces()
+        {
+            int count = 0;
+            for (int pieces : material)
+            {
+                count += pieces;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return Returns the number of white men, white kings, black men and black kings on the board.
+     */
+    private static int[] countMaterial(Board board)
+    {
+        int[] material = new int[4];
+        for (int word = 0; word < board.getGeometry().getWordCount(); word++)
+        {
+            long kings = board.getKingBits(word);
+            long white = board.getPieceBits(true, word);
+            long black = board.getPieceBits(false, word);
+            material[0] += Long.bitCount(white & ~kings);
+            material[1] += Long.bitCount(white & kings);
+            material[2] += Long.bitCount(black & ~kings);
+            material[3] += Long.bitCount(black & kings);
+        }
+        return material;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * One of the best moves found by an analysis, with its score and the moves expected to follow it.
+ * 
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class AnalysisLine
+{
+    private int depth;
+    private int score;
+    private Move[] principalVariation;
+    
+    /**
+     * Constructor for objects of class AnalysisLine
+     * @param depth The depth this line was searched to
+     * @param score The score of the move, from the point of view of the player moving
+     * @param principalVariation The move followed by the best replies to it (always at least the move)
+     */
+    public AnalysisLine(int depth, int score, Move[] principalVariation)
+    {
+        this.depth = depth;
+        this.score = score;
+        this.principalVariation = principalVariation;
+    }
+    
+    /**
+     * @return Returns the move this line starts with.
+     */
+    public Move getMove()
+    {
+        return principalVariation[0];
+    }
+    
+    /**
+     * @return Returns the score of the move, from the point of view of the player moving.
+     */
+    public int getScore()
+    {
+        return score;
+    }
+    
+    /**
+     * @return Returns the depth this line was searched to.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+    
+    /**
+     * @return Returns the move followed by the best replies expected to it.
+     */
+    public Move[] getPrincipalVariation()
+    {
+        return principalVariation.clone();
+    }
+    
+    /**
+     * @return Returns a string representation of this line (its score and moves)
+     */
+    public String toString()
+    {
+        String line = "(" + score + ")";
+        for (int i = 0; i < principalVariation.length; i++)
+        {
+            line += " " + principalVariation[i];
+        }
+        return line;
+    }
+}
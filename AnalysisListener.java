@@ -0,0 +1,17 @@
+import java.util.List;
+/**
+ * Receives the results of an analysis (see AIPlayer.analyse) as it goes,
+ * so they can be shown right away and refined as the search gets deeper.
+ * 
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public interface AnalysisListener
+{
+    /**
+     * Called each time the analysis finishes searching to a new depth.
+     * @param depth The depth that was just finished
+     * @param lines The best moves found so far, best first
+     */
+    public void depthCompleted(int depth, List<AnalysisLine> lines);
+}
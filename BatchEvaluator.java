@@ -0,0 +1,131 @@
+/**
+ * Scores a whole PositionBatch at once, giving exactly the same scores as Evaluator.evaluate would one at a time.
+ *
+ * Rather than going over each piece, every feature is counted straight from the sets of squares:
+ * the number of men and kings of each color, and the total number of rows their men have advanced.
+ * That total is found with one count per bit of the advancement rather than one per row, by counting
+ * the men on the squares where that bit of the advancement is set (its "plane") and weighting by the bit.
+ * Since the batch keeps white in the low half of each chunk and black in the high half, every count
+ * is white's minus black's.
+ *
+ * This class does the work one position at a time with plain long arithmetic. Use create() to get the
+ * vectorised version (see VectorBatchEvaluator) when the running Java has the vector API available,
+ * falling back to this one when it doesn't.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class BatchEvaluator
+{
+    // the vectorised evaluator, only loaded by name so everything else compiles and runs without the vector API
+    private static final String VECTOR_EVALUATOR = "VectorBatchEvaluator";
+
+    // the advancement planes of each size of board, built when first needed
+    private static final long[][][] advancementPlanes = new long[Zobrist.MAX_SIZE + 1][][];
+
+    /**
+     * @return Returns the fastest batch evaluator available: the vectorised one if the vector API
+     * can be used (Java was started with --add-modules jdk.incubator.vector), otherwise this scalar one.
+     */
+    public static BatchEvaluator create()
+    {
+        try
+        {
+            return (BatchEvaluator)Class.forName(VECTOR_EVALUATOR).getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            // (the class wasn't compiled, or the vector module isn't there to link it against)
+            return new BatchEvaluator();
+        }
+    }
+
+    /**
+     * Scores every position in the batch.
+     * @param batch The positions to score
+     * @param scores Filled with the score of each position, from the point of view of its player to move
+     */
+    public void evaluate(PositionBatch batch, int[] scores)
+    {
+        evaluateRange(batch, scores, 0, batch.size());
+    }
+
+    /**
+     * Scores some of the positions in the batch, one at a time.
+     * @param batch The positions to score
+     * @param scores Filled with the score of each position, from the point of view of its player to move
+     * @param start The index of the first position to score
+     * @param end The index after the last position to score
+     */
+    protected void evaluateRange(PositionBatch batch, int[] scores, int start, int end)
+    {
+        long[][] planes = getAdvancementPlanes(batch.getGeometry());
+        boolean[] isBlackTurn = batch.getBlackTurns();
+
+        for (int i = start; i < end; i++)
+        {
+            int score = 0;
+            for (int chunk = 0; chunk < batch.getChunkCount(); chunk++)
+            {
+                long kings = batch.getKings(chunk)[i];
+                long men = batch.getPieces(chunk)[i] & ~kings;
+                score += Evaluator.MAN_VALUE * countDifference(men) + Evaluator.KING_VALUE * countDifference(kings);
+                for (int bit = 0; bit < planes[chunk].length; bit++)
+                {
+                    score += (Evaluator.ADVANCEMENT_VALUE << bit) * countDifference(men & planes[chunk][bit]);
+                }
+            }
+            scores[i] = isBlackTurn[i] ? -score : score;
+        }
+    }
+
+    /**
+     * @return Returns the number of white squares in the given chunk minus the number of black ones.
+     * @param chunk The chunk (white in the low half, black in the high half)
+     */
+    private static int countDifference(long chunk)
+    {
+        return Long.bitCount(chunk & PositionBatch.WHITE_HALF) - Long.bitCount(chunk >>> PositionBatch.CHUNK_SQUARES);
+    }
+
+    /**
+     * @return Returns a short name for this evaluator (for reports).
+     */
+    public String getName()
+    {
+        return "scalar";
+    }
+
+    /**
+     * Gets the advancement planes of a board, laid out like the chunks of a PositionBatch: for each chunk and
+     * each bit of the number of rows a man has advanced, the squares where a white man (in the low half)
+     * or a black man (in the high half) has that bit set.
+     * @param geometry The geometry of the board
+     * @return Returns the planes, indexed by [chunk][bit] (shared, so not to be changed)
+     */
+    protected static synchronized long[][] getAdvancementPlanes(BoardGeometry geometry)
+    {
+        int size = geometry.getSize();
+        if (advancementPlanes[size] != null)
+            return advancementPlanes[size];
+
+        int bitCount = 32 - Integer.numberOfLeadingZeros(size - 1);
+        long[][] planes = new long[PositionBatch.getChunkCount(geometry)][bitCount];
+        for (int square = 0; square < geometry.getSquareCount(); square++)
+        {
+            int chunk = square / PositionBatch.CHUNK_SQUARES;
+            int index = square % PositionBatch.CHUNK_SQUARES;
+            int whiteAdvancement = Evaluator.getAdvancement(geometry.getY(square), true, size);
+            int blackAdvancement = Evaluator.getAdvancement(geometry.getY(square), false, size);
+            for (int bit = 0; bit < bitCount; bit++)
+            {
+                if ((whiteAdvancement & (1 << bit)) != 0)
+                    planes[chunk][bit] |= 1L << index;
+                if ((blackAdvancement & (1 << bit)) != 0)
+                    planes[chunk][bit] |= 1L << (index + PositionBatch.CHUNK_SQUARES);
+            }
+        }
+        advancementPlanes[size] = planes;
+        return planes;
+    }
+}
@@ -1,40 +1,218 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 /**
  * Stores and handles interaction with the game board.
+ * Also keeps a history of the positions reached (by hash) so repetitions and
+ * long stretches without progress can be detected as draws, and keeps the hashes of the
+ * position's symmetric equivalents (see Symmetry) so caches can store only one of them.
+ * 
+ * Alongside the Piece objects, the pieces are kept as sets of bits (one per dark square, see BoardGeometry),
+ * which is what move generation works with, so the size of the board doesn't slow it down.
  * 
  * @author Mckenna Cisler
- * @version 11.23.2015
+ * @version 10.19.2026
  */
 public class Board
 {
+    // draw rules: a position repeated this many times, or this many plies (40 moves each)
+    // without a capture or a man moving, is a draw
+    public static final int REPETITIONS_FOR_DRAW = 3;
+    public static final int NO_PROGRESS_PLIES_FOR_DRAW = 80;
+    
+    // starting size of the history arrays (they grow as needed)
+    private static final int INITIAL_HISTORY_CAPACITY = 64;
+    
+    // rough sizes of what a board is made of, in bytes (see getMemoryBytes)
+    private static final int OBJECT_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int PIECE_BYTES = 24;
+    private static final int MOVE_RECORD_BYTES = 40;
+    
     // global vars
     public Piece[][] boardArray;
     public int size;
+    private Variant variant;
+    private BoardGeometry geometry;
+    
+    // the squares holding white pieces, black pieces and kings (of either color)
+    private long[] whitePieces;
+    private long[] blackPieces;
+    private long[] kings;
+    
+    // whose turn it is (white moves first), switched every time a move is applied
+    public boolean isWhiteTurn = true;
+    
+    // the symmetries allowed on this size of board
+    private Symmetry[] symmetries;
+    
+    // the hash of the current position transformed by each symmetry (by ordinal, so hashes[0] is the
+    // actual position's hash), all kept up to date as pieces are placed and removed
+    private long[] hashes = new long[Symmetry.values().length];
+    
+    // the hashes of every position reached so far, with the current one last.
+    // Searches apply and take back moves on this same board, so this is both the game's and the search's history.
+    private long[] positionHashes = new long[INITIAL_HISTORY_CAPACITY];
+    private int historyLength;
+    
+    // the index of the earliest position moves can be taken back to (positions before it came from another board)
+    private int historyStart;
+    
+    // what's needed to take back each applied move (moveRecords[i] led to positionHashes[i + 1])
+    private MoveRecord[] moveRecords = new MoveRecord[INITIAL_HISTORY_CAPACITY];
+    
+    // the number of plies since the last capture or move of a man (the only moves that can't be reversed)
+    private int noProgressPlies;
 
     /**
      * Responsible for generating a brand new board
-     * @param size The size of the board (8 for common checkers)
-     * NOTE: currently will probably break with other than 8 as size!
+     * @param size The size of the board (8 for common checkers, or 10 or 12 - see Variant)
+     * @throws IllegalArgumentException If no variant is played on that size of board
      */
     public Board(int size)
     {
+        this(Variant.forSize(size));
+    }
+    
+    /**
+     * Responsible for generating a brand new board for the given variant
+     * @param variant The variant to be played on the board
+     */
+    public Board(Variant variant)
+    {
+        this(variant, true);
+    }
+    
+    /**
+     * Responsible for generating a board for the given variant, either with the pieces in their starting positions or empty
+     * @param variant The variant to be played on the board
+     * @param isSetUp Whether to put the pieces in their starting positions
+     */
+    private Board(Variant variant, boolean isSetUp)
+    {
+        // store the size for further use
+        this.variant = variant;
+        this.size = variant.getSize();
+        this.geometry = BoardGeometry.forSize(size);
+        
         // new board is just empty
         this.boardArray = new Piece[size][size];
+        this.whitePieces = new long[geometry.getWordCount()];
+        this.blackPieces = new long[geometry.getWordCount()];
+        this.kings = new long[geometry.getWordCount()];
         
-        // store the size for further use
-        this.size = size;
+        // white moves first (which means black does in colour-flipped positions)
+        this.symmetries = Symmetry.getAllowed(size);
+        for (int i = 0; i < symmetries.length; i++)
+        {
+            if (!symmetries[i].swapsColour())
+                this.hashes[symmetries[i].ordinal()] = Zobrist.getWhiteToMoveKey();
+        }
+        
+        // setup the starting positions, and record that as the first position of the game
+        if (isSetUp)
+            setupBoard();
+        this.positionHashes[historyLength++] = getHash();
+    }
+    
+    /**
+     * Responsible for generating a board at the position of a snapshot (see BoardSnapshot).
+     * The positions before the snapshot still count towards repetitions, but can't be taken back to.
+     * @param snapshot The snapshot
+     */
+    public Board(BoardSnapshot snapshot)
+    {
+        this(snapshot.getVariant(), false);
+        
+        // put the pieces where the snapshot has them
+        for (int square = 0; square < geometry.getSquareCount(); square++)
+        {
+            int word = square >>> 6;
+            long bit = 1L << square;
+            boolean isWhite = (snapshot.getPieceBits(true, word) & bit) != 0;
+            if (isWhite || (snapshot.getPieceBits(false, word) & bit) != 0)
+            {
+                Piece piece = new Piece(geometry.getX(square), geometry.getY(square), isWhite);
+                piece.setKing((snapshot.getKingBits(word) & bit) != 0);
+                setValueAt(geometry.getX(square), geometry.getY(square), piece);
+            }
+        }
+        if (!snapshot.isWhiteTurn())
+            switchTurn();
+        noProgressPlies = snapshot.getNoProgressPlies();
         
-        // setup the starting positions
-        setupBoard();
+        // then replace the history with the positions that led to it (that can still come up again)
+        long[] history = snapshot.getHistorySinceProgress();
+        positionHashes = Arrays.copyOf(history, Math.max(INITIAL_HISTORY_CAPACITY, history.length * 2 + 1));
+        moveRecords = new MoveRecord[positionHashes.length];
+        historyLength = history.length;
+        positionHashes[historyLength++] = getHash();
+        historyStart = historyLength - 1;
+    }
+    
+    /**
+     * Responsible for generating a board with the given pieces on it (see BoardGeometry for how the sets are stored).
+     * Nothing is known about how the position came about, so there are no positions before it in the history.
+     * @param variant The variant to be played on the board
+     * @param whitePieces The squares holding white pieces
+     * @param blackPieces The squares holding black pieces
+     * @param kings The squares holding kings (of either color)
+     * @param isWhiteTurn Whether it's white's turn to move
+     */
+    public Board(Variant variant, long[] whitePieces, long[] blackPieces, long[] kings, boolean isWhiteTurn)
+    {
+        this(variant, false);
+        
+        for (int square = 0; square < geometry.getSquareCount(); square++)
+        {
+            boolean isWhite = BoardGeometry.containsSquare(whitePieces, square);
+            if (isWhite || BoardGeometry.containsSquare(blackPieces, square))
+            {
+                Piece piece = new Piece(geometry.getX(square), geometry.getY(square), isWhite);
+                piece.setKing(BoardGeometry.containsSquare(kings, square));
+                setValueAt(geometry.getX(square), geometry.getY(square), piece);
+            }
+        }
+        if (!isWhiteTurn)
+            switchTurn();
+        positionHashes[0] = getHash();
     }
     
     /**
-     * Responsible for generating a board based on another board
+     * Responsible for generating a board based on another board.
+     * Every piece is copied, so the two boards can be played on separately (by different threads, even).
+     * The positions reached before still count towards repetitions, but the moves that led to them
+     * can't be taken back on the copy.
      */
     public Board(Board board)
     {
-        // just transfer stuff
-        this.boardArray = board.boardArray;
+        // transfer the simple stuff
         this.size = board.size;
+        this.variant = board.variant;
+        this.geometry = board.geometry;
+        this.isWhiteTurn = board.isWhiteTurn;
+        this.symmetries = board.symmetries;
+        this.hashes = board.hashes.clone();
+        this.noProgressPlies = board.noProgressPlies;
+        
+        // then copy all the pieces
+        this.boardArray = new Piece[size][size];
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                if (board.boardArray[y][x] != null)
+                    this.boardArray[y][x] = new Piece(board.boardArray[y][x]);
+            }
+        }
+        this.whitePieces = board.whitePieces.clone();
+        this.blackPieces = board.blackPieces.clone();
+        this.kings = board.kings.clone();
+        
+        // and the history of positions (but not of moves, which refer to the other board's pieces)
+        this.positionHashes = board.positionHashes.clone();
+        this.moveRecords = new MoveRecord[positionHashes.length];
+        this.historyLength = board.historyLength;
+        this.historyStart = historyLength - 1;
     }
     
     /**
@@ -43,24 +221,209 @@ public class Board
      */
     public void setupBoard()
     {
+        int rows = variant.getRowsPerSide();
         for (int y = 0; y < size; y++)
         {
             for (int x = 0; x < size; x++)
             {
                 // add white pieces to the top (in a checkerboard pattern of black spaces - not on white spaces)
-                if (y < 3 && isCheckerboardSpace(x, y))
+                if (y < rows && isCheckerboardSpace(x, y))
                 {
-                    this.boardArray[y][x] = new Piece(x, y, true);
+                    this.setValueAt(x, y, new Piece(x, y, true));
                 }
                 // ... and black pieces to the bottom in the opposite pattern
-                else if (y >= size - 3 && isCheckerboardSpace(x, y))
+                else if (y >= size - rows && isCheckerboardSpace(x, y))
                 {
-                    this.boardArray[y][x] = new Piece(x, y, false);
+                    this.setValueAt(x, y, new Piece(x, y, false));
                 }
             }
         }
     }
     
+    /**
+     * Generates every legal move of the player whose turn it is.
+     * Jumping is compulsory, so we first check whether any piece can jump at all, and if so only
+     * generate jumps (and only complete ones - each series of jumps is one move, without the jumps along the way).
+     * @return Returns all of the legal moves (an empty array if there are none, which means that player has lost)
+     */
+    public Move[] getLegalMoves()
+    {
+        ArrayList<Move> moves = new ArrayList<Move>();
+        boolean mustJump = hasCapture(isWhiteTurn);
+        
+        // go over just the squares with our pieces on them
+        long[] ownPieces = isWhiteTurn ? whitePieces : blackPieces;
+        for (int word = 0; word < ownPieces.length; word++)
+        {
+            for (long bits = ownPieces[word]; bits != 0; bits &= bits - 1)
+            {
+                Piece piece = getPieceAt(word*64 + Long.numberOfTrailingZeros(bits));
+                if (mustJump)
+                    piece.addAllPossibleJumps(this, moves);
+                else
+                    piece.addAllPossibleSteps(this, moves);
+            }
+        }
+        
+        return moves.toArray(new Move[moves.size()]);
+    }
+    
+    /**
+     * @return Returns true if the player whose turn it is has a jump available (and so has to jump).
+     */
+    public boolean hasCapture()
+    {
+        return hasCapture(isWhiteTurn);
+    }
+    
+    /**
+     * @return Returns true if any piece of the given color has a jump available.
+     * @param isWhite The color to check
+     */
+    public boolean hasCapture(boolean isWhite)
+    {
+        // just look at the bits, without going through the pieces themselves
+        long[] ownPieces = isWhite ? whitePieces : blackPieces;
+        long[] otherPieces = isWhite ? blackPieces : whitePieces;
+        int forward = isWhite ? 1 : -1;
+        for (int word = 0; word < ownPieces.length; word++)
+        {
+            for (long bits = ownPieces[word]; bits != 0; bits &= bits - 1)
+            {
+                int square = word*64 + Long.numberOfTrailingZeros(bits);
+                boolean isKing = BoardGeometry.containsSquare(kings, square);
+                boolean isFlying = isKing && variant.hasFlyingKings();
+                for (int direction = 0; direction < BoardGeometry.DIRECTIONS; direction++)
+                {
+                    // men only jump forwards, and there has to be an opponent to jump and an empty space behind it
+                    // (which for a flying king is the first piece along the diagonal, however far away)
+                    if (!isKing && BoardGeometry.getDirectionY(direction) != forward)
+                        continue;
+                    
+                    int jumped = isFlying ? getFirstOccupied(square, direction) : geometry.getNeighbour(square, direction);
+                    int landing = jumped >= 0 ? geometry.getNeighbour(jumped, direction) : -1;
+                    if (landing >= 0 && BoardGeometry.containsSquare(otherPieces, jumped) && !isOccupied(landing))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return Returns true if the player whose turn it is has a normal (non-jumping) move available
+     * (so, with no jumps either, whether they can move at all), without finding what the moves are.
+     */
+    public boolean hasStep()
+    {
+        // just look at the bits: any piece with an empty square next to it in a direction it can go can move
+        // (a flying king included, as it can always stop on the first square)
+        long[] ownPieces = isWhiteTurn ? whitePieces : blackPieces;
+        int forward = isWhiteTurn ? 1 : -1;
+        for (int word = 0; word < ownPieces.length; word++)
+        {
+            for (long bits = ownPieces[word]; bits != 0; bits &= bits - 1)
+            {
+                int square = word*64 + Long.numberOfTrailingZeros(bits);
+                boolean isKing = BoardGeometry.containsSquare(kings, square);
+                for (int direction = 0; direction < BoardGeometry.DIRECTIONS; direction++)
+                {
+                    if (!isKing && BoardGeometry.getDirectionY(direction) != forward)
+                        continue;
+                    
+                    int target = geometry.getNeighbour(square, direction);
+                    if (target >= 0 && !isOccupied(target))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return Returns true if there is a piece on the given square.
+     * @param square The (dark) square, as numbered by BoardGeometry
+     */
+    public boolean isOccupied(int square)
+    {
+        return BoardGeometry.containsSquare(whitePieces, square) || BoardGeometry.containsSquare(blackPieces, square);
+    }
+    
+    /**
+     * @return Returns the nearest square holding a piece along the diagonal from the given square in the given direction,
+     * or -1 if there isn't one (see BoardGeometry.getFirstInRay).
+     * @param square The (dark) square to start from, as numbered by BoardGeometry
+     * @param direction The direction to look in
+     */
+    public int getFirstOccupied(int square, int direction)
+    {
+        return geometry.getFirstInRay(square, direction, whitePieces, blackPieces);
+    }
+    
+    /**
+     * @return Returns true if there is a piece of the given color on the given square.
+     * @param square The (dark) square, as numbered by BoardGeometry
+     * @param isWhite The color to look for
+     */
+    public boolean hasPieceAt(int square, boolean isWhite)
+    {
+        return BoardGeometry.containsSquare(isWhite ? whitePieces : blackPieces, square);
+    }
+    
+    /**
+     * @return Returns the Piece object on the given square (may be null).
+     * @param square The (dark) square, as numbered by BoardGeometry
+     */
+    public Piece getPieceAt(int square)
+    {
+        return boardArray[geometry.getY(square)][geometry.getX(square)];
+    }
+    
+    /**
+     * @return Returns one word of the set of squares holding pieces of the given color (see BoardGeometry).
+     * @param isWhite The color of the pieces
+     * @param word Which word of the set (0 to geometry.getWordCount() - 1)
+     */
+    public long getPieceBits(boolean isWhite, int word)
+    {
+        return isWhite ? whitePieces[word] : blackPieces[word];
+    }
+    
+    /**
+     * @return Returns one word of the set of squares holding kings of either color (see BoardGeometry).
+     * @param word Which word of the set (0 to geometry.getWordCount() - 1)
+     */
+    public long getKingBits(int word)
+    {
+        return kings[word];
+    }
+    
+    /**
+     * @return Returns the variant being played on this board.
+     */
+    public Variant getVariant()
+    {
+        return variant;
+    }
+    
+    /**
+     * @return Returns the tables describing the squares of this board.
+     */
+    public BoardGeometry getGeometry()
+    {
+        return geometry;
+    }
+    
+    /**
+     * Applies the given move to the piece it starts from (see getLegalMoves).
+     * @param move The Move object to execute.
+     */
+    public void applyMoveToBoard(Move move)
+    {
+        int[] origin = move.getOriginPosition();
+        applyMoveToBoard(move, this.getValueAt(origin[0], origin[1]));
+    }
+    
     /**
      * Using the given move and piece, move the piece on the board and apply it to this board.
      * @param move The Move object to execute on the piece and board.
@@ -78,6 +441,17 @@ public class Board
         
         // find any pieces we've jumped in the process, and remove them as well
         Piece[] jumpedPieces = move.getJumpedPieces(this);
+        
+        // remember how to take this move back before we change anything
+        MoveRecord record = new MoveRecord(piece, moveStartingPos[0], moveStartingPos[1], piece.isKing(),
+                                           jumpedPieces, noProgressPlies);
+        
+        // captures and moves of men can never be undone, so they restart the no-progress count
+        if (jumpedPieces != null || !piece.isKing())
+            noProgressPlies = 0;
+        else
+            noProgressPlies++;
+        
         if (jumpedPieces != null)
         {
             // loop over all jumped pieces and remove them
@@ -99,6 +473,201 @@ public class Board
         
         // finally, set the move's destination to the piece we're moving
         this.setValueAt(moveEndingPos[0], moveEndingPos[1], piece);
+        
+        // then it's the other player's turn, and we've reached a new position
+        switchTurn();
+        pushHistory(record);
+    }
+    
+    /**
+     * Takes back the last move applied to this board, restoring the previous position exactly
+     * (including any jumped pieces, the moving piece's kingness and whose turn it is).
+     * Used by searches to explore moves without copying the board.
+     * @throws IllegalStateException If there are no moves to take back
+     */
+    public void undoLastMove()
+    {
+        if (historyLength - 1 <= historyStart)
+            throw new IllegalStateException("No moves to take back");
+        
+        // pop the last move off of the history
+        historyLength--;
+        MoveRecord record = moveRecords[historyLength - 1];
+        moveRecords[historyLength - 1] = null;
+        
+        switchTurn();
+        
+        // take the piece off of its destination and put it back where it started, as it was
+        int[] moveEndingPos = record.piece.getCoordinates();
+        this.setValueAt(moveEndingPos[0], moveEndingPos[1], null);
+        record.piece.moveTo(record.startX, record.startY);
+        record.piece.setKing(record.wasKing);
+        this.setValueAt(record.startX, record.startY, record.piece);
+        
+        // and put back anything we jumped (the pieces still know where they were)
+        if (record.jumpedPieces != null)
+        {
+            for (int i = 0; i < record.jumpedPieces.length; i++)
+            {
+                if (record.jumpedPieces[i] != null)
+                {
+                    int[] coords = record.jumpedPieces[i].getCoordinates();
+                    this.setValueAt(coords[0], coords[1], record.jumpedPieces[i]);
+                }
+            }
+        }
+        
+        noProgressPlies = record.previousNoProgressPlies;
+    }
+    
+    /**
+     * @return Returns the number of moves applied to this board that can be taken back.
+     */
+    public int getMovesPlayed()
+    {
+        return historyLength - 1 - historyStart;
+    }
+    
+    /**
+     * @return Returns the hash of the current position (pieces and whose turn it is).
+     */
+    public long getHash()
+    {
+        return hashes[0];
+    }
+    
+    /**
+     * @return Returns the hash of the current position after being transformed by the given symmetry
+     * (without actually transforming it).
+     * @param symmetry The symmetry to transform by, which must be allowed on this board
+     */
+    public long getHash(Symmetry symmetry)
+    {
+        return hashes[symmetry.ordinal()];
+    }
+    
+    /**
+     * Finds the symmetry that transforms the current position into the one representative of all
+     * of its symmetric equivalents (the one with the lowest hash), so that caches only need to store that one.
+     * @return Returns the symmetry to apply to get the canonical position.
+     */
+    public Symmetry getCanonicalSymmetry()
+    {
+        Symmetry canonical = Symmetry.IDENTITY;
+        for (int i = 1; i < symmetries.length; i++)
+        {
+            if (hashes[symmetries[i].ordinal()] < hashes[canonical.ordinal()])
+                canonical = symmetries[i];
+        }
+        return canonical;
+    }
+    
+    /**
+     * @return Returns the hash of the canonical position (see getCanonicalSymmetry),
+     * which is the same for this position and all of its symmetric equivalents.
+     */
+    public long getCanonicalHash()
+    {
+        return getHash(getCanonicalSymmetry());
+    }
+    
+    /**
+     * @return Returns roughly how much memory the board takes, in bytes: its squares and pieces,
+     * and the history it keeps of the positions reached and how to take the moves back.
+     */
+    public long getMemoryBytes()
+    {
+        int pieceCount = 0;
+        for (int word = 0; word < geometry.getWordCount(); word++)
+        {
+            pieceCount += Long.bitCount(whitePieces[word] | blackPieces[word]);
+        }
+        return (long)size * (OBJECT_BYTES + size * REFERENCE_BYTES) + pieceCount * PIECE_BYTES +
+               3 * (OBJECT_BYTES + geometry.getWordCount() * Long.BYTES) +
+               positionHashes.length * Long.BYTES + moveRecords.length * REFERENCE_BYTES +
+               (historyLength - 1 - historyStart) * MOVE_RECORD_BYTES;
+    }
+    
+    /**
+     * @return Returns the number of plies since the last capture or move of a man.
+     */
+    public int getNoProgressPlies()
+    {
+        return noProgressPlies;
+    }
+    
+    /**
+     * @return Returns the hashes of the positions since the last capture or man move (the only ones that can come up again),
+     * oldest first, not including the current one.
+     */
+    public long[] getHistorySinceProgress()
+    {
+        int current = historyLength - 1;
+        return Arrays.copyOfRange(positionHashes, Math.max(0, current - noProgressPlies), current);
+    }
+    
+    /**
+     * @return Returns true if the current position has occured REPETITIONS_FOR_DRAW times.
+     * Only looks back as far as the last capture or man move, because no position before that can come up again.
+     */
+    public boolean isRepetitionDraw()
+    {
+        int current = historyLength - 1;
+        int oldestReachable = Math.max(0, current - noProgressPlies);
+        
+        // only look at positions with the same player to move (every other one)
+        int repetitions = 1;
+        for (int i = current - 2; i >= oldestReachable; i -= 2)
+        {
+            if (positionHashes[i] == getHash() && ++repetitions >= REPETITIONS_FOR_DRAW)
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return Returns true if there have been NO_PROGRESS_PLIES_FOR_DRAW plies without a capture or man move.
+     */
+    public boolean isNoProgressDraw()
+    {
+        return noProgressPlies >= NO_PROGRESS_PLIES_FOR_DRAW;
+    }
+    
+    /**
+     * @return Returns true if the current position is a draw by repetition or by lack of progress.
+     */
+    public boolean isDraw()
+    {
+        return isNoProgressDraw() || isRepetitionDraw();
+    }
+    
+    /**
+     * Switches whose turn it is, updating the hash to match.
+     */
+    private void switchTurn()
+    {
+        isWhiteTurn = !isWhiteTurn;
+        for (int i = 0; i < symmetries.length; i++)
+        {
+            hashes[symmetries[i].ordinal()] ^= Zobrist.getWhiteToMoveKey();
+        }
+    }
+    
+    /**
+     * Records the current position (reached by the given move) at the end of the history.
+     * @param record The information needed to take back the move that led here
+     */
+    private void pushHistory(MoveRecord record)
+    {
+        // grow the history if we've run out of space
+        if (historyLength == positionHashes.length)
+        {
+            positionHashes = Arrays.copyOf(positionHashes, historyLength * 2);
+            moveRecords = Arrays.copyOf(moveRecords, historyLength * 2);
+        }
+        
+        moveRecords[historyLength - 1] = record;
+        positionHashes[historyLength++] = getHash();
     }
      
     /**
@@ -109,9 +678,61 @@ public class Board
      */
     private void setValueAt(int x, int y, Piece piece)
     {
+        // keep the hashes and bits up to date by removing the old piece and adding the new one
+        Piece oldPiece = this.boardArray[y][x];
+        if (oldPiece != null)
+        {
+            updateHashes(x, y, oldPiece);
+            updateBits(geometry.getSquare(x, y), oldPiece, false);
+        }
+        if (piece != null)
+        {
+            updateHashes(x, y, piece);
+            updateBits(geometry.getSquare(x, y), piece, true);
+        }
+        
         this.boardArray[y][x] = piece;
     }
     
+    /**
+     * Adds or removes the given piece on the given square to or from the sets of pieces.
+     * @param square The square the piece is on
+     * @param piece The Piece
+     * @param isAdding Whether to add the piece (or remove it)
+     */
+    private void updateBits(int square, Piece piece, boolean isAdding)
+    {
+        long[] colorPieces = piece.isWhite ? whitePieces : blackPieces;
+        if (isAdding)
+        {
+            BoardGeometry.addSquare(colorPieces, square);
+            if (piece.isKing())
+                BoardGeometry.addSquare(kings, square);
+        }
+        else
+        {
+            BoardGeometry.removeSquare(colorPieces, square);
+            BoardGeometry.removeSquare(kings, square);
+        }
+    }
+    
+    /**
+     * Adds or removes (they're the same) the given piece at the given space to or from the hashes of
+     * the position and each of its symmetric equivalents.
+     * @param x The x position of the Piece
+     * @param y The y position of the Piece
+     * @param piece The Piece at this space
+     */
+    private void updateHashes(int x, int y, Piece piece)
+    {
+        for (int i = 0; i < symmetries.length; i++)
+        {
+            Symmetry symmetry = symmetries[i];
+            hashes[symmetry.ordinal()] ^= Zobrist.getPieceKey(symmetry.mapX(x, size), symmetry.mapY(y, size),
+                                                              piece.isWhite != symmetry.swapsColour(), piece.isKing());
+        }
+    }
+    
     /**
      * Sets the space at this number position to the given Piece object.
      * @param position The number position, zero indexed at top left.
@@ -208,36 +829,95 @@ public class Board
     }
     
     /**
-     * Flips the board coordinates so that the other pieces are on top, etc.
-     * @return Returns a new board flipped (doesn't modify this one)
-     * @deprecated // this method doesn't seem to work, and there are easier ways to do this
+     * Transforms this board in place by the given symmetry (for example, COLOUR_FLIP swaps the colours
+     * of all the pieces and rotates the board so the other pieces are on top, and switches whose turn it is).
+     * Pieces keep their kingness, and no new objects are created.
+     * The move history is restarted at the transformed position, because earlier positions (and moves) no longer line up with it.
+     * @param symmetry The symmetry to apply
+     * @throws IllegalArgumentException If the symmetry isn't allowed on this size of board
      */
-    public Board getFlippedBoard()
+    public void transform(Symmetry symmetry)
     {
-        // copy this Board, as the basis for a new, flipped one
-        Board newBoard = new Board(this);
-
-        // switch every piece to the one in the opposite corner
-        for (int y = 0; y < newBoard.size; y++)
+        if (!symmetry.isAllowed(size))
+            throw new IllegalArgumentException(symmetry + " is not allowed on a board of size " + size);
+        
+        // swap every space with the one it's moved to (only once per pair, so we don't swap them back)
+        for (int position = 0; position < size*size; position++)
         {
-            for (int x = 0; x < newBoard.size; x++)
+            int newPosition = symmetry.mapPosition(position, size);
+            if (newPosition > position)
             {
-                // get piece in opposite corner...
-                Piece oldPiece = this.getValueAt(this.size - 1 - x, this.size - 1 - y);
-                
-                if (oldPiece != null)
-                {
-                    // ...and transfer color and position to a new generated piece if it exists
-                    newBoard.setValueAt(x, y, new Piece(x, y, oldPiece.isWhite));
-                }
-                else 
+                int[] coords = getCoordinatesFromPosition(position);
+                int[] newCoords = getCoordinatesFromPosition(newPosition);
+                Piece piece = boardArray[coords[1]][coords[0]];
+                boardArray[coords[1]][coords[0]] = boardArray[newCoords[1]][newCoords[0]];
+                boardArray[newCoords[1]][newCoords[0]] = piece;
+            }
+        }
+        
+        // then tell each piece where it is now, and what colour it has become, and rebuild the sets of pieces
+        Arrays.fill(whitePieces, 0);
+        Arrays.fill(blackPieces, 0);
+        Arrays.fill(kings, 0);
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                Piece piece = boardArray[y][x];
+                if (piece != null)
                 {
-                    // otherwise just add an empty space
-                    newBoard.setValueAt(x, y, null);
+                    piece.moveTo(x, y);
+                    if (symmetry.swapsColour())
+                        piece.isWhite = !piece.isWhite;
+                    updateBits(geometry.getSquare(x, y), piece, true);
                 }
             }
         }
+        if (symmetry.swapsColour())
+            isWhiteTurn = !isWhiteTurn;
         
-        return newBoard;
+        // the hash of the new position transformed by another symmetry is the old one transformed by both of them,
+        // so just swap the hashes around in pairs
+        for (int i = 0; i < symmetries.length; i++)
+        {
+            int other = symmetries[i].combine(symmetry).ordinal();
+            if (other > symmetries[i].ordinal())
+            {
+                long hash = hashes[symmetries[i].ordinal()];
+                hashes[symmetries[i].ordinal()] = hashes[other];
+                hashes[other] = hash;
+            }
+        }
+        
+        // finally, restart the history from here
+        for (int i = 0; i < historyLength - 1; i++)
+        {
+            moveRecords[i] = null;
+        }
+        historyLength = 0;
+        historyStart = 0;
+        positionHashes[historyLength++] = getHash();
+    }
+    
+    /**
+     * Stores what's needed to take back a single applied move.
+     */
+    private static class MoveRecord
+    {
+        Piece piece;
+        int startX, startY;
+        boolean wasKing;
+        Piece[] jumpedPieces;
+        int previousNoProgressPlies;
+        
+        MoveRecord(Piece piece, int startX, int startY, boolean wasKing, Piece[] jumpedPieces, int previousNoProgressPlies)
+        {
+            this.piece = piece;
+            this.startX = startX;
+            this.startY = startY;
+            this.wasKing = wasKing;
+            this.jumpedPieces = jumpedPieces;
+            this.previousNoProgressPlies = previousNoProgressPlies;
+        }
     }
 }
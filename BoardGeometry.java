@@ -0,0 +1,330 @@
+/**
+ * Tables describing the spaces of a board of a certain size, built once per size so that moving
+ * around the board is a matter of looking things up instead of coordinate arithmetic and edge checks.
+ * 
+ * Only the dark spaces (see Board.isCheckerboardSpace) can hold pieces, so only they are numbered
+ * (as "squares", from 0 at the top left, row by row). Sets of squares are stored as the bits of an
+ * array of longs, using as many longs as the size of the board needs.
+ * 
+ * For flying kings (see Variant.hasFlyingKings), every square also has a "ray" in each direction: the squares along
+ * that diagonal out to the edge, nearest first, along with the same squares as a set. Because squares are numbered row by row,
+ * going down the board always goes to higher numbered squares (and up the board to lower ones), so the nearest piece
+ * along a ray is just the lowest (or highest) bit of the pieces in the ray's set, however far away it is.
+ * 
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class BoardGeometry
+{
+    // the four diagonal directions
+    public static final int UP_LEFT = 0;
+    public static final int UP_RIGHT = 1;
+    public static final int DOWN_LEFT = 2;
+    public static final int DOWN_RIGHT = 3;
+    public static final int DIRECTIONS = 4;
+    private static final int[] DIRECTION_X = {-1, 1, -1, 1};
+    private static final int[] DIRECTION_Y = {-1, -1, 1, 1};
+    
+    // the geometry of each size of board, built when first needed
+    private static final BoardGeometry[] geometries = new BoardGeometry[Zobrist.MAX_SIZE + 1];
+    
+    private final int size;
+    private final int squareCount;
+    private final int wordCount;
+    
+    // the coordinates of each square, and the square at each single position value (-1 for light spaces)
+    private final int[] squareX;
+    private final int[] squareY;
+    private final int[] squareAtPosition;
+    
+    // the square next to each square in each direction, and the square landed on when jumping over it (-1 if off the board)
+    private final int[][] neighbours;
+    private final int[][] jumpLandings;
+    
+    // the squares along the diagonal from each square in each direction (nearest first), and the same squares as sets
+    private final int[][][] rays;
+    private final long[][][] rayMasks;
+    
+    // the squares where white and black men are crowned
+    private final long[] whitePromotionSquares;
+    private final long[] blackPromotionSquares;
+    
+    /**
+     * @return Returns the geometry of a board of the given size (building it the first time).
+     * @param size The length of each side of the board
+     */
+    public static synchronized BoardGeometry forSize(int size)
+    {
+        if (size < 1 || size > Zobrist.MAX_SIZE)
+            throw new IllegalArgumentException("Boards can't be of size " + size);
+        
+        if (geometries[size] == null)
+            geometries[size] = new BoardGeometry(size);
+        return geometries[size];
+    }
+    
+    /**
+     * Builds all of the tables for a board of the given size.
+     * @param size The length of each side of the board
+     */
+    private BoardGeometry(int size)
+    {
+        this.size = size;
+        
+        // number the dark spaces
+        squareAtPosition = new int[size*size];
+        int count = 0;
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                squareAtPosition[y*size + x] = (x % 2 == y % 2) ? count++ : -1;
+            }
+        }
+        squareCount = count;
+        wordCount = (squareCount + 63) / 64;
+        
+        squareX = new int[squareCount];
+        squareY = new int[squareCount];
+        whitePromotionSquares = new long[wordCount];
+        blackPromotionSquares = new long[wordCount];
+        for (int position = 0; position < size*size; position++)
+        {
+            int square = squareAtPosition[position];
+            if (square >= 0)
+            {
+                squareX[square] = position % size;
+                squareY[square] = position / size;
+                
+                // white is crowned at the bottom, black at the top
+                if (squareY[square] == size - 1)
+                    addSquare(whitePromotionSquares, square);
+                if (squareY[square] == 0)
+                    addSquare(blackPromotionSquares, square);
+            }
+        }
+        
+        // then find the neighbours of every square, one and two spaces away in each direction
+        neighbours = new int[DIRECTIONS][squareCount];
+        jumpLandings = new int[DIRECTIONS][squareCount];
+        for (int direction = 0; direction < DIRECTIONS; direction++)
+        {
+            for (int square = 0; square < squareCount; square++)
+            {
+                neighbours[direction][square] = getSquareOrNone(squareX[square] + DIRECTION_X[direction],
+                                                                squareY[square] + DIRECTION_Y[direction]);
+                jumpLandings[direction][square] = getSquareOrNone(squareX[square] + 2*DIRECTION_X[direction],
+                                                                  squareY[square] + 2*DIRECTION_Y[direction]);
+            }
+        }
+        
+        // and the whole diagonals, by following the neighbours out to the edge
+        rays = new int[DIRECTIONS][squareCount][];
+        rayMasks = new long[DIRECTIONS][squareCount][wordCount];
+        for (int direction = 0; direction < DIRECTIONS; direction++)
+        {
+            for (int square = 0; square < squareCount; square++)
+            {
+                int length = 0;
+                for (int next = neighbours[direction][square]; next >= 0; next = neighbours[direction][next])
+                {
+                    length++;
+                }
+                rays[direction][square] = new int[length];
+                int next = neighbours[direction][square];
+                for (int i = 0; i < length; i++, next = neighbours[direction][next])
+                {
+                    rays[direction][square][i] = next;
+                    addSquare(rayMasks[direction][square], next);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return Returns the square at the given coordinates, or -1 if they're off the board (only used while building).
+     */
+    private int getSquareOrNone(int x, int y)
+    {
+        if (x < 0 || x >= size || y < 0 || y >= size)
+            return -1;
+        return squareAtPosition[y*size + x];
+    }
+    
+    /**
+     * @return Returns the length of each side of the board.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * @return Returns the number of (dark) squares on the board.
+     */
+    public int getSquareCount()
+    {
+        return squareCount;
+    }
+    
+    /**
+     * @return Returns the number of longs needed to hold a set of squares.
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+    
+    /**
+     * @return Returns the square at the given coordinates, or -1 if it's a light space. (doesn't check the edges)
+     * @param x The x coordinate
+     * @param y The y coordinate
+     */
+    public int getSquare(int x, int y)
+    {
+        return squareAtPosition[y*size + x];
+    }
+    
+    /**
+     * @return Returns the x coordinate of the given square.
+     * @param square The square
+     */
+    public int getX(int square)
+    {
+        return squareX[square];
+    }
+    
+    /**
+     * @return Returns the y coordinate of the given square.
+     * @param square The square
+     */
+    public int getY(int square)
+    {
+        return squareY[square];
+    }
+    
+    /**
+     * @return Returns the square next to the given one in the given direction, or -1 if that's off the board.
+     * @param square The square to start from
+     * @param direction The direction to look in (UP_LEFT, UP_RIGHT, DOWN_LEFT or DOWN_RIGHT)
+     */
+    public int getNeighbour(int square, int direction)
+    {
+        return neighbours[direction][square];
+    }
+    
+    /**
+     * @return Returns the square landed on when jumping from the given one in the given direction
+     * (over its neighbour), or -1 if that's off the board.
+     * @param square The square to start from
+     * @param direction The direction to jump in
+     */
+    public int getJumpLanding(int square, int direction)
+    {
+        return jumpLandings[direction][square];
+    }
+    
+    /**
+     * @return Returns the squares along the diagonal from the given square in the given direction, out to the edge
+     * (nearest first, not including the square itself). The array is shared, so shouldn't be changed.
+     * @param square The square to start from
+     * @param direction The direction to look in
+     */
+    public int[] getRay(int square, int direction)
+    {
+        return rays[direction][square];
+    }
+    
+    /**
+     * @return Returns the nearest square along the diagonal from the given square in the given direction that is in
+     * either of the given sets, or -1 if none of them are (without going through the squares one by one).
+     * @param square The square to start from
+     * @param direction The direction to look in
+     * @param set One set of squares (like the white pieces)
+     * @param otherSet Another set of squares (like the black pieces)
+     */
+    public int getFirstInRay(int square, int direction, long[] set, long[] otherSet)
+    {
+        long[] mask = rayMasks[direction][square];
+        if (DIRECTION_Y[direction] > 0)
+        {
+            // going down the board, so the nearest is the lowest numbered
+            for (int word = 0; word < wordCount; word++)
+            {
+                long bits = (set[word] | otherSet[word]) & mask[word];
+                if (bits != 0)
+                    return word*64 + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        else
+        {
+            // going up the board, so the nearest is the highest numbered
+            for (int word = wordCount - 1; word >= 0; word--)
+            {
+                long bits = (set[word] | otherSet[word]) & mask[word];
+                if (bits != 0)
+                    return word*64 + 63 - Long.numberOfLeadingZeros(bits);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return Returns the number of steps along a diagonal between two squares on it.
+     * @param square One square
+     * @param other The other square
+     */
+    public int getDistance(int square, int other)
+    {
+        return Math.abs(squareY[square] - squareY[other]);
+    }
+    
+    /**
+     * @return Returns true if a man of the given color is crowned on the given square.
+     * @param square The square
+     * @param isWhite The color of the man
+     */
+    public boolean isPromotionSquare(int square, boolean isWhite)
+    {
+        return containsSquare(isWhite ? whitePromotionSquares : blackPromotionSquares, square);
+    }
+    
+    /**
+     * @return Returns the y direction (1 is down the board, -1 up it) of the given direction.
+     * @param direction The direction
+     */
+    public static int getDirectionY(int direction)
+    {
+        return DIRECTION_Y[direction];
+    }
+    
+    /**
+     * @return Returns true if the given set contains the given square.
+     * @param set The set of squares
+     * @param square The square
+     */
+    public static boolean containsSquare(long[] set, int square)
+    {
+        return (set[square >>> 6] & (1L << square)) != 0;
+    }
+    
+    /**
+     * Adds the given square to the given set.
+     * @param set The set of squares
+     * @param square The square
+     */
+    public static void addSquare(long[] set, int square)
+    {
+        set[square >>> 6] |= 1L << square;
+    }
+    
+    /**
+     * Removes the given square from the given set.
+     * @param set The set of squares
+     * @param square The square
+     */
+    public static void removeSquare(long[] set, int square)
+    {
+        set[square >>> 6] &= ~(1L << square);
+    }
+}
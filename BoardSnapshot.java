@@ -0,0 +1,331 @@
+import java.util.Arrays;
+/**
+ * An unchangeable record of a position, as the sets of squares holding white pieces, black pieces and kings
+ * (a few longs, see BoardGeometry), along with whose turn it is and the position's hash.
+ *
+ * Each snapshot points back to the one before it and the move that led from there, so a chain of them is a game's
+ * whole history: playing a move makes a new snapshot without changing this one (sharing any sets the move didn't change),
+ * taking a move back is just going back to the snapshot before, and any number of different moves can be played
+ * from the same snapshot to branch off in different directions. Snapshots can be shared freely between threads.
+ *
+ * To search or get the legal moves of a position, turn its snapshot into a Board (see toBoard).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class BoardSnapshot
+{
+    // rough sizes of a snapshot's own fields and of each set of squares, in bytes (see getMemoryBytes)
+    private static final int SNAPSHOT_BYTES = 64;
+    private static final int SET_BYTES = 16;
+
+    private final Variant variant;
+    private final BoardGeometry geometry;
+    private final long[] whitePieces;
+    private final long[] blackPieces;
+    private final long[] kings;
+    private final boolean isWhiteTurn;
+    private final int noProgressPlies;
+    private final long hash;
+
+    // the snapshot before this one and the move that led here (both null for the first snapshot of a chain),
+    // and the number of snapshots before this one
+    private final BoardSnapshot parent;
+    private final Move move;
+    private final int ply;
+
+    // for the first snapshot of a chain, the hashes of the positions before it that can still come up again (oldest first)
+    private final long[] earlierHashes;
+
+    /**
+     * Takes a snapshot of the current position of a board, starting a new chain.
+     * The positions before it that can still be repeated are remembered (by hash), but not the moves that led to them.
+     * @param board The board
+     */
+    public BoardSnapshot(Board board)
+    {
+        this.variant = board.getVariant();
+        this.geometry = board.getGeometry();
+        int wordCount = geometry.getWordCount();
+        this.whitePieces = new long[wordCount];
+        this.blackPieces = new long[wordCount];
+        this.kings = new long[wordCount];
+        for (int word = 0; word < wordCount; word++)
+        {
+            whitePieces[word] = board.getPieceBits(true, word);
+            blackPieces[word] = board.getPieceBits(false, word);
+            kings[word] = board.getKingBits(word);
+        }
+        this.isWhiteTurn = board.isWhiteTurn;
+        this.noProgressPlies = board.getNoProgressPlies();
+        this.hash = board.getHash();
+        this.parent = null;
+        this.move = null;
+        this.ply = 0;
+        this.earlierHashes = board.getHistorySinceProgress();
+    }
+
+    /**
+     * Constructor for a snapshot reached by playing a move from another.
+     */
+    private BoardSnapshot(BoardSnapshot parent, Move move, long[] whitePieces, long[] blackPieces, long[] kings,
+                          int noProgressPlies, long hash)
+    {
+        this.variant = parent.variant;
+        this.geometry = parent.geometry;
+        this.whitePieces = whitePieces;
+        this.blackPieces = blackPieces;
+        this.kings = kings;
+        this.isWhiteTurn = !parent.isWhiteTurn;
+        this.noProgressPlies = noProgressPlies;
+        this.hash = hash;
+        this.parent = parent;
+        this.move = move;
+        this.ply = parent.ply + 1;
+        this.earlierHashes = null;
+    }
+
+    /**
+     * Plays a move, leaving this snapshot as it is.
+     * @param move The move, which should be one of the legal moves of this position (see Board.getLegalMoves)
+     * @return Returns the snapshot of the position after the move
+     * @throws IllegalArgumentException If the move doesn't start from a piece of the player to move, jumps something
+     * other than an opponent's piece, or ends on an occupied square
+     */
+    public BoardSnapshot play(Move move)
+    {
+        long[] ownPieces = (isWhiteTurn ? whitePieces : blackPieces).clone();
+        long[] otherPieces = isWhiteTurn ? blackPieces : whitePieces;
+        long[] newKings = kings;
+        long newHash = hash ^ Zobrist.getWhiteToMoveKey();
+
+        // pick up the piece
+        int[] origin = move.getOriginPosition();
+        int from = geometry.getSquare(origin[0], origin[1]);
+        if (from < 0 || !BoardGeometry.containsSquare(ownPieces, from))
+            throw new IllegalArgumentException("There's no piece to move at the start of " + move);
+        boolean wasKing = BoardGeometry.containsSquare(kings, from);
+        BoardGeometry.removeSquare(ownPieces, from);
+        newHash ^= Zobrist.getPieceKey(origin[0], origin[1], isWhiteTurn, wasKing);
+
+        // take off everything it jumped (only copying the opponent's pieces and the kings if something was)
+        boolean isCapture = false;
+        for (Move part = move; part != null; part = part.getPrecedingMove())
+        {
+            if (!part.isJump)
+                continue;
+            
+            // (the jumped piece is the opponent's piece on the way, which is right in the middle unless a flying king jumped it)
+            int jumpedX = part.x1;
+            int jumpedY = part.y1;
+            int jumped;
+            int stepX = Integer.signum(part.x2 - part.x1);
+            int stepY = Integer.signum(part.y2 - part.y1);
+            do
+            {
+                jumpedX += stepX;
+                jumpedY += stepY;
+                jumped = geometry.getSquare(jumpedX, jumpedY);
+            }
+            while (jumpedX != part.x2 && (jumped < 0 || !BoardGeometry.containsSquare(otherPieces, jumped)));
+            if (!isCapture)
+            {
+                otherPieces = otherPieces.clone();
+                newKings = newKings.clone();
+                isCapture = true;
+            }
+            if (jumpedX == part.x2 || jumped < 0 || !BoardGeometry.containsSquare(otherPieces, jumped))
+                throw new IllegalArgumentException(move + " doesn't jump an opponent's piece at each jump");
+            newHash ^= Zobrist.getPieceKey(jumpedX, jumpedY, !isWhiteTurn, BoardGeometry.containsSquare(newKings, jumped));
+            BoardGeometry.removeSquare(otherPieces, jumped);
+            BoardGeometry.removeSquare(newKings, jumped);
+        }
+
+        // and put it down where it ends, crowning it if it got to the far side
+        int[] ending = move.getEndingPosition();
+        int to = geometry.getSquare(ending[0], ending[1]);
+        if (to < 0 || BoardGeometry.containsSquare(ownPieces, to) || BoardGeometry.containsSquare(otherPieces, to))
+            throw new IllegalArgumentException(move + " doesn't end on an empty square");
+        boolean isKing = wasKing || geometry.isPromotionSquare(to, isWhiteTurn);
+        BoardGeometry.addSquare(ownPieces, to);
+        if (wasKing || isKing)
+        {
+            if (newKings == kings)
+                newKings = newKings.clone();
+            BoardGeometry.removeSquare(newKings, from);
+            if (isKing)
+                BoardGeometry.addSquare(newKings, to);
+        }
+        newHash ^= Zobrist.getPieceKey(ending[0], ending[1], isWhiteTurn, isKing);
+
+        // captures and moves of men can never be undone, so they restart the no-progress count
+        int newNoProgressPlies = isCapture || !wasKing ? 0 : noProgressPlies + 1;
+        return isWhiteTurn ?
+            new BoardSnapshot(this, move, ownPieces, otherPieces, newKings, newNoProgressPlies, newHash) :
+            new BoardSnapshot(this, move, otherPieces, ownPieces, newKings, newNoProgressPlies, newHash);
+    }
+
+    /**
+     * Makes a board at this position, to search or get the legal moves of.
+     * The positions before this one still count towards repetitions on the board, but can't be taken back to.
+     * @return Returns the new board
+     */
+    public Board toBoard()
+    {
+        return new Board(this);
+    }
+
+    /**
+     * @return Returns the snapshot before this one (taking back the move that led here), or null if this is the first one.
+     */
+    public BoardSnapshot getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * @return Returns the move that led to this position from the one before, or null if this is the first snapshot.
+     */
+    public Move getMove()
+    {
+        return move;
+    }
+
+    /**
+     * @return Returns roughly how much memory this snapshot and every one before it take, in bytes
+     * (counting all three sets of squares for each, though a move usually shares some with the snapshot before).
+     */
+    public long getMemoryBytes()
+    {
+        return (ply + 1L) * (SNAPSHOT_BYTES + 3 * (SET_BYTES + geometry.getWordCount() * Long.BYTES));
+    }
+
+    /**
+     * @return Returns the number of moves played since the first snapshot of the chain.
+     */
+    public int getPly()
+    {
+        return ply;
+    }
+
+    /**
+     * @return Returns the moves played since the first snapshot of the chain, in the order they were played.
+     */
+    public Move[] getMoves()
+    {
+        Move[] moves = new Move[ply];
+        for (BoardSnapshot snapshot = this; snapshot.parent != null; snapshot = snapshot.parent)
+        {
+            moves[snapshot.ply - 1] = snapshot.move;
+        }
+        return moves;
+    }
+
+    /**
+     * @return Returns the hashes of the positions since the last capture or man move (the only ones that can come up again),
+     * oldest first, not including this one.
+     */
+    public long[] getHistorySinceProgress()
+    {
+        // walk back through the chain as far as it goes, then on into the positions from before it
+        long[] history = new long[noProgressPlies];
+        int count = 0;
+        BoardSnapshot snapshot = this;
+        while (count < history.length && snapshot.parent != null)
+        {
+            snapshot = snapshot.parent;
+            history[history.length - 1 - count++] = snapshot.hash;
+        }
+        if (snapshot.parent == null)
+        {
+            int earlier = Math.min(history.length - count, snapshot.earlierHashes.length);
+            System.arraycopy(snapshot.earlierHashes, snapshot.earlierHashes.length - earlier,
+                             history, history.length - count - earlier, earlier);
+            count += earlier;
+        }
+        return Arrays.copyOfRange(history, history.length - count, history.length);
+    }
+
+    /**
+     * @return Returns the variant being played.
+     */
+    public Variant getVariant()
+    {
+        return variant;
+    }
+
+    /**
+     * @return Returns true if it is white's turn to move.
+     */
+    public boolean isWhiteTurn()
+    {
+        return isWhiteTurn;
+    }
+
+    /**
+     * @return Returns the number of plies since the last capture or move of a man.
+     */
+    public int getNoProgressPlies()
+    {
+        return noProgressPlies;
+    }
+
+    /**
+     * @return Returns the hash of the position (the same as Board.getHash for a board at this position).
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return Returns one word of the set of squares holding pieces of the given color (see BoardGeometry).
+     * @param isWhite The color of the pieces
+     * @param word Which word of the set (0 to geometry.getWordCount() - 1)
+     */
+    public long getPieceBits(boolean isWhite, int word)
+    {
+        return isWhite ? whitePieces[word] : blackPieces[word];
+    }
+
+    /**
+     * @return Returns one word of the set of squares holding kings of either color (see BoardGeometry).
+     * @param word Which word of the set (0 to geometry.getWordCount() - 1)
+     */
+    public long getKingBits(int word)
+    {
+        return kings[word];
+    }
+
+    /**
+     * @return Returns true if this position has occured Board.REPETITIONS_FOR_DRAW times.
+     */
+    public boolean isRepetitionDraw()
+    {
+        // only look at positions with the same player to move (every other one)
+        long[] history = getHistorySinceProgress();
+        int repetitions = 1;
+        for (int i = history.length - 2; i >= 0; i -= 2)
+        {
+            if (history[i] == hash && ++repetitions >= Board.REPETITIONS_FOR_DRAW)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns true if there have been Board.NO_PROGRESS_PLIES_FOR_DRAW plies without a capture or man move.
+     */
+    public boolean isNoProgressDraw()
+    {
+        return noProgressPlies >= Board.NO_PROGRESS_PLIES_FOR_DRAW;
+    }
+
+    /**
+     * @return Returns true if this position is a draw by repetition or by lack of progress.
+     */
+    public boolean isDraw()
+    {
+        return isNoProgressDraw() || isRepetitionDraw();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * How hard a computer opponent plays. Each level is an AIPlayer with a budget of positions to search per move
+ * (and a depth it never goes past), so even the easiest level searches properly, just not far, and each
+ * level's moves cost about the same whatever the position.
+ *
+ * Each level also has a weight: its share of the processors when games are played through a SearchScheduler,
+ * against the other games thinking at the same time (so harder levels get more, but can't starve the others).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public enum Difficulty
+{
+    EASY(4, 2000, 1),
+    MEDIUM(8, 20000, 2),
+    HARD(16, 200000, 4),
+    EXPERT(32, 2000000, 8);
+
+    private final int maxDepth;
+    private final long nodeBudget;
+    private final int weight;
+
+    /**
+     * Constructor for the difficulty levels
+     * @param maxDepth The deepest the player searches
+     * @param nodeBudget The most positions the player searches for each move
+     * @param weight The level's share of the processors, next to the other levels
+     */
+    Difficulty(int maxDepth, long nodeBudget, int weight)
+    {
+        this.maxDepth = maxDepth;
+        this.nodeBudget = nodeBudget;
+        this.weight = weight;
+    }
+
+    /**
+     * @return Returns the deepest a player of this level searches.
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * @return Returns the most positions a player of this level searches for each move.
+     */
+    public long getNodeBudget()
+    {
+        return nodeBudget;
+    }
+
+    /**
+     * @return Returns the level's share of the processors, next to the other levels.
+     */
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Makes a computer player that plays at this level.
+     * @param isWhite Whether it plays white
+     * @return Returns the player
+     */
+    public AIPlayer createPlayer(boolean isWhite)
+    {
+        AIPlayer player = new AIPlayer(isWhite, maxDepth);
+        player.setNodeLimit(nodeBudget);
+        return player;
+    }
+}
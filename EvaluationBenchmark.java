@@ -0,0 +1,108 @@
+import java.util.Random;
+/**
+ * Times scoring a batch of positions with the scalar BatchEvaluator against the fastest one available
+ * (see BatchEvaluator.create), after checking that both give the same scores as Evaluator.evaluate.
+ *
+ * Run with: java --add-modules jdk.incubator.vector EvaluationBenchmark [variant] [batch size] [rounds]
+ * (without the module, the "fastest" evaluator is just the scalar one again, so both times will match).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class EvaluationBenchmark
+{
+    // benchmark constants
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int DEFAULT_ROUNDS = 2000;
+    private static final int MAX_RANDOM_PLIES = 60;
+    private static final long WARM_UP_MILLIS = 2000;
+    private static final long SEED = 42;
+
+    public static void main(String[] args)
+    {
+        Variant variant = args.length > 0 ? Variant.valueOf(args[0].toUpperCase()) : Variant.ENGLISH;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BATCH_SIZE;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+        // fill the batch with positions from random games (the same ones every run)
+        Random random = new Random(SEED);
+        PositionBatch batch = new PositionBatch(BoardGeometry.forSize(variant.getSize()), batchSize);
+        int[] expected = new int[batchSize];
+        while (!batch.isFull())
+        {
+            Board board = new Board(variant);
+            int plies = random.nextInt(MAX_RANDOM_PLIES);
+            for (int ply = 0; ply < plies; ply++)
+            {
+                Move[] moves = board.getLegalMoves();
+                if (moves.length == 0)
+                    break;
+                board.applyMoveToBoard(moves[random.nextInt(moves.length)]);
+            }
+            expected[batch.add(board)] = Evaluator.evaluate(board);
+        }
+
+        BatchEvaluator scalar = new BatchEvaluator();
+        BatchEvaluator fastest = BatchEvaluator.create();
+        check(scalar, batch, expected);
+        check(fastest, batch, expected);
+
+        System.out.println(variant + ", " + batchSize + " positions a batch, " + rounds + " rounds");
+        double scalarTime = time(scalar, batch, rounds);
+        double fastestTime = time(fastest, batch, rounds);
+        System.out.printf("%-20s %8.2f ns/position%n", scalar.getName(), scalarTime);
+        System.out.printf("%-20s %8.2f ns/position%n", fastest.getName(), fastestTime);
+        System.out.printf("speedup: %.2fx%n", scalarTime / fastestTime);
+    }
+
+    /**
+     * Makes sure the given evaluator scores every position in the batch as expected.
+     * @param evaluator The evaluator to check
+     * @param batch The positions
+     * @param expected The score of each position from Evaluator.evaluate
+     */
+    private static void check(BatchEvaluator evaluator, PositionBatch batch, int[] expected)
+    {
+        int[] scores = new int[batch.size()];
+        evaluator.evaluate(batch, scores);
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (scores[i] != expected[i])
+                throw new IllegalStateException(evaluator.getName() + " scored position " + i + " as " +
+                                                scores[i] + " instead of " + expected[i]);
+        }
+    }
+
+    /**
+     * Times the given evaluator, after running it for a while first so the JIT compiler has finished with it
+     * (vector code is very slow until it's compiled).
+     * @param evaluator The evaluator to time
+     * @param batch The positions to score
+     * @param rounds The number of times to score the whole batch
+     * @return Returns the average time taken per position, in nanoseconds
+     */
+    private static double time(BatchEvaluator evaluator, PositionBatch batch, int rounds)
+    {
+        int[] scores = new int[batch.size()];
+        long checksum = 0;
+        long warmUpEnd = System.nanoTime() + WARM_UP_MILLIS * 1000000;
+        for (int round = 0; round < rounds || System.nanoTime() < warmUpEnd; round++)
+        {
+            evaluator.evaluate(batch, scores);
+            checksum += scores[round % scores.length];
+        }
+
+        long startTime = System.nanoTime();
+        for (int round = 0; round < rounds; round++)
+        {
+            evaluator.evaluate(batch, scores);
+            checksum += scores[round % scores.length];
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        // (use the scores, so the JIT compiler can't skip working them out)
+        if (checksum == Long.MIN_VALUE)
+            System.out.println(checksum);
+        return elapsed / (double)rounds / batch.size();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Scores positions for the computer players, by material and how far the men have advanced.
+ * The weights are kept here so every way of scoring a position (one at a time here, or many at once
+ * with a BatchEvaluator) gives exactly the same scores.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class Evaluator
+{
+    // evaluation weights (a man is also worth a little more for every row it has advanced)
+    public static final int MAN_VALUE = 100;
+    public static final int KING_VALUE = 150;
+    public static final int ADVANCEMENT_VALUE = 2;
+
+    /**
+     * Scores a position by material and how far the men have advanced.
+     * @param board The board to evaluate
+     * @return Returns the score from the point of view of the player to move
+     */
+    public static int evaluate(Board board)
+    {
+        BoardGeometry geometry = board.getGeometry();
+        int score = 0;
+        for (int word = 0; word < geometry.getWordCount(); word++)
+        {
+            long kings = board.getKingBits(word);
+
+            // add up the value of each color's pieces (just going over their bits)
+            for (int color = 0; color < 2; color++)
+            {
+                boolean isWhite = color == 0;
+                int value = 0;
+                for (long bits = board.getPieceBits(isWhite, word); bits != 0; bits &= bits - 1)
+                {
+                    int square = word*64 + Long.numberOfTrailingZeros(bits);
+                    if ((kings & (1L << square)) != 0)
+                        value += KING_VALUE;
+                    else // white advances down the board (+y), black up it
+                    {
+                        int y = geometry.getY(square);
+                        value += MAN_VALUE + ADVANCEMENT_VALUE * getAdvancement(y, isWhite, board.size);
+                    }
+                }
+                score += isWhite == board.isWhiteTurn ? value : -value;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return Returns the number of rows a man of the given color on the given row has advanced.
+     * @param y The row of the man
+     * @param isWhite The color of the man
+     * @param size The size of the board
+     */
+    public static int getAdvancement(int y, boolean isWhite, int size)
+    {
+        return isWhite ? y : size - 1 - y;
+    }
+}
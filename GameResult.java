@@ -0,0 +1,126 @@
+/**
+ * How a game played by GameRunner ended: who won (if anyone), why, the final board, and every position
+ * of the game (as a chain of BoardSnapshots, which can be gone back through to review or branch off from it).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class GameResult
+{
+    /**
+     * Who won the game (abandoned games have no result).
+     */
+    public enum Outcome
+    {
+        WHITE_WINS, BLACK_WINS, DRAW, ABANDONED
+    }
+
+    /**
+     * Why the game ended (the last three are for games called early by an Adjudicator).
+     */
+    public enum Reason
+    {
+        NO_MOVES, REPETITION, NO_PROGRESS, TIMEOUT, ILLEGAL_MOVE, QUIT, AGREED_WIN, AGREED_DRAW, PROVEN
+    }
+
+    private final Outcome outcome;
+    private final Reason reason;
+    private final Board board;
+    private final BoardSnapshot position;
+
+    /**
+     * Constructor for the GameResult
+     * @param outcome Who won
+     * @param reason Why the game ended
+     * @param board The board at the end of the game
+     * @param position The snapshot of the final position, leading back through the game to where it started
+     */
+    public GameResult(Outcome outcome, Reason reason, Board board, BoardSnapshot position)
+    {
+        this.outcome = outcome;
+        this.reason = reason;
+        this.board = board;
+        this.position = position;
+    }
+
+    /**
+     * @return Returns who won the game.
+     */
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+    /**
+     * @return Returns why the game ended.
+     */
+    public Reason getReason()
+    {
+        return reason;
+    }
+
+    /**
+     * @return Returns the board at the end of the game.
+     */
+    public Board getBoard()
+    {
+        return board;
+    }
+
+    /**
+     * @return Returns the snapshot of the final position (see BoardSnapshot.getParent to go back through the game).
+     */
+    public BoardSnapshot getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * @return Returns the number of moves played in the game (by either side).
+     */
+    public int getPlies()
+    {
+        return position.getPly();
+    }
+
+    /**
+     * @return Returns a sentence announcing the result to the players.
+     */
+    public String toString()
+    {
+        // the player to move at the end is the one the game ended on
+        String mover = board.isWhiteTurn ? "White" : "Black";
+        String other = board.isWhiteTurn ? "Black" : "White";
+        switch (reason)
+        {
+            case REPETITION:
+                return "The game was drawn by repetition...";
+            case NO_PROGRESS:
+                return "The game was drawn, with no captures or men moved in " +
+                       Board.NO_PROGRESS_PLIES_FOR_DRAW/2 + " moves...";
+            case TIMEOUT:
+                return mover + " ran out of time, so " + other + " wins.";
+            case ILLEGAL_MOVE:
+                return mover + " tried to make an illegal move, so " + other + " wins.";
+            case QUIT:
+                return mover + " left the game.";
+            case AGREED_WIN:
+                return "Both players agree " + getWinner() + " is winning by far, so " + getWinner() + " wins.";
+            case AGREED_DRAW:
+                return "The game was drawn, with both players seeing it as even for a long while and nothing captured...";
+            case PROVEN:
+                return outcome == Outcome.DRAW ? "The game was drawn, as the position was proven to be a draw..." :
+                       "The position was proven to be a win for " + getWinner() + ", so " + getWinner() + " wins.";
+            default:
+                return "Congratulations, " + other + ", you have won the game gloriously!";
+        }
+    }
+
+    /**
+     * @return Returns the name of the side that won (for games someone won).
+     */
+    private String getWinner()
+    {
+        return outcome == Outcome.WHITE_WINS ? "White" : "Black";
+    }
+}
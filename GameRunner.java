@@ -1,26 +1,66 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Responsible for determining the gamemode (1- or 2-player), running the game, and handling game exit.
+ *
+ * Games are played without a thread waiting on each one: a move is asked for (see Player.requestMove), and
+ * only once it arrives is it checked, applied, and the next move asked for, on one of a small pool of "carrier" threads.
+ * That way a few threads can look after any number of games, human and computer players alike.
+ *
+ * Run with no arguments for a game at the console, or with: java GameRunner [games] [depth] [move time limit in ms] [spectator port]
+ * to play that many computer-vs-computer games at once (from different random openings), all on the carrier threads
+ * (and, given a port, let spectators watch them live; see SpectatorFeed). Those games are called early once their
+ * result is clear (see Adjudicator, which is set up with system properties like -Dcheckers.adjudication=off).
+ * The computer warms up in the background while a console game is being set up, and before batch games
+ * if -Dcheckers.warmup=on is given (see WarmUp).
  * 
  * @author Mckenna Cisler 
- * @version 11.23.2015
+ * @version 10.19.2026
  */
 public class GameRunner
 {
     // game constants
-    public static final int SIZE = 9;
+    public static final Variant VARIANT = Variant.ENGLISH;
+
+    // the system property naming a file for the computer to remember its searches in between games (optional)
+    public static final String TABLE_FILE_PROPERTY = "checkers.table";
+    public static final int TABLE_FILE_ENTRIES = 1 << 22;
+
+    // for playing many computer-vs-computer games at once: the number of random moves starting each game,
+    // and the most games going at a time (each computer player has its own table, so they can't all start at once)
+    private static final int OPENING_PLIES = 6;
+    private static final int MAX_GAMES_IN_FLIGHT = 32;
 
     // define globally used variables
     private static Scanner input = new Scanner(System.in);
-    private static boolean isPlayer1 = true;
     
-    // define an easily accesible "end" variable
-    private static boolean endGameNow = false;
+    // define an easily accesible "end" variable (volatile, as the threads playing games check it)
+    private static volatile boolean endGameNow = false;
     
-    public static void main(String[] args)
+    public static void main(String[] args) throws InterruptedException
     {
+        if (args.length > 0)
+        {
+            playComputerGames(Integer.parseInt(args[0]), args.length > 1 ? Integer.parseInt(args[1]) : AIPlayer.DEFAULT_SEARCH_DEPTH,
+                              args.length > 2 ? Long.parseLong(args[2]) : 0, args.length > 3 ? Integer.parseInt(args[3]) : -1);
+            return;
+        }
+
+        // get the computer warmed up while the players are choosing
+        WarmUp.fromSystemProperties(VARIANT, AIPlayer.DEFAULT_SEARCH_DEPTH, "background");
+
         // generate basic board and setup
-        Board board = new Board(SIZE);
+        Board board = new Board(VARIANT);
 
         // define abstract classes, to be assigned a concrete class after deciding gamemode
         Player player1;
@@ -34,24 +74,208 @@ public class GameRunner
         else 
         {         
             player1 = new HumanPlayer(true);
-            player2 = new AIPlayer(false);
+            Difficulty difficulty = askDifficulty();
+            AIPlayer computer = difficulty != null ? difficulty.createPlayer(false) : new AIPlayer(false);
+            computer.setPersistentTable(openPersistentTable());
+            player2 = computer;
         }
+        if (endGameNow)
+            return;
         clearScreen();
 
-        while ( !endGame(board) )
-        {          
-            if (isPlayer1)
+        // one carrier is plenty for one game (the human is asked on the console's own thread anyway)
+        ExecutorService carriers = createCarriers(1);
+        GameResult result = playGame(board, player1, player2, carriers, 0).join();
+        if (result.getReason() != GameResult.Reason.QUIT)
+            System.out.println(result);
+    }
+
+    /**
+     * Plays a game without waiting on it: each move is asked for without blocking, then checked against the legal moves
+     * and applied on one of the carrier threads, which then asks for the next. A player whose move takes too long,
+     * or who tries to make an illegal move, loses the game.
+     * Cancelling the returned future stops the game (and tells the player to move to stop thinking).
+     * @param board The board to play on (it is changed as the game goes on, and shouldn't be used by anything else until it's over)
+     * @param white The player playing white
+     * @param black The player playing black
+     * @param carriers The threads to run the game on (and for the players to think on)
+     * @param moveTimeoutMillis The time each move may take, in milliseconds (0 for no limit)
+     * @return Returns the result, completed once the game is over (or exceptionally, if a player fails)
+     */
+    public static CompletableFuture<GameResult> playGame(Board board, Player white, Player black, Executor carriers,
+                                                         long moveTimeoutMillis)
+    {
+        return playGame(board, white, black, carriers, moveTimeoutMillis, null);
+    }
+
+    /**
+     * Plays a game without waiting on it (see above), letting spectators watch it.
+     * @param feed The feed to publish the game's moves on (or null for none)
+     */
+    public static CompletableFuture<GameResult> playGame(Board board, Player white, Player black, Executor carriers,
+                                                         long moveTimeoutMillis, SpectatorFeed feed)
+    {
+        return playGame(board, white, black, carriers, moveTimeoutMillis, feed, null);
+    }
+
+    /**
+     * Plays a game without waiting on it (see above), letting spectators watch it, and calling it early once its result is clear.
+     * @param feed The feed to publish the game's moves on (or null for none)
+     * @param adjudicator The adjudicator to call the game early (or null to always play it out)
+     */
+    public static CompletableFuture<GameResult> playGame(Board board, Player white, Player black, Executor carriers,
+                                                         long moveTimeoutMillis, SpectatorFeed feed, Adjudicator adjudicator)
+    {
+        Game game = new Game(board, white, black, carriers, moveTimeoutMillis, feed, adjudicator);
+        game.result.whenComplete((result, error) -> {
+            game.cancelPendingMove();
+            game.memory.release();
+            if (feed != null)
+                feed.gameEnded(game.gameId, game.position, result);
+            if (game.adjudication != null)
+                game.adjudication.gameEnded(result);
+        });
+        carriers.execute(game::nextMove);
+        return game.result;
+    }
+
+    /**
+     * Plays many computer-vs-computer games at once on a carrier thread for each processor, and reports how they went.
+     * @param games The number of games to play
+     * @param depth The depth the computer players search to
+     * @param moveTimeoutMillis The time each move may take, in milliseconds (0 for no limit)
+     * @param spectatorPort The port to let spectators watch the games on (or -1 for none)
+     */
+    private static void playComputerGames(int games, int depth, long moveTimeoutMillis, int spectatorPort)
+        throws InterruptedException
+    {
+        WarmUp.fromSystemProperties(VARIANT, depth, "off");
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService carriers = createCarriers(threadCount);
+        SpectatorFeed feed = openSpectatorFeed(spectatorPort);
+        Adjudicator adjudicator = Adjudicator.fromSystemProperties();
+        int[] outcomes = new int[GameResult.Outcome.values().length];
+        int[] reasons = new int[GameResult.Reason.values().length];
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(games);
+        long startTime = System.nanoTime();
+
+        // start as many games as can go at once, then another each time one ends
+        Runnable[] startGame = new Runnable[1];
+        startGame[0] = () -> {
+            int id = started.getAndIncrement();
+            if (id >= games)
+                return;
+            Board board = new SelfPlayJob(SelfPlayJob.GAME, id, VARIANT, depth, OPENING_PLIES, id).createStartingBoard();
+            AIPlayer white = new AIPlayer(true, depth);
+            AIPlayer black = new AIPlayer(false, depth);
+            playGame(board, white, black, carriers, moveTimeoutMillis, feed, adjudicator)
+                .whenComplete((result, error) -> {
+                    white.releaseMemory();
+                    black.releaseMemory();
+                    synchronized (outcomes)
+                    {
+                        if (error != null)
+                            System.out.println("Game " + id + " failed: " + error);
+                        else
+                        {
+                            outcomes[result.getOutcome().ordinal()]++;
+                            reasons[result.getReason().ordinal()]++;
+                        }
+                    }
+                    finished.countDown();
+                    startGame[0].run();
+                });
+        };
+        for (int i = 0; i < Math.min(games, MAX_GAMES_IN_FLIGHT); i++)
+        {
+            startGame[0].run();
+        }
+        finished.await();
+        carriers.shutdown();
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Played %d games on %d carrier threads in %.1fs (%.2f games per second)%n",
+                          games, threadCount, seconds, games / seconds);
+        System.out.printf("White won %d, black won %d, %d drawn%n", outcomes[GameResult.Outcome.WHITE_WINS.ordinal()],
+                          outcomes[GameResult.Outcome.BLACK_WINS.ordinal()], outcomes[GameResult.Outcome.DRAW.ordinal()]);
+        for (GameResult.Reason reason : GameResult.Reason.values())
+        {
+            if (reasons[reason.ordinal()] > 0)
+                System.out.println("  " + reason + ": " + reasons[reason.ordinal()]);
+        }
+        if (adjudicator != null)
+            System.out.println(adjudicator.getReport());
+        System.out.println(MemoryGovernor.getGlobal().getReport());
+        if (feed != null)
+        {
+            System.out.printf("Published %d lines to spectators (%d watching at the end, %d dropped for falling behind)%n",
+                              feed.getPublishedCount(), feed.getSpectatorCount(), feed.getDroppedCount());
+            try
             {
-                board = player1.getMove(board);
+                feed.close();
             }
-            else
+            catch (IOException e)
             {
-                board = player2.getMove(board);
+                System.out.println("Couldn't close the spectator feed: " + e);
             }
+        }
+    }
 
-            // switch players and flip board for next player
-            isPlayer1 = !isPlayer1;
-            //board = board.getFlippedBoard();
+    /**
+     * Starts letting spectators watch, if asked to.
+     * @param port The port to listen on (or -1 for no spectators)
+     * @return Returns the feed, or null if there isn't one (or the port couldn't be listened on)
+     */
+    private static SpectatorFeed openSpectatorFeed(int port)
+    {
+        if (port < 0)
+            return null;
+        try
+        {
+            SpectatorFeed feed = new SpectatorFeed(port);
+            System.out.println("Spectators can watch on localhost port " + feed.getPort());
+            return feed;
+        }
+        catch (IOException e)
+        {
+            System.out.println("Couldn't open the spectator feed (playing without it): " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Returns a pool of the given number of carrier threads for playing games on
+     * (daemons, so they never keep the program from exiting).
+     */
+    private static ExecutorService createCarriers(int threadCount)
+    {
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "game-carrier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the file given by the checkers.table system property as a PersistentTable.
+     * @return Returns the table, or null if there's no file given or it can't be opened
+     */
+    private static PersistentTable openPersistentTable()
+    {
+        String file = System.getProperty(TABLE_FILE_PROPERTY);
+        if (file == null)
+            return null;
+
+        try
+        {
+            return new PersistentTable(Paths.get(file), VARIANT, TABLE_FILE_ENTRIES);
+        }
+        catch (IOException e)
+        {
+            // the computer can still play without it
+            System.out.println("Couldn't open " + file + " (" + e.getMessage() + "), playing without it.");
+            return null;
         }
     }
 
@@ -90,51 +314,70 @@ public class GameRunner
     }
 
     /**
-     * Determines whether the game has been completed, or is in a stalemate
-     * @param board The board to check to determine if we're at an endgame point.
+     * Queries the user to determine how hard the computer should play
+     * @return Returns the difficulty chosen, or null for the computer's full strength
      */
-    private static boolean endGame(Board board)
+    private static Difficulty askDifficulty()
     {
-        // have an emergency trigger for endgame
-        if (endGameNow)
-            return true;
-        else
+        Difficulty[] levels = Difficulty.values();
+
+        // keep asking to get a valid response
+        while (!endGameNow)
         {
-            // otherwise search the board for pieces of both colors, and if none of one color are present,
-            // the other player has won.
-            int movableWhiteNum = 0;
-            int movableBlackNum = 0;
-            for (int pos = 0; pos < board.size*board.size; pos++)
+            // display message
+            clearScreen();
+            System.out.println("How hard should the computer play?");
+            for (int i = 0; i < levels.length; i++)
             {
-                // make sure the piece exists, and if so sum movable pieces for each color)
-                Piece pieceHere = board.getValueAt(pos);
-                if (pieceHere != null)
+                System.out.println("[" + (i + 1) + "] " + levels[i]);
+            }
+            System.out.println("[" + (levels.length + 1) + "] As hard as it can (the default)");
+            System.out.println("\nEnter a number: ");
+
+            // ask for String, but only accept a level's number (or nothing, for the default)
+            String response = input.nextLine().trim();
+            if (response.equals("exit"))
+                endGameNow();
+            else if (response.isEmpty() || response.equals(String.valueOf(levels.length + 1)))
+                return null;
+            else
+            {
+                for (int i = 0; i < levels.length; i++)
                 {
-                    // only consider piece if it has possible moves
-                    Move[] movesHere = pieceHere.getAllPossibleMoves(board);
-                    if (movesHere != null && movesHere.length > 0)
-                    {
-                        if (pieceHere.isWhite)
-                            movableWhiteNum++;
-                        else if (!pieceHere.isWhite)
-                            movableBlackNum++;
-                    }
+                    if (response.equals(String.valueOf(i + 1)))
+                        return levels[i];
                 }
             }
-            
-            // determine if anyone won (or if no one had any moves left)
-            if (movableWhiteNum + movableBlackNum == 0)
-                System.out.println("The game was a stalemate...");
-            else if (movableWhiteNum == 0)
-                System.out.println("Congratulations, Black, you have won the game gloriously!");
-            else if (movableBlackNum == 0)
-                System.out.println("Congratulations, White, you have won the game gloriously!");
-            else
-                return false;
-            
-            // we can only make it here if any of the above conditions are hit
-            return true;
         }
+        return null;
+    }
+
+    /**
+     * Determines whether the game has been completed (the player to move can't move), or is a draw
+     * @param board The board to check to determine if we're at an endgame point.
+     * @param position The snapshot of the same position, leading back through the game
+     * @return Returns the result if the game is over, otherwise null
+     */
+    private static GameResult getResultIfOver(Board board, BoardSnapshot position)
+    {
+        // the game is drawn if a position comes up too often or no one has made progress in a while
+        if (board.isRepetitionDraw())
+            return new GameResult(GameResult.Outcome.DRAW, GameResult.Reason.REPETITION, board, position);
+        else if (board.isNoProgressDraw())
+            return new GameResult(GameResult.Outcome.DRAW, GameResult.Reason.NO_PROGRESS, board, position);
+        // otherwise, the player whose turn it is loses if they have no moves left
+        else if (board.getLegalMoves().length == 0)
+            return new GameResult(getWinAgainstMover(board), GameResult.Reason.NO_MOVES, board, position);
+        else
+            return null;
+    }
+
+    /**
+     * @return Returns the outcome of the player to move losing.
+     */
+    private static GameResult.Outcome getWinAgainstMover(Board board)
+    {
+        return board.isWhiteTurn ? GameResult.Outcome.BLACK_WINS : GameResult.Outcome.WHITE_WINS;
     }
     
     /**
@@ -153,4 +396,130 @@ public class GameRunner
     	// see http://stackoverflow.com/a/32008479/3155372
         System.out.print("\033[2J\033[1;1H");
     }
+
+    /**
+     * A game being played by playGame: its board and players, the move being waited on, and the result to complete.
+     * Every position is also kept as a snapshot, for the result to hold the whole game (and to publish the moves from).
+     */
+    private static class Game
+    {
+        final Board board;
+        final Player white;
+        final Player black;
+        final Executor carriers;
+        final long moveTimeoutMillis;
+        final CompletableFuture<GameResult> result = new CompletableFuture<GameResult>();
+        final SpectatorFeed feed;
+        final int gameId;
+        final Adjudicator.Tracker adjudication;
+        final MemoryGovernor.Grant memory;
+        volatile CompletableFuture<Move> pendingMove;
+        volatile BoardSnapshot position;
+
+        Game(Board board, Player white, Player black, Executor carriers, long moveTimeoutMillis, SpectatorFeed feed,
+             Adjudicator adjudicator)
+        {
+            this.board = board;
+            this.white = white;
+            this.black = black;
+            this.carriers = carriers;
+            this.moveTimeoutMillis = moveTimeoutMillis;
+            this.position = new BoardSnapshot(board);
+            this.feed = feed;
+            this.gameId = feed != null ? feed.startGame(position) : -1;
+            this.adjudication = adjudicator != null ? adjudicator.startGame() : null;
+
+            // the board and snapshots can't shrink, but count towards the memory budget (leaving less for the players' tables)
+            long bytes = getMemoryBytes();
+            this.memory = MemoryGovernor.getGlobal().register("game state", bytes, bytes, this::getMemoryBytes);
+        }
+
+        /**
+         * Ends the game if it's over, otherwise asks the player to move for their move (without waiting for it).
+         */
+        void nextMove()
+        {
+            // (the game may have been cancelled while the last move was being applied)
+            if (result.isDone())
+                return;
+            GameResult over = getResultIfOver(board, position);
+            if (over != null)
+            {
+                result.complete(over);
+                return;
+            }
+
+            CompletableFuture<Move> move = (board.isWhiteTurn ? white : black).requestMove(board, carriers);
+            if (moveTimeoutMillis > 0)
+                move.orTimeout(moveTimeoutMillis, TimeUnit.MILLISECONDS);
+            pendingMove = move;
+            move.whenCompleteAsync(this::moveMade, carriers);
+
+            // (the game may have been cancelled while asking)
+            if (result.isDone())
+                move.cancel(true);
+        }
+
+        /**
+         * Checks the move the player came back with and applies it, then goes on to the next move.
+         * @param move The move (null if the player quit)
+         * @param error Why there's no move, if the player failed or ran out of time (otherwise null)
+         */
+        void moveMade(Move move, Throwable error)
+        {
+            if (result.isDone())
+                return;
+
+            if (error instanceof CompletionException && error.getCause() != null)
+                error = error.getCause();
+            if (error instanceof TimeoutException)
+                result.complete(new GameResult(getWinAgainstMover(board), GameResult.Reason.TIMEOUT, board, position));
+            else if (error != null)
+                result.completeExceptionally(error);
+            else if (move == null)
+                result.complete(new GameResult(GameResult.Outcome.ABANDONED, GameResult.Reason.QUIT, board, position));
+            else
+            {
+                // only ever apply the board's own version of a legal move
+                Move legalMove = Player.findLegalMove(board, move);
+                if (legalMove == null)
+                {
+                    result.complete(new GameResult(getWinAgainstMover(board), GameResult.Reason.ILLEGAL_MOVE, board, position));
+                    return;
+                }
+                Player mover = board.isWhiteTurn ? white : black;
+                BoardSnapshot before = position;
+                position = position.play(legalMove);
+                board.applyMoveToBoard(legalMove);
+                if (feed != null)
+                    feed.movePlayed(gameId, legalMove, before, position);
+                memory.setWantedBytes(getMemoryBytes());
+
+                // end the game here if its result is already clear
+                GameResult called = adjudication != null ? adjudication.movePlayed(board, position, mover) : null;
+                if (called != null)
+                    result.complete(called);
+                else
+                    nextMove();
+            }
+        }
+
+        /**
+         * @return Returns roughly how much memory the game's board and snapshots take, in bytes.
+         */
+        long getMemoryBytes()
+        {
+            return board.getMemoryBytes() + position.getMemoryBytes();
+        }
+
+        /**
+         * Calls off the move being waited on, if there is one.
+         */
+        void cancelPendingMove()
+        {
+            CompletableFuture<Move> move = pendingMove;
+            if (move != null)
+                move.cancel(true);
+        }
+    }
 }
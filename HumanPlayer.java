@@ -1,12 +1,24 @@
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 /**
  * Resposible for communicating with the human player and serving as an interface with the main game engine.
  * 
  * @author Mckenna Cisler 
- * @version 12.7.2015
+ * @version 10.19.2026
  */
 public class HumanPlayer extends Player
 {
+    // the thread all human players are asked for moves on (a daemon, so it never keeps the game from exiting)
+    private static final ExecutorService CONSOLE = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "console-input");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     // global variables
     Scanner input = new Scanner(System.in);    
     boolean isWhite;
@@ -21,31 +33,36 @@ public class HumanPlayer extends Player
     }
     
     /**
-     * Gets a move, by asking the human player what move they want to do.
-     * @param board The board to apply the move to (assumed to be oriented so that this player is on the top)
-     * @return Returns the board, modified according to the player's move
+     * Decides on a move, by asking the human player what move they want to do.
+     * @param board The board to move on (assumed to be oriented so that this player is on the top)
+     * @param isCancelled Says whether the move isn't wanted any more (only checked in between questions,
+     * as there's no way to stop waiting on someone typing)
+     * @return Returns the player's move, or null if they quit
      */
-    public Board getMove(Board board)
+    public Move chooseMove(Board board, BooleanSupplier isCancelled)
     {        
         // display board to help user (without possible moves)
         displayBoard(board, null);
         
         // keep asking until they select a piece with a valid move
         Move[] possibleMoves;
-        while (true)
+        while (!isCancelled.getAsBoolean())
         {
             // ask user for a piece
             Piece pieceMoving = getPieceFromUser(board);
                         
             // check for quit
             if (pieceMoving == null)
-                return board;
+                return null;
             
             // find all possible moves the player could do
             possibleMoves = pieceMoving.getAllPossibleMoves(board);
                        
             // check that there are some, and if so continue to ask for move
-            if (possibleMoves == null)
+            // (if another piece can jump, this one can't move unless it can jump too)
+            if (possibleMoves == null && board.hasCapture(this.isWhite))
+                System.out.println("You have to jump when you can! Please choose a piece that can jump:");
+            else if (possibleMoves == null)
                 System.out.println("That piece has no possible moves! Please choose another:");
             else
             {
@@ -53,15 +70,25 @@ public class HumanPlayer extends Player
                 displayBoard(board, possibleMoves);
                 Move move = getMoveFromUser(possibleMoves);
                 
-                // apply move to board and return it if the user entered a valid one
+                // return the move if the user entered a valid one
                 // OTHERWISE, the user requested a retry, so loop again
                 if (move != null)
-                {
-                    board.applyMoveToBoard(move, pieceMoving);
-                    return board;
-                }
+                    return move;
             }
         } 
+        return null;
+    }
+    
+    /**
+     * Asks for a move without waiting for it. Everyone shares the one console, so human players are always asked
+     * on its own thread (one at a time) rather than the given executor, which is left free for other games while they type.
+     * @param board The board to move on
+     * @param executor Not used
+     * @return Returns the move, to be completed with null if the player quits
+     */
+    public CompletableFuture<Move> requestMove(Board board, Executor executor)
+    {
+        return super.requestMove(board, CONSOLE);
     }
     
     /**
@@ -75,6 +102,9 @@ public class HumanPlayer extends Player
         // clear the screen for board display
         GameRunner.clearScreen();
         
+        // row numbers may have more than one digit on bigger boards, so pad them all to the same width
+        int numberWidth = Integer.toString(board.size).length();
+        
         // include a hidden top row for coordinates
         for (int y = -1; y < board.size; y++)
         {   
@@ -88,14 +118,14 @@ public class HumanPlayer extends Player
                         // print a letter, starting with capital a, for each x value
                         System.out.print("-" + (char)(x + 65) + "- ");
                     else
-                        System.out.print("     "); // still fill the place we skipped
+                        System.out.print(String.format("%" + (numberWidth + 4) + "s", "")); // still fill the place we skipped
                 }
                 // add an exception for the left column (print number coordinates)
                 else if (x == -1)
                 {
                     if (y != -1) // skip hidden row
                         // print a number, starting with one, for each y value
-                        System.out.print("-" + (y + 1) + "- ");
+                        System.out.print("-" + String.format("%" + numberWidth + "d", y + 1) + "- ");
                 }
                 else
                 {
@@ -167,17 +197,19 @@ public class HumanPlayer extends Player
                     throw new Exception();
                     
                 // Presume that the user entered the letter coordinate first, but flip them if it's the other way around
+                // (the number may have more than one digit on bigger boards)
+                raw = raw.trim();
                 char letterChar = raw.charAt(0);
-                char numberChar = raw.charAt(1);
+                String numberString = raw.substring(1);
                 if (letterChar < 97) // the letter is actually a number...
                 {
-                    letterChar = numberChar;
-                    numberChar = raw.charAt(0);
+                    letterChar = raw.charAt(raw.length() - 1);
+                    numberString = raw.substring(0, raw.length() - 1);
                 }   
                                 
-                // get coordinates by shifting the corresponding character to its numeric value (0-indexed)
+                // get coordinates by shifting the letter to its numeric value, and reading the number (0-indexed)
                 int x = letterChar - 97;
-                int y = numberChar - 48 - 1;
+                int y = Integer.parseInt(numberString) - 1;
                                
                 // ensure there's no out-of-bounds entries 
                 if (board.isOverEdge(x, y))
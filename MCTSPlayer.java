@@ -0,0 +1,387 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+/**
+ * A computer player that picks moves by Monte Carlo Tree Search instead of alpha-beta search:
+ * it plays many quick random games ("playouts") from the current position, growing a tree of the
+ * most promising moves (chosen by UCT) and finally doing the move that was explored the most.
+ *
+ * Playouts run on several threads at once over one shared tree. A thread counts its visit to a node
+ * as soon as it passes through (a "virtual loss" until its result comes back), which steers the other threads
+ * elsewhere, and all statistics are updated with atomic operations instead of locks. The thread asking for the move
+ * is one of them, and the only one that checks whether the move has been called off (so a checkpoint given to
+ * requestMove only ever runs on it); it tells the others to stop.
+ *
+ * The tree is stored in arrays of ints (one entry per node) with a fixed capacity, so its memory use
+ * is known up front. Nodes store which of their parent's legal moves led to them rather than the move itself;
+ * the moves are generated again (always in the same order) while walking down the tree.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class MCTSPlayer extends Player
+{
+    // search constants
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+    private static final double EXPLORATION = 1.4;
+    private static final int MAX_PLAYOUT_PLIES = 300;
+
+    // results are counted in half points, from the point of view of the player who moved into a node
+    private static final int WIN_POINTS = 2;
+    private static final int DRAW_POINTS = 1;
+
+    // the expansion states of a node
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int NOT_EXPANDABLE = 3;
+
+    // global variables
+    boolean isWhite;
+    int threadCount;
+    long iterationBudget;
+    long timeBudgetMillis;
+    private ExecutorService threads;
+
+    // the tree (each node's children are stored together, starting at firstChild)
+    private final int maxNodes;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] moveIndex;
+    private final AtomicIntegerArray expansionState;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray points;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    // statistics about the last search
+    private long lastPlayouts;
+    private double lastPlayoutsPerSecond;
+
+    // tells the playout threads to stop, once the move has been called off or the asking thread has run out of budget
+    private volatile boolean playoutsStopped;
+
+    /**
+     * Constructor for objects of class MCTSPlayer.
+     * @param isWhite This player's color.
+     * @param threadCount The number of threads to run playouts on
+     * @param iterationBudget The number of playouts to run for each move (or 0 for no limit)
+     * @param timeBudgetMillis The time to spend on each move in milliseconds (or 0 for no limit)
+     */
+    public MCTSPlayer(boolean isWhite, int threadCount, long iterationBudget, long timeBudgetMillis)
+    {
+        this(isWhite, threadCount, iterationBudget, timeBudgetMillis, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructor for objects of class MCTSPlayer.
+     * @param isWhite This player's color.
+     * @param threadCount The number of threads to run playouts on
+     * @param iterationBudget The number of playouts to run for each move (or 0 for no limit)
+     * @param timeBudgetMillis The time to spend on each move in milliseconds (or 0 for no limit)
+     * @param maxNodes The most nodes the tree can hold (once full, it just stops growing)
+     */
+    public MCTSPlayer(boolean isWhite, int threadCount, long iterationBudget, long timeBudgetMillis, int maxNodes)
+    {
+        if (iterationBudget <= 0 && timeBudgetMillis <= 0)
+            throw new IllegalArgumentException("Either an iteration or a time budget is needed");
+
+        this.isWhite = isWhite;
+        this.threadCount = Math.max(1, threadCount);
+        this.iterationBudget = iterationBudget;
+        this.timeBudgetMillis = timeBudgetMillis;
+
+        this.maxNodes = maxNodes;
+        this.firstChild = new int[maxNodes];
+        this.childCount = new int[maxNodes];
+        this.moveIndex = new int[maxNodes];
+        this.expansionState = new AtomicIntegerArray(maxNodes);
+        this.visits = new AtomicIntegerArray(maxNodes);
+        this.points = new AtomicIntegerArray(maxNodes);
+    }
+
+    /**
+     * Decides on a move, by searching the tree of possible games.
+     * Only one move is thought about at a time, so a new request waits for one that was called off to stop.
+     * @param board The board to move on (it is left unchanged)
+     * @param isCancelled Says whether the move isn't wanted any more (which ends the search early, like running out of budget)
+     * @return Returns the computer's move, or null if it has none
+     */
+    public synchronized Move chooseMove(Board board, BooleanSupplier isCancelled)
+    {
+        Move[] rootMoves = board.getLegalMoves();
+        if (rootMoves.length == 0)
+            return null;
+
+        // no need to think about a forced move
+        if (rootMoves.length == 1)
+            return rootMoves[0];
+
+        search(board, isCancelled);
+
+        // do the move that was explored the most (which is the most reliable, not just the highest scoring)
+        int bestChild = firstChild[0];
+        for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+        {
+            if (visits.get(child) > visits.get(bestChild))
+                bestChild = child;
+        }
+        return rootMoves[moveIndex[bestChild]];
+    }
+
+    /**
+     * Stops this player's playout threads, once it's finished playing (it waits for a move being thought about first).
+     * It can still play afterwards, starting new threads.
+     */
+    public synchronized void releaseMemory()
+    {
+        if (threads != null)
+        {
+            threads.shutdown();
+            threads = null;
+        }
+    }
+
+    /**
+     * Builds a new tree from the given position by running playouts on all threads until the budget is used up.
+     * @param board The position to search from (it is left unchanged)
+     * @param isCancelled Says whether to stop before the budget is used up
+     */
+    private void search(Board board, BooleanSupplier isCancelled)
+    {
+        // clear out the last tree, leaving just the root (with its children, so there's always a move to choose)
+        int usedNodes = Math.min(nodeCount.get(), maxNodes);
+        for (int node = 0; node < usedNodes; node++)
+        {
+            expansionState.set(node, UNEXPANDED);
+            visits.set(node, 0);
+            points.set(node, 0);
+        }
+        nodeCount.set(1);
+        expand(0, board);
+
+        long startTime = System.nanoTime();
+        long deadline = timeBudgetMillis > 0 ? startTime + timeBudgetMillis * 1000000 : Long.MAX_VALUE;
+        AtomicLong playouts = new AtomicLong();
+
+        // (the other threads are only started once there's something to think about, and again after being let go)
+        if (threads == null && threadCount > 1)
+        {
+            // use daemon threads, so they never keep the game from exiting
+            threads = Executors.newFixedThreadPool(threadCount - 1, runnable -> {
+                Thread thread = new Thread(runnable, "mcts-playouts");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // each thread works on its own copy of the board, this one included (which is the only one that checks
+        // whether the move has been called off)
+        playoutsStopped = false;
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int i = 1; i < threadCount; i++)
+        {
+            Board threadBoard = new Board(board);
+            results.add(threads.submit(() -> runPlayouts(threadBoard, playouts, deadline, null)));
+        }
+        try
+        {
+            runPlayouts(new Board(board), playouts, deadline, isCancelled);
+        }
+        finally
+        {
+            playoutsStopped = true;
+        }
+
+        // wait for all of them to finish (passing on anything that went wrong)
+        for (Future<?> result : results)
+        {
+            try
+            {
+                result.get();
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException("A playout thread failed", e);
+            }
+        }
+
+        lastPlayouts = visits.get(0);
+        lastPlayoutsPerSecond = lastPlayouts / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    /**
+     * Runs playouts on one thread until the budget is used up, or the playouts are stopped.
+     * @param board The thread's own board, at the root position
+     * @param playouts The number of playouts started so far, by every thread
+     * @param deadline The time to stop by (from System.nanoTime)
+     * @param isCancelled Says whether the move has been called off (for the asking thread), or null (for the others)
+     */
+    private void runPlayouts(Board board, AtomicLong playouts, long deadline, BooleanSupplier isCancelled)
+    {
+        while ((iterationBudget <= 0 || playouts.getAndIncrement() < iterationBudget) &&
+               System.nanoTime() < deadline && !playoutsStopped)
+        {
+            if (isCancelled != null && isCancelled.getAsBoolean())
+            {
+                playoutsStopped = true;
+                break;
+            }
+            runIteration(board);
+        }
+    }
+
+    /**
+     * Runs one iteration of the search: walks down the tree choosing children by UCT, adds a new node,
+     * plays a random game from there and passes its result back up to every node on the way.
+     * @param board The thread's own board, at the root position (it is put back there afterwards)
+     */
+    private void runIteration(Board board)
+    {
+        int[] path = new int[MAX_PLAYOUT_PLIES];
+        int pathLength = 0;
+
+        // walk down through the expanded part of the tree
+        int node = 0;
+        visits.incrementAndGet(node);
+        while (expansionState.get(node) == EXPANDED && !board.isDraw() && pathLength < path.length)
+        {
+            int child = selectChild(node);
+            visits.incrementAndGet(child);
+            board.applyMoveToBoard(board.getLegalMoves()[moveIndex[child]]);
+            path[pathLength++] = child;
+            node = child;
+        }
+
+        // grow the tree by one level here (if no one else is), and step into one of the new children
+        if (visits.get(node) > 1 && !board.isDraw() && pathLength < path.length && expand(node, board))
+        {
+            int child = firstChild[node] + ThreadLocalRandom.current().nextInt(childCount[node]);
+            visits.incrementAndGet(child);
+            board.applyMoveToBoard(board.getLegalMoves()[moveIndex[child]]);
+            path[pathLength++] = child;
+        }
+
+        // then play the rest of the game out randomly
+        int result = 0; // 1 if white won, -1 if black did, 0 for a draw
+        int playoutPlies = 0;
+        while (true)
+        {
+            if (board.isDraw() || playoutPlies >= MAX_PLAYOUT_PLIES)
+                break;
+            Move[] moves = board.getLegalMoves();
+            if (moves.length == 0)
+            {
+                // the player to move has lost
+                result = board.isWhiteTurn ? -1 : 1;
+                break;
+            }
+            board.applyMoveToBoard(moves[ThreadLocalRandom.current().nextInt(moves.length)]);
+            playoutPlies++;
+        }
+
+        // put the board back to the root (working out who moved into each node on the way)
+        for (int i = 0; i < playoutPlies; i++)
+        {
+            board.undoLastMove();
+        }
+        for (int i = pathLength - 1; i >= 0; i--)
+        {
+            board.undoLastMove();
+
+            // the player to move before a node's move is the one who moved into it
+            int nodePoints;
+            if (result == 0)
+                nodePoints = DRAW_POINTS;
+            else if ((result == 1) == board.isWhiteTurn)
+                nodePoints = WIN_POINTS;
+            else
+                nodePoints = 0;
+            points.addAndGet(path[i], nodePoints);
+        }
+    }
+
+    /**
+     * Chooses the child of the given node with the best UCT value: its average result plus a bonus for
+     * having been tried less than its siblings. Children no one has visited yet are always tried first.
+     * @param node The (expanded) node
+     * @return Returns the chosen child
+     */
+    private int selectChild(int node)
+    {
+        double logParentVisits = Math.log(Math.max(1, visits.get(node)));
+        int bestChild = firstChild[node];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++)
+        {
+            int childVisits = visits.get(child);
+            if (childVisits == 0)
+                return child;
+
+            double value = points.get(child) / (double)(WIN_POINTS * childVisits) +
+                           EXPLORATION * Math.sqrt(logParentVisits / childVisits);
+            if (value > bestValue)
+            {
+                bestValue = value;
+                bestChild = child;
+            }
+        }
+        return bestChild;
+    }
+
+    /**
+     * Adds a child node for each legal move of the given node's position, if no other thread is already doing so.
+     * @param node The node to expand
+     * @param board The board, at the node's position
+     * @return Returns true if the node now has children
+     */
+    private boolean expand(int node, Board board)
+    {
+        if (!expansionState.compareAndSet(node, UNEXPANDED, EXPANDING))
+            return expansionState.get(node) == EXPANDED;
+
+        int moveCount = board.getLegalMoves().length;
+
+        // stop growing if there are no moves, or there's no more room
+        int first = moveCount == 0 ? -1 : nodeCount.getAndAdd(moveCount);
+        if (first < 0 || first + moveCount > maxNodes)
+        {
+            expansionState.set(node, NOT_EXPANDABLE);
+            return false;
+        }
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            moveIndex[first + i] = i;
+            expansionState.set(first + i, UNEXPANDED);
+        }
+        firstChild[node] = first;
+        childCount[node] = moveCount;
+
+        // (this makes the children visible to the other threads)
+        expansionState.set(node, EXPANDED);
+        return true;
+    }
+
+    /**
+     * @return Returns the number of playouts run for the last move.
+     */
+    public long getLastPlayouts()
+    {
+        return lastPlayouts;
+    }
+
+    /**
+     * @return Returns the number of playouts run per second (over all threads) for the last move.
+     */
+    public double getLastPlayoutsPerSecond()
+    {
+        return lastPlayoutsPerSecond;
+    }
+}
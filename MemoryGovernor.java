@@ -0,0 +1,313 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+/**
+ * Shares one memory budget between everything that would otherwise size itself on its own (each AIPlayer's
+ * TranspositionTable, the state of every game being played), so running many games at once can't use up the heap.
+ *
+ * Each consumer registers how much memory it would like and the least it can make do with, and gets a Grant.
+ * While everything wanted fits in the budget, everyone gets what they wanted; otherwise everyone gets their least,
+ * and what's left of the budget is shared out in proportion to how much more each wanted. Whenever a consumer comes
+ * or goes (or changes what it wants by much), the grants are worked out again: a consumer whose grant changes resizes
+ * itself to fit the next time it's safe to (a table keeps the entries it has room for, and drops the rest).
+ * Consumers that never say they're done (like players, which are just dropped) are let go once they're garbage
+ * collected, as grants are only weakly held here.
+ *
+ * The budget is set with the checkers.memory system property (like -Dcheckers.memory=2g), and is half the heap without it.
+ * Large tables should be kept off the heap (see allocateLongs), so the garbage collector never has to copy or scan them.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class MemoryGovernor
+{
+    // the system property giving the budget, in bytes (or with a k, m or g after it)
+    public static final String MEMORY_PROPERTY = "checkers.memory";
+
+    // the smallest array of longs worth keeping off the heap
+    public static final long OFF_HEAP_MIN_BYTES = 1 << 20;
+
+    // the most longs allocateLongs can make (a direct buffer is at most Integer.MAX_VALUE bytes)
+    public static final int MAX_LONGS = Integer.MAX_VALUE / Long.BYTES;
+
+    // how much a consumer has to change what it wants by before the grants are worked out again
+    private static final long REBALANCE_GRANULARITY = 64 << 10;
+
+    private static MemoryGovernor global;
+
+    private final long budgetBytes;
+    private final List<WeakReference<Grant>> grants = new ArrayList<WeakReference<Grant>>();
+    private final ReferenceQueue<Grant> collectedGrants = new ReferenceQueue<Grant>();
+    private long peakGrantedBytes;
+
+    /**
+     * Constructor for the MemoryGovernor
+     * @param budgetBytes The memory to share out, in bytes
+     */
+    public MemoryGovernor(long budgetBytes)
+    {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return Returns the governor everything in this program shares, with the budget given by the checkers.memory
+     * system property (or half the heap, if it isn't given).
+     */
+    public static synchronized MemoryGovernor getGlobal()
+    {
+        if (global == null)
+        {
+            String budget = System.getProperty(MEMORY_PROPERTY);
+            global = new MemoryGovernor(budget != null ? parseSize(budget) : Runtime.getRuntime().maxMemory() / 2);
+        }
+        return global;
+    }
+
+    /**
+     * Reads a size like "2g", "512m", "64k" or "1000" (bytes).
+     * @param size The size
+     * @return Returns the size in bytes
+     */
+    public static long parseSize(String size)
+    {
+        String number = size.trim().toLowerCase();
+        long unit = 1;
+        if (number.endsWith("k"))
+            unit = 1L << 10;
+        else if (number.endsWith("m"))
+            unit = 1L << 20;
+        else if (number.endsWith("g"))
+            unit = 1L << 30;
+        if (unit > 1)
+            number = number.substring(0, number.length() - 1);
+        return Long.parseLong(number.trim()) * unit;
+    }
+
+    /**
+     * Makes an array of longs, off the heap if it's large (as a direct buffer, whose memory is given back
+     * once the buffer is garbage collected).
+     * @param count The number of longs (at most MAX_LONGS)
+     * @return Returns the array, filled with zeros
+     * @throws IllegalArgumentException If the count is negative or more than MAX_LONGS
+     */
+    public static LongBuffer allocateLongs(int count)
+    {
+        if (count < 0 || count > MAX_LONGS)
+            throw new IllegalArgumentException("Can't allocate " + count + " longs (at most " + MAX_LONGS + " fit in one buffer)");
+        long bytes = (long)count * Long.BYTES;
+        if (bytes < OFF_HEAP_MIN_BYTES)
+            return LongBuffer.allocate(count);
+        return ByteBuffer.allocateDirect((int)bytes).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Registers something that uses memory, and works out how much it can have.
+     * @param name What it is (consumers with the same name are reported together)
+     * @param wantedBytes The most memory it would like
+     * @param minBytes The least it can make do with (the same as wantedBytes for something that can't shrink)
+     * @param usedBytes Says how much it's using right now (for reports)
+     * @return Returns its grant, which says how much it can have (and may change later)
+     */
+    public Grant register(String name, long wantedBytes, long minBytes, LongSupplier usedBytes)
+    {
+        Grant grant = new Grant(name, wantedBytes, Math.min(minBytes, wantedBytes), usedBytes);
+        synchronized (this)
+        {
+            grants.add(new WeakReference<Grant>(grant, collectedGrants));
+            rebalance();
+        }
+        return grant;
+    }
+
+    /**
+     * @return Returns the memory being shared out, in bytes.
+     */
+    public long getBudgetBytes()
+    {
+        return budgetBytes;
+    }
+
+    /**
+     * @return Returns the memory granted to everything registered (which can be more than the budget, if even the least
+     * everything can make do with is more), in bytes.
+     */
+    public synchronized long getGrantedBytes()
+    {
+        long granted = 0;
+        for (Grant grant : getLiveGrants())
+        {
+            granted += grant.grantedBytes;
+        }
+        return granted;
+    }
+
+    /**
+     * @return Returns a few lines saying how much memory each kind of consumer is using, and was granted.
+     */
+    public synchronized String getReport()
+    {
+        // add up the consumers with the same name: the count, bytes used, granted and wanted
+        Map<String, long[]> totals = new TreeMap<String, long[]>();
+        for (Grant grant : getLiveGrants())
+        {
+            long[] total = totals.computeIfAbsent(grant.name, name -> new long[4]);
+            total[0]++;
+            total[1] += grant.usedBytes.getAsLong();
+            total[2] += grant.grantedBytes;
+            total[3] += grant.wantedBytes;
+        }
+
+        StringBuilder report = new StringBuilder(String.format("Memory: %s granted of a %s budget (at most %s at once)",
+                                                               formatSize(getGrantedBytes()), formatSize(budgetBytes),
+                                                               formatSize(peakGrantedBytes)));
+        for (Map.Entry<String, long[]> entry : totals.entrySet())
+        {
+            long[] total = entry.getValue();
+            report.append(String.format("%n  %s (%d): %s used, %s granted, %s wanted", entry.getKey(), total[0],
+                                        formatSize(total[1]), formatSize(total[2]), formatSize(total[3])));
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return Returns a number of bytes as a short string, like "3.5MB".
+     */
+    private static String formatSize(long bytes)
+    {
+        if (bytes >= 1L << 30)
+            return String.format("%.1fGB", bytes / (double)(1L << 30));
+        else if (bytes >= 1L << 20)
+            return String.format("%.1fMB", bytes / (double)(1L << 20));
+        else
+            return String.format("%.1fKB", bytes / (double)(1L << 10));
+    }
+
+    /**
+     * Works out every grant again: everyone gets their least, and what's left of the budget is shared in proportion
+     * to how much more each wanted (so everyone gets all they wanted if it fits).
+     */
+    private void rebalance()
+    {
+        List<Grant> live = getLiveGrants();
+        long minTotal = 0;
+        long extraWanted = 0;
+        for (Grant grant : live)
+        {
+            minTotal += grant.minBytes;
+            extraWanted += grant.wantedBytes - grant.minBytes;
+        }
+
+        double share = extraWanted == 0 ? 1 : Math.max(0, Math.min(1, (double)(budgetBytes - minTotal) / extraWanted));
+        long granted = 0;
+        for (Grant grant : live)
+        {
+            grant.grantedBytes = grant.minBytes + (long)((grant.wantedBytes - grant.minBytes) * share);
+            granted += grant.grantedBytes;
+        }
+        peakGrantedBytes = Math.max(peakGrantedBytes, granted);
+    }
+
+    /**
+     * @return Returns the grants still held by their consumers (forgetting those that have been collected or released).
+     */
+    private List<Grant> getLiveGrants()
+    {
+        // (cleared references are queued as well, which just has to be emptied)
+        while (collectedGrants.poll() != null)
+        {
+        }
+
+        List<Grant> live = new ArrayList<Grant>(grants.size());
+        Iterator<WeakReference<Grant>> iterator = grants.iterator();
+        while (iterator.hasNext())
+        {
+            Grant grant = iterator.next().get();
+            if (grant == null || grant.isReleased)
+                iterator.remove();
+            else
+                live.add(grant);
+        }
+        return live;
+    }
+
+    /**
+     * How much memory a consumer has been given. It can change at any time (from any thread), so consumers
+     * check it when it's safe for them to resize.
+     */
+    public class Grant
+    {
+        private final String name;
+        private final boolean isFixed;
+        private final LongSupplier usedBytes;
+        private volatile long minBytes;
+        private volatile long wantedBytes;
+        private volatile long grantedBytes;
+        private volatile boolean isReleased;
+
+        /**
+         * @param name What the consumer is
+         * @param wantedBytes The most memory it would like
+         * @param minBytes The least it can make do with
+         * @param usedBytes Says how much it's using
+         */
+        Grant(String name, long wantedBytes, long minBytes, LongSupplier usedBytes)
+        {
+            this.name = name;
+            this.wantedBytes = wantedBytes;
+            this.minBytes = minBytes;
+            this.isFixed = minBytes >= wantedBytes;
+            this.usedBytes = usedBytes;
+            this.grantedBytes = wantedBytes;
+        }
+
+        /**
+         * @return Returns the memory the consumer can have, in bytes.
+         */
+        public long getBytes()
+        {
+            return grantedBytes;
+        }
+
+        /**
+         * Changes how much memory the consumer would like (for something that can't shrink, which registered wanting
+         * no more than its least, how much it's using). Small changes are just noted, and taken into account
+         * the next time the grants are worked out.
+         * @param bytes The memory wanted, in bytes
+         */
+        public void setWantedBytes(long bytes)
+        {
+            long oldBytes = wantedBytes;
+            if (isFixed)
+                minBytes = bytes;
+            wantedBytes = Math.max(bytes, minBytes);
+            if (Math.abs(bytes - oldBytes) >= REBALANCE_GRANULARITY)
+            {
+                synchronized (MemoryGovernor.this)
+                {
+                    rebalance();
+                }
+            }
+        }
+
+        /**
+         * Gives the memory back, for the other consumers to share (leaving the consumer only its least).
+         */
+        public void release()
+        {
+            isReleased = true;
+            grantedBytes = minBytes;
+            synchronized (MemoryGovernor.this)
+            {
+                rebalance();
+            }
+        }
+    }
+}
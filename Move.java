@@ -4,7 +4,7 @@ import java.util.Arrays;
  * Represents a single move of a piece.
  * 
  * @author Mckenna Cisler
- * @version 12.1.2015
+ * @version 10.19.2026
  */
 public class Move
 {
@@ -56,9 +56,21 @@ public class Move
      * Finds the pieces jumped in this move.
      * (Get's inbetween jumps using recursion)
      * @return Returns an array of pieces that were jumped.
-     * @param board The board to look for the pieces on.
+     * @param board The board to look for the pieces on (before the move is applied to it).
      */
     public Piece[] getJumpedPieces(Board board)
+    {
+        int[] origin = getOriginPosition();
+        return getJumpedPieces(board, board.getValueAt(origin[0], origin[1]));
+    }
+    
+    /**
+     * Finds the pieces jumped in this move, recursively.
+     * @return Returns an array of pieces that were jumped.
+     * @param board The board to look for the pieces on.
+     * @param movingPiece The piece making the move (still where it started on the board).
+     */
+    private Piece[] getJumpedPieces(Board board, Piece movingPiece)
     {
         // if this move wasn't a jump, it didn't jump a piece!
         if (isJump)
@@ -67,17 +79,24 @@ public class Move
             ArrayList<Piece> pieces = new ArrayList<Piece>();
             
             // the piece this move is jumping should be between the start and end of this move
-            // (the average of those two positions)
-            int pieceX = (x1 + x2)/2;
-            int pieceY = (y1 + y2)/2;
+            // (right in the middle, unless a flying king made it, in which case it's the only other piece on the way)
+            Piece jumpedPiece = null;
+            int stepX = Integer.signum(x2 - x1);
+            int stepY = Integer.signum(y2 - y1);
+            for (int x = x1 + stepX, y = y1 + stepY; x != x2 && jumpedPiece == null; x += stepX, y += stepY)
+            {
+                Piece piece = board.getValueAt(x, y);
+                if (piece != movingPiece) // (a king can pass back over where it started)
+                    jumpedPiece = piece;
+            }
             
             // add this most recent jump...
-            pieces.add(board.getValueAt(pieceX, pieceY));
+            pieces.add(jumpedPiece);
             
             // ...but also go back to get the inbetween ones (if we're not the first move)
             if (precedingMove != null)
             {
-                pieces.addAll(Arrays.asList(precedingMove.getJumpedPieces(board))); 
+                pieces.addAll(Arrays.asList(precedingMove.getJumpedPieces(board, movingPiece))); 
                 // something is wrong (a preceding move isn't a jump) if this returns null, so let the error be thrown
             }
             
@@ -88,4 +107,79 @@ public class Move
         else
             return null;
     }
+    
+    /**
+     * @return Returns true if this move or any move preceding it jumps over the given space.
+     * @param x The x coordinate of the space
+     * @param y The y coordinate of the space
+     */
+    public boolean jumpsOver(int x, int y)
+    {
+        // the jumped space is on the diagonal between the start and end of each jump
+        if (isJump && Math.abs(x - x1) == Math.abs(y - y1) && (x - x1)*(x2 - x) > 0 && (y - y1)*(y2 - y) > 0)
+            return true;
+        
+        // otherwise look back through the rest of the jumps
+        return precedingMove != null && precedingMove.jumpsOver(x, y);
+    }
+    
+    /**
+     * @return Returns a two-part array representing the coordinates of where the piece started
+     * (the starting position of the first jump if this move is part of a series of jumps).
+     */
+    public int[] getOriginPosition()
+    {
+        if (precedingMove == null)
+            return getStartingPosition();
+        else
+            return precedingMove.getOriginPosition();
+    }
+    
+    /**
+     * @return Returns the jump made before this one in a series of jumps (null if this is the first, or isn't a jump).
+     */
+    public Move getPrecedingMove()
+    {
+        return precedingMove;
+    }
+    
+    /**
+     * @return Returns true if the given move goes the same way as this one (including every jump of a series of jumps),
+     * even if it's a different object.
+     * @param other The move to compare with (may be null)
+     */
+    public boolean isSameAs(Move other)
+    {
+        if (other == null || x1 != other.x1 || y1 != other.y1 || x2 != other.x2 || y2 != other.y2 || isJump != other.isJump)
+            return false;
+        else if (precedingMove == null)
+            return other.precedingMove == null;
+        else
+            return precedingMove.isSameAs(other.precedingMove);
+    }
+    
+    /**
+     * @return Returns a string representation of this move (and any preceding it), like "C3-D4" or "C3xE5xG3".
+     * Spaces are named the same way as on the displayed board.
+     */
+    public String toString()
+    {
+        String start;
+        if (precedingMove == null)
+            start = getSpaceName(x1, y1);
+        else
+            start = precedingMove.toString();
+        
+        return start + (isJump ? "x" : "-") + getSpaceName(x2, y2);
+    }
+    
+    /**
+     * @return Returns the name of a space, as a capital letter for x followed by a (one-indexed) number for y.
+     * @param x The x coordinate of the space
+     * @param y The y coordinate of the space
+     */
+    private static String getSpaceName(int x, int y)
+    {
+        return (char)(x + 65) + Integer.toString(y + 1);
+    }
 }
@@ -0,0 +1,338 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+/**
+ * One game read from a PDN (Portable Draughts Notation) file by a PdnReader: its tags, its moves
+ * (in numeric notation, like "11-15" or "15x24"), and its result. The game can be replayed on a Board
+ * to get every position it reached.
+ *
+ * PDN numbers the dark squares from 1, a row at a time from the top of the usual diagram. In English checkers
+ * the player who moves first (called Black there) starts on the lowest numbers, and in international and
+ * Canadian draughts the player who moves first (White) starts on the highest numbers. Either way, that player
+ * is white in this program. Results are likewise read with the first score being that of the player who moves first.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PdnGame
+{
+    // the results a game can have (white being the player who moved first)
+    public static final int WHITE_WINS = 0;
+    public static final int BLACK_WINS = 1;
+    public static final int DRAW = 2;
+    public static final int UNKNOWN = 3;
+
+    private final long offset;
+    private final Map<String, String> tags;
+    private final List<String> moves;
+    private final String result;
+
+    /**
+     * Constructor for the PdnGame
+     * @param offset Where the game starts in its file, in bytes
+     * @param tags The game's tags (like Event, or Result), by name
+     * @param moves The game's moves, in numeric notation
+     * @param result The game's result, as written (like "1-0", or "*" if it isn't known)
+     */
+    public PdnGame(long offset, Map<String, String> tags, List<String> moves, String result)
+    {
+        this.offset = offset;
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /**
+     * @return Returns where the game starts in its file, in bytes.
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * @return Returns the value of the given tag, or null if the game doesn't have it.
+     * @param name The name of the tag (like "Event")
+     */
+    public String getTag(String name)
+    {
+        return tags.get(name);
+    }
+
+    /**
+     * @return Returns the game's moves, in numeric notation.
+     */
+    public List<String> getMoves()
+    {
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * @return Returns WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN.
+     */
+    public int getResult()
+    {
+        switch (result)
+        {
+            case "1-0":
+            case "2-0":
+                return WHITE_WINS;
+            case "0-1":
+            case "0-2":
+                return BLACK_WINS;
+            case "1/2-1/2":
+            case "1-1":
+                return DRAW;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * @return Returns the variant the game was played in (from its GameType tag), or the given one if it doesn't say,
+     * or null if it's a kind of game this program doesn't play.
+     * @param defaultVariant The variant of games without a GameType tag
+     */
+    public Variant getVariant(Variant defaultVariant)
+    {
+        String gameType = tags.get("GameType");
+        if (gameType == null)
+            return defaultVariant;
+
+        // (the game type can be followed by details of the board, after a comma)
+        switch (gameType.split(",")[0].trim())
+        {
+            case "21":
+                return Variant.ENGLISH;
+            case "20":
+                return Variant.INTERNATIONAL_FLYING;
+            case "27":
+                return Variant.CANADIAN;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return Returns true if the game starts from a set-up position (a FEN tag), rather than the usual start.
+     */
+    public boolean isSetUp()
+    {
+        return tags.containsKey("FEN");
+    }
+
+    /**
+     * Plays the game through from the start.
+     * @param variant The variant to play it in
+     * @return Returns the hash of every position reached (see Board.getHash), starting with the starting position
+     * @throws IllegalArgumentException If a move can't be read, or isn't legal
+     */
+    public long[] replay(Variant variant)
+    {
+        Board board = new Board(variant);
+        long[] hashes = new long[moves.size() + 1];
+        hashes[0] = board.getHash();
+        if (!replayFrom(board, 0, hashes))
+            throw new IllegalArgumentException("The moves of the game can't all be played");
+        return hashes;
+    }
+
+    /**
+     * Plays the moves from the given one on. A move written with just its starting and ending squares
+     * can fit more than one series of jumps, so if the game can't be finished after one, the others are tried.
+     * @param board The board, with the moves before this one played on it
+     * @param index The move to play next
+     * @param hashes Where to put the hashes of the positions reached
+     * @return Returns true if every move could be played (otherwise the board is left as it was)
+     * @throws IllegalArgumentException If a move can't be read
+     */
+    private boolean replayFrom(Board board, int index, long[] hashes)
+    {
+        if (index == moves.size())
+            return true;
+
+        for (Move move : findMoves(board, moves.get(index)))
+        {
+            board.applyMoveToBoard(move);
+            hashes[index + 1] = board.getHash();
+            if (replayFrom(board, index + 1, hashes))
+                return true;
+            board.undoLastMove();
+        }
+        return false;
+    }
+
+    /**
+     * Finds the legal moves written in numeric notation: either just the starting and ending squares,
+     * or every square the piece lands on.
+     * @param board The board the move is made on
+     * @param notation The move, like "11-15" or "15x24x31"
+     * @return Returns the moves that fit (none if it isn't legal)
+     * @throws IllegalArgumentException If the move can't be read
+     */
+    public static List<Move> findMoves(Board board, String notation)
+    {
+        // read the square numbers, between the separators
+        List<int[]> squareList = new ArrayList<int[]>();
+        int number = 0;
+        for (int i = 0; i <= notation.length(); i++)
+        {
+            char c = i < notation.length() ? notation.charAt(i) : '-';
+            if (c >= '0' && c <= '9')
+                number = number * 10 + (c - '0');
+            else if ((c == '-' || c == 'x' || c == ':') && i > 0 && number > 0)
+            {
+                squareList.add(getCoordinates(number, board.getVariant()));
+                number = 0;
+            }
+            else
+                throw new IllegalArgumentException("Not a move: " + notation);
+        }
+        if (squareList.size() < 2)
+            throw new IllegalArgumentException("Not a move: " + notation);
+        int[][] squares = squareList.toArray(new int[squareList.size()][]);
+
+        List<Move> found = new ArrayList<Move>(1);
+        for (Move move : board.getLegalMoves())
+        {
+            // (most moves are ruled out by where they start and end)
+            if (!isSameSquare(move.getOriginPosition(), squares[0]) ||
+                !isSameSquare(move.getEndingPosition(), squares[squares.length - 1]))
+                continue;
+            if (squares.length == 2)
+            {
+                found.add(move);
+                continue;
+            }
+
+            // otherwise get every square the move lands on (from the last jump back to the first), and where it started
+            List<int[]> path = new ArrayList<int[]>();
+            for (Move part = move; part != null; part = part.getPrecedingMove())
+            {
+                path.add(0, part.getEndingPosition());
+            }
+            path.add(0, move.getOriginPosition());
+
+            boolean matches = path.size() == squares.length;
+            for (int i = 1; matches && i < squares.length - 1; i++)
+            {
+                matches = isSameSquare(path.get(i), squares[i]);
+            }
+            if (matches)
+                found.add(move);
+        }
+        return found;
+    }
+
+    /**
+     * Sets up a board from a position written in PDN's FEN notation, like "W:W31-35,K28:B1,2,K17"
+     * (whose turn it is, then each color's squares, with K before the kings and ranges allowed).
+     * The colors are as PDN names them, so the player who moves first is Black in English checkers and White otherwise.
+     * @param fen The position
+     * @param variant The variant, which decides how squares are numbered
+     * @return Returns the board
+     * @throws IllegalArgumentException If the position can't be read
+     */
+    public static Board readFen(String fen, Variant variant)
+    {
+        // (white in this program is the player who moves first)
+        char firstMover = isFirstMoverOnLowNumbers(variant) ? 'B' : 'W';
+        BoardGeometry geometry = BoardGeometry.forSize(variant.getSize());
+        long[][] pieces = {new long[geometry.getWordCount()], new long[geometry.getWordCount()]};
+        long[] kings = new long[geometry.getWordCount()];
+
+        String[] fields = fen.trim().replaceAll("\\.$", "").split(":");
+        if (fields.length == 0 || !fields[0].trim().matches("[WB]"))
+            throw new IllegalArgumentException("Not a FEN position: " + fen);
+        for (int i = 1; i < fields.length; i++)
+        {
+            String field = fields[i].trim();
+            if (field.isEmpty() || (field.charAt(0) != 'W' && field.charAt(0) != 'B'))
+                throw new IllegalArgumentException("Not a FEN position: " + fen);
+            long[] colour = pieces[field.charAt(0) == firstMover ? 0 : 1];
+            for (String entry : field.substring(1).split(","))
+            {
+                entry = entry.trim();
+                if (entry.isEmpty())
+                    continue;
+                boolean isKing = entry.charAt(0) == 'K';
+                String[] range = (isKing ? entry.substring(1) : entry).split("-");
+                try
+                {
+                    int first = Integer.parseInt(range[0].trim());
+                    int last = range.length > 1 ? Integer.parseInt(range[1].trim()) : first;
+                    for (int number = first; number <= last; number++)
+                    {
+                        int[] coordinates = getCoordinates(number, variant);
+                        int square = geometry.getSquare(coordinates[0], coordinates[1]);
+                        BoardGeometry.addSquare(colour, square);
+                        if (isKing)
+                            BoardGeometry.addSquare(kings, square);
+                    }
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException("Not a FEN position: " + fen);
+                }
+            }
+        }
+        return new Board(variant, pieces[0], pieces[1], kings, fields[0].trim().charAt(0) == firstMover);
+    }
+
+    /**
+     * Converts a PDN square number to coordinates on the board.
+     * @param number The square number (from 1)
+     * @param variant The variant, which decides how squares are numbered
+     * @return Returns a two-part array where [0] is the x coordinate and [1] is the y
+     * @throws IllegalArgumentException If there is no square with that number
+     */
+    public static int[] getCoordinates(int number, Variant variant)
+    {
+        int size = variant.getSize();
+        int perRow = size / 2;
+        if (number < 1 || number > size * perRow)
+            throw new IllegalArgumentException("There is no square " + number + " on a board of size " + size);
+
+        // find the row and column in the diagram (where the top left corner is a light square)
+        int row = (number - 1) / perRow;
+        int column = 2 * ((number - 1) % perRow) + (row % 2 == 0 ? 1 : 0);
+
+        // then put the player who moves first at the top, and the dark squares where this board has them
+        // (which for the same rows is either the same column or its mirror image)
+        int y = isFirstMoverOnLowNumbers(variant) ? row : size - 1 - row;
+        int x = column % 2 == y % 2 ? column : size - 1 - column;
+        return new int[] {x, y};
+    }
+
+    /**
+     * @return Returns the PDN number of the square at the given coordinates (which must be a dark square).
+     * @param x The x coordinate of the square
+     * @param y The y coordinate of the square
+     * @param variant The variant, which decides how squares are numbered
+     */
+    public static int getNumber(int x, int y, Variant variant)
+    {
+        // undo getCoordinates (which is its own inverse on the column, for a given row)
+        int size = variant.getSize();
+        int row = isFirstMoverOnLowNumbers(variant) ? y : size - 1 - y;
+        int column = (row % 2 == 0) == (x % 2 == 1) ? x : size - 1 - x;
+        return row * (size / 2) + column / 2 + 1;
+    }
+
+    /**
+     * @return Returns true if the player who moves first starts on the lowest numbered squares in the given variant.
+     */
+    private static boolean isFirstMoverOnLowNumbers(Variant variant)
+    {
+        return variant == Variant.ENGLISH;
+    }
+
+    /**
+     * @return Returns true if the two coordinate pairs are the same.
+     */
+    private static boolean isSameSquare(int[] a, int[] b)
+    {
+        return a[0] == b[0] && a[1] == b[1];
+    }
+}
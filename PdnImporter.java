@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * Imports the games of a PDN file into a PositionIndex: each game is read by a PdnReader, replayed on a Board,
+ * and every position it reached is added to the index with its result. Games that start from a set-up position,
+ * are of another kind of game (or variant), or have a move that can't be played are skipped.
+ *
+ * Reading the file is quick next to replaying the games, so games are replayed on a thread for each processor
+ * while the file is read, and added to the index in the order they are in the file (so game ids follow the file).
+ *
+ * Run with: java PdnImporter [PDN file] [index file] [variant]
+ * (the variant is used for games without a GameType tag; only games of that variant are indexed)
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PdnImporter
+{
+    // how often to report progress, in games
+    private static final int REPORT_INTERVAL_GAMES = 100000;
+
+    // the most games being replayed (or waiting to be added) at once, for each thread
+    private static final int GAMES_IN_FLIGHT_PER_THREAD = 256;
+
+    // the state of the current import
+    private final PositionIndexWriter writer;
+    private final Deque<PdnGame> pendingGames = new ArrayDeque<PdnGame>();
+    private final Deque<Future<long[]>> pendingReplays = new ArrayDeque<Future<long[]>>();
+    private int skippedCount;
+
+    /**
+     * Constructor for the PdnImporter
+     * @param writer The index to add the games to
+     */
+    public PdnImporter(PositionIndexWriter writer)
+    {
+        this.writer = writer;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Path pdnFile = Paths.get(args[0]);
+        Path indexFile = Paths.get(args[1]);
+        Variant variant = args.length > 2 ? Variant.valueOf(args[2].toUpperCase()) : Variant.ENGLISH;
+
+        long startTime = System.nanoTime();
+        PositionIndexWriter writer = new PositionIndexWriter(indexFile, variant);
+        PdnImporter importer = new PdnImporter(writer);
+        importer.importGames(pdnFile, variant);
+        double readSeconds = (System.nanoTime() - startTime) / 1e9;
+        writer.close();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("Imported %d games (%d skipped), %d positions, in %.1fs: %.0f games per second, %.1fMB per second%n",
+                          writer.getGameCount(), importer.getSkippedCount(), writer.getPostingCount(), readSeconds,
+                          writer.getGameCount() / readSeconds, Files.size(pdnFile) / readSeconds / (1 << 20));
+        System.out.printf("Wrote a %.1fMB index in %.1fs (%.1f bytes per position)%n", Files.size(indexFile) / (double)(1 << 20),
+                          seconds - readSeconds, Files.size(indexFile) / (double)Math.max(1, writer.getPostingCount()));
+    }
+
+    /**
+     * Adds every game of the given variant in a PDN file to the index.
+     * @param pdnFile The file
+     * @param variant The variant to import (also used for games without a GameType tag)
+     * @throws IOException If the file can't be read, or the index written
+     */
+    public void importGames(Path pdnFile, Variant variant) throws IOException
+    {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService replayers = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "pdn-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (PdnReader reader = new PdnReader(pdnFile))
+        {
+            for (PdnGame game = reader.next(); game != null; game = reader.next())
+            {
+                if (game.isSetUp() || game.getVariant(variant) != variant)
+                {
+                    skippedCount++;
+                    continue;
+                }
+
+                PdnGame replayed = game;
+                pendingGames.add(game);
+                pendingReplays.add(replayers.submit(() -> replayed.replay(variant)));
+                if (pendingReplays.size() >= threadCount * GAMES_IN_FLIGHT_PER_THREAD)
+                    addOldestGame(reader);
+            }
+            while (!pendingReplays.isEmpty())
+            {
+                addOldestGame(reader);
+            }
+        }
+        finally
+        {
+            replayers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return Returns the number of games skipped.
+     */
+    public int getSkippedCount()
+    {
+        return skippedCount;
+    }
+
+    /**
+     * Waits for the oldest game still being replayed, and adds it to the index (or skips it, if it couldn't be played).
+     * @param reader The file being read (to report how far through it is)
+     */
+    private void addOldestGame(PdnReader reader) throws IOException
+    {
+        PdnGame game = pendingGames.remove();
+        long[] hashes;
+        try
+        {
+            hashes = pendingReplays.remove().get();
+        }
+        catch (ExecutionException e)
+        {
+            if (!(e.getCause() instanceof IllegalArgumentException))
+                throw new IllegalStateException("A game couldn't be replayed", e.getCause());
+            skippedCount++;
+            return;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+
+        if ((writer.addGame(game.getOffset(), game.getResult(), hashes) + 1) % REPORT_INTERVAL_GAMES == 0)
+            System.out.println(writer.getGameCount() + " games imported, " + (reader.getOffset() >> 20) + "MB read");
+    }
+}
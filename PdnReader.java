@@ -0,0 +1,264 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Reads the games in a PDN (Portable Draughts Notation) file one at a time, so files of any size can be read
+ * without holding them in memory: only a fixed buffer of the file and the game being read are kept.
+ *
+ * Each game is a section of tags (like [Event "..."]) followed by its moves and result. Move numbers,
+ * comments (in braces), variations (in brackets), annotations (like $1, or "!?") and lines starting with
+ * a semicolon are skipped. A game ends at its result, or where the next game's tags start.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PdnReader implements Closeable
+{
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    // the characters that end a move (or other word) without being part of it
+    private static final String DELIMITERS = "[]{}();";
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long bufferOffset; // where in the file the buffer starts
+    private final StringBuilder word = new StringBuilder();
+
+    /**
+     * Opens a PDN file.
+     * @param path The file
+     * @throws IOException If it can't be opened
+     */
+    public PdnReader(Path path) throws IOException
+    {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.limit(0);
+    }
+
+    /**
+     * Reads the next game.
+     * @return Returns the game, or null if there are no more
+     * @throws IOException If the file can't be read
+     */
+    public PdnGame next() throws IOException
+    {
+        Map<String, String> tags = new LinkedHashMap<String, String>();
+        List<String> moves = new ArrayList<String>();
+        String result = null;
+        long start = -1;
+
+        while (result == null)
+        {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0)
+                break;
+
+            if (c == '[')
+            {
+                // tags after some moves belong to the next game
+                if (!moves.isEmpty())
+                    break;
+                if (start < 0)
+                    start = getOffset();
+                readTag(tags);
+            }
+            else if (c == '{')
+                skipPast('}');
+            else if (c == '(')
+                skipVariation();
+            else if (c == ';')
+                skipPast('\n');
+            else
+            {
+                if (start < 0)
+                    start = getOffset();
+                String text = readWord();
+                if (isResult(text))
+                    result = text;
+                else
+                    addMove(text, moves);
+            }
+        }
+
+        if (start < 0)
+            return null;
+        if (result == null)
+            result = tags.containsKey("Result") ? tags.get("Result") : "*";
+        return new PdnGame(start, tags, moves, result);
+    }
+
+    /**
+     * @return Returns how far through the file we are, in bytes.
+     */
+    public long getOffset()
+    {
+        return bufferOffset + buffer.position();
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException If it can't be closed
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Reads a tag, like [Event "Club championship"], and adds it to the given tags.
+     */
+    private void readTag(Map<String, String> tags) throws IOException
+    {
+        read(); // (the opening bracket)
+        skipWhitespace();
+        word.setLength(0);
+        while (peek() >= 0 && !Character.isWhitespace(peek()) && peek() != '"' && peek() != ']')
+        {
+            word.append((char)read());
+        }
+        String name = word.toString();
+
+        // the value is in quotes, with \" for a quote inside it
+        word.setLength(0);
+        skipWhitespace();
+        if (peek() == '"')
+        {
+            read();
+            for (int c = read(); c >= 0 && c != '"'; c = read())
+            {
+                if (c == '\\' && peek() >= 0)
+                    c = read();
+                word.append((char)c);
+            }
+        }
+        skipPast(']');
+        tags.put(name, word.toString());
+    }
+
+    /**
+     * @return Returns the next word (up to whitespace or a delimiter), which is at least one character long.
+     */
+    private String readWord() throws IOException
+    {
+        word.setLength(0);
+        word.append((char)read());
+        while (peek() >= 0 && !Character.isWhitespace(peek()) && DELIMITERS.indexOf(peek()) < 0)
+        {
+            word.append((char)read());
+        }
+        return word.toString();
+    }
+
+    /**
+     * Adds the move in a word of move text to the given moves, if there is one.
+     * (taking off any move number in front of it, like "12." or "12...", and annotations after it, like "!?")
+     */
+    private static void addMove(String text, List<String> moves)
+    {
+        String move = text.substring(text.lastIndexOf('.') + 1);
+        if (move.startsWith("$"))
+            return;
+
+        int end = move.length();
+        while (end > 0 && !Character.isDigit(move.charAt(end - 1)))
+        {
+            end--;
+        }
+        move = move.substring(0, end);
+        if (!move.isEmpty() && Character.isDigit(move.charAt(0)) &&
+            (move.indexOf('-') >= 0 || move.indexOf('x') >= 0 || move.indexOf(':') >= 0))
+            moves.add(move);
+    }
+
+    /**
+     * @return Returns true if the given word is a game result.
+     */
+    private static boolean isResult(String text)
+    {
+        return text.equals("1-0") || text.equals("0-1") || text.equals("1/2-1/2") || text.equals("*") ||
+               text.equals("2-0") || text.equals("0-2") || text.equals("1-1") || text.equals("0-0");
+    }
+
+    /**
+     * Skips a variation, along with any variations and comments inside it.
+     */
+    private void skipVariation() throws IOException
+    {
+        int depth = 0;
+        for (int c = read(); c >= 0; c = read())
+        {
+            if (c == '{')
+                skipPast('}');
+            else if (c == '(')
+                depth++;
+            else if (c == ')' && --depth == 0)
+                return;
+        }
+    }
+
+    /**
+     * Skips everything up to and including the given character.
+     */
+    private void skipPast(char end) throws IOException
+    {
+        for (int c = read(); c >= 0 && c != end; c = read())
+        {
+        }
+    }
+
+    /**
+     * Skips any whitespace.
+     */
+    private void skipWhitespace() throws IOException
+    {
+        while (peek() >= 0 && Character.isWhitespace(peek()))
+        {
+            read();
+        }
+    }
+
+    /**
+     * @return Returns the next byte of the file without moving past it, or -1 at the end of the file.
+     */
+    private int peek() throws IOException
+    {
+        if (!buffer.hasRemaining() && !fillBuffer())
+            return -1;
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * @return Returns the next byte of the file, or -1 at the end of the file.
+     */
+    private int read() throws IOException
+    {
+        if (!buffer.hasRemaining() && !fillBuffer())
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads the next part of the file into the (used up) buffer.
+     * @return Returns false if there's nothing left to read
+     */
+    private boolean fillBuffer() throws IOException
+    {
+        bufferOffset += buffer.limit();
+        buffer.clear();
+        int count = 0;
+        while (count == 0)
+        {
+            count = channel.read(buffer);
+        }
+        buffer.flip();
+        return count > 0;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Counts the positions reached by playing every sequence of legal moves to a given depth ("perft"), which checks
+ * move generation against known counts (any mistake changes them) and times it. Draws aren't counted as ends,
+ * so the counts only depend on the moves.
+ *
+ * Run with: java Perft [variant] [depth] [FEN position] to count from a position (the starting position if none is
+ * given, see PdnGame.readFen for the notation), or with: java Perft check to check the counts of the reference
+ * positions below, or with: java Perft crosscheck to count them again with SlowPerft as well (which takes a little longer).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class Perft
+{
+    private static final int DEFAULT_DEPTH = 6;
+
+    // the positions to check, and their counts at depth 1, 2, 3 and so on.
+    // The English counts from the start are the published ones. The flying king counts can't be compared with those
+    // published for international draughts, as men here only capture forwards and there's no rule to capture the most
+    // pieces, so they come from SlowPerft, a separate generator that looks at the board a square at a time
+    // (java Perft crosscheck counts them all again with it).
+    private static final Reference[] REFERENCES = {
+        new Reference(Variant.ENGLISH, null,
+                      7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680),
+        new Reference(Variant.INTERNATIONAL_FLYING, null,
+                      9, 81, 658, 4265, 26875, 164406, 1016158),
+        new Reference(Variant.INTERNATIONAL_FLYING, "W:WK1,K50:BK5,K46,23,28",
+                      8, 72, 389, 5284, 92983, 1321584),
+        new Reference(Variant.INTERNATIONAL_FLYING, "W:WK28:B12,14,23,24,32,34,38,39,43",
+                      9, 107, 621, 6067, 46125, 456279),
+        new Reference(Variant.INTERNATIONAL_FLYING, "B:W11,17,18,19,22,31,33,37,40,K46:BK6,K50,2,3",
+                      4, 34, 97, 1010, 5267, 51295),
+    };
+
+    public static void main(String[] args)
+    {
+        if (args.length > 0 && (args[0].equalsIgnoreCase("check") || args[0].equalsIgnoreCase("crosscheck")))
+        {
+            System.exit(check(args[0].equalsIgnoreCase("crosscheck")) ? 0 : 1);
+        }
+
+        Variant variant = args.length > 0 ? Variant.valueOf(args[0].toUpperCase()) : Variant.ENGLISH;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        Board board = args.length > 2 ? PdnGame.readFen(args[2], variant) : new Board(variant);
+        for (int d = 1; d <= depth; d++)
+        {
+            long start = System.nanoTime();
+            long count = perft(board, d);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("depth %2d: %,15d positions  %8.2fs  (%.1fM positions/s)%n", d, count, seconds, count / seconds / 1e6);
+        }
+    }
+
+    /**
+     * Counts the positions reached by every sequence of legal moves of the given length.
+     * @param board The board to count from (moves are applied and taken back, so it's left as it was)
+     * @param depth The number of moves in each sequence
+     * @return Returns the number of positions (counting a position once for each way of reaching it)
+     */
+    public static long perft(Board board, int depth)
+    {
+        if (depth == 0)
+            return 1;
+        Move[] moves = board.getLegalMoves();
+
+        // (the last moves don't need to be played to be counted)
+        if (depth == 1)
+            return moves.length;
+
+        long count = 0;
+        for (Move move : moves)
+        {
+            board.applyMoveToBoard(move);
+            count += perft(board, depth - 1);
+            board.undoLastMove();
+        }
+        return count;
+    }
+
+    /**
+     * Counts from each of the reference positions, and reports any counts that differ from the known ones.
+     * @param isCrossChecked Whether to count them with SlowPerft as well (which has to agree too)
+     * @return Returns true if every count is right
+     */
+    private static boolean check(boolean isCrossChecked)
+    {
+        boolean allRight = true;
+        for (Reference reference : REFERENCES)
+        {
+            Board board = reference.fen != null ? PdnGame.readFen(reference.fen, reference.variant) : new Board(reference.variant);
+            System.out.println(reference.variant + " " + (reference.fen != null ? reference.fen : "start"));
+            for (int depth = 1; depth <= reference.counts.length; depth++)
+            {
+                long count = perft(board, depth);
+                boolean isRight = count == reference.counts[depth - 1];
+                String slowCount = "";
+                if (isCrossChecked)
+                {
+                    long slow = SlowPerft.perft(board, depth);
+                    isRight &= slow == count;
+                    slowCount = String.format(", %,d counted slowly", slow);
+                }
+                allRight &= isRight;
+                System.out.printf("  depth %d: %,d%s%s%n", depth, count, slowCount,
+                                  isRight ? "" : " (should be " + String.format("%,d", reference.counts[depth - 1]) + ")");
+            }
+        }
+        System.out.println(allRight ? "All counts are right." : "SOME COUNTS ARE WRONG.");
+        return allRight;
+    }
+
+    /**
+     * A position to check, and its known counts.
+     */
+    private static class Reference
+    {
+        final Variant variant;
+        final String fen;
+        final long[] counts;
+
+        /**
+         * @param variant The variant
+         * @param fen The position (see PdnGame.readFen), or null for the starting position
+         * @param counts The counts at depth 1, 2, 3 and so on
+         */
+        Reference(Variant variant, String fen, long... counts)
+        {
+            this.variant = variant;
+            this.fen = fen;
+            this.counts = counts;
+        }
+    }
+}
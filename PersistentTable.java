@@ -0,0 +1,268 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+/**
+ * A transposition table kept in a file and mapped into memory, so what has been learned about positions
+ * survives restarts, and can be shared by several engines (in different processes) on the same machine.
+ * Entries are packed just like in a TranspositionTable, and store the same things: the depth, score and
+ * best move found for a position, by its canonical hash (see Board.getCanonicalHash).
+ *
+ * The file has a fixed size, chosen when it is created. It is split into buckets of four slots (one cache line),
+ * and a position can go in any slot of the bucket its hash picks. Each slot is two longs, written and read atomically:
+ * the entry, and the hash XORed with the entry. A slot only counts as holding a position if the two still match up,
+ * so if two processes write the same slot at once, a mixed-up slot is just ignored rather than giving a wrong result.
+ *
+ * Old entries are replaced first: the table has a generation, moved on at the start of every search (by any process
+ * using the file), and each entry remembers the generation it was stored in. When a bucket is full, the entry
+ * to replace is the one with the lowest depth, counting each generation it has aged as a few plies less.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PersistentTable implements Closeable
+{
+    // what probe returns when there's no entry
+    public static final long NOT_FOUND = 0;
+
+    // the header: a number marking the file as a table, the format version, the size of board and number of buckets,
+    // the generation, and the name of the variant (in ASCII, padded with zeros to the end of the first cache line)
+    private static final long MAGIC = 0x434845434B545431L; // "CHECKTT1"
+    private static final int FORMAT = 2;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 8;
+    private static final int BOARD_SIZE_OFFSET = 12;
+    private static final int BUCKET_COUNT_OFFSET = 16;
+    private static final int GENERATION_OFFSET = 24;
+    private static final int VARIANT_OFFSET = 32;
+    private static final int HEADER_BYTES = 64;
+
+    // each bucket holds four slots of two longs each
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int SLOT_BYTES = 16;
+    private static final int BUCKET_BYTES = SLOTS_PER_BUCKET * SLOT_BYTES;
+
+    // entries store the generation they were made in above the bits TranspositionTable uses
+    private static final int GENERATION_SHIFT = TranspositionTable.ENTRY_BITS;
+    private static final int GENERATION_MASK = 0xF;
+    private static final long ENTRY_MASK = (1L << TranspositionTable.ENTRY_BITS) - 1;
+
+    // how many plies of depth each generation of age counts for when choosing what to replace
+    private static final int AGE_PENALTY = 4;
+
+    // reads and writes longs of the mapped file atomically (the file is always in little endian order)
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int bucketMask;
+
+    /**
+     * Opens a table file, creating it if it doesn't exist yet.
+     * @param path The file to keep the table in
+     * @param variant The rules the positions are played by (each file only holds one variant, as even variants
+     *                with the same size of board have different moves, and so different scores and best moves)
+     * @param entryCount The number of entries to hold, if the file is created (rounded down to a power of two,
+     *                   and to at least one bucket)
+     * @throws IOException If the file can't be opened or mapped, or is not a table for this variant
+     */
+    public PersistentTable(Path path, Variant variant, int entryCount) throws IOException
+    {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            // a new (empty) file is set up, but an existing one keeps whatever size it was made with
+            int bucketCount;
+            if (channel.size() == 0)
+            {
+                int maxBuckets = (Integer.MAX_VALUE - HEADER_BYTES) / BUCKET_BYTES;
+                bucketCount = Integer.highestOneBit(Math.min(maxBuckets, Math.max(1, entryCount / SLOTS_PER_BUCKET)));
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long)bucketCount * BUCKET_BYTES);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(FORMAT_OFFSET, FORMAT);
+                buffer.putInt(BOARD_SIZE_OFFSET, variant.getSize());
+                buffer.putInt(BUCKET_COUNT_OFFSET, bucketCount);
+                byte[] name = variant.name().getBytes(StandardCharsets.US_ASCII);
+                for (int i = 0; i < name.length && VARIANT_OFFSET + i < HEADER_BYTES; i++)
+                {
+                    buffer.put(VARIANT_OFFSET + i, name[i]);
+                }
+
+                // (the magic number goes last, so a half-made file is never taken for a table)
+                LONGS.setVolatile(buffer, MAGIC_OFFSET, MAGIC);
+            }
+            else
+            {
+                if (channel.size() < HEADER_BYTES)
+                    throw new IOException(path + " is not a position table");
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                bucketCount = buffer.getInt(BUCKET_COUNT_OFFSET);
+
+                if ((long)LONGS.getVolatile(buffer, MAGIC_OFFSET) != MAGIC)
+                    throw new IOException(path + " is not a position table");
+                if (buffer.getInt(FORMAT_OFFSET) != FORMAT)
+                    throw new IOException(path + " is a position table of an older format (format " +
+                                          buffer.getInt(FORMAT_OFFSET) + "), which has to be made again");
+                if (Integer.bitCount(bucketCount) != 1 || channel.size() != HEADER_BYTES + (long)bucketCount * BUCKET_BYTES)
+                    throw new IOException(path + " is not a position table");
+                String storedVariant = readVariantName();
+                if (!storedVariant.equals(variant.name()) || buffer.getInt(BOARD_SIZE_OFFSET) != variant.getSize())
+                    throw new IOException(path + " holds positions of " + storedVariant + ", not " + variant.name());
+            }
+            bucketMask = bucketCount - 1;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Returns the name of the variant stored in the header (up to the first zero).
+     */
+    private String readVariantName()
+    {
+        byte[] name = new byte[HEADER_BYTES - VARIANT_OFFSET];
+        int length = 0;
+        while (length < name.length && buffer.get(VARIANT_OFFSET + length) != 0)
+        {
+            name[length] = buffer.get(VARIANT_OFFSET + length);
+            length++;
+        }
+        return new String(name, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Looks for an entry for the given position.
+     * @param key The (canonical) hash of the position
+     * @return Returns the entry, to be read with TranspositionTable's unpack methods, or NOT_FOUND if there isn't one
+     */
+    public long probe(long key)
+    {
+        int bucket = getBucketOffset(key);
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++)
+        {
+            int slot = bucket + i * SLOT_BYTES;
+            long entry = (long)LONGS.getOpaque(buffer, slot);
+            long check = (long)LONGS.getOpaque(buffer, slot + 8);
+            if (entry != 0 && (check ^ entry) == key)
+                return entry & ENTRY_MASK;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Stores the result of searching a position, replacing the least valuable entry in its bucket if it is full.
+     * @param key The (canonical) hash of the position
+     * @param depth The depth the position was searched to
+     * @param score The score found
+     * @param bound Whether the score is EXACT, a LOWER_BOUND or an UPPER_BOUND (see TranspositionTable)
+     * @param bestFrom The position the best move starts at (in the canonical position), or -1 if there isn't one
+     * @param bestTo The position the best move ends at (in the canonical position)
+     */
+    public void store(long key, int depth, int score, int bound, int bestFrom, int bestTo)
+    {
+        int generation = getGeneration();
+        int bucket = getBucketOffset(key);
+
+        // use the slot already holding this position if there is one, otherwise the least valuable one
+        int replaceSlot = -1;
+        int lowestValue = Integer.MAX_VALUE;
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++)
+        {
+            int slot = bucket + i * SLOT_BYTES;
+            long entry = (long)LONGS.getOpaque(buffer, slot);
+            long check = (long)LONGS.getOpaque(buffer, slot + 8);
+            if (entry != 0 && (check ^ entry) == key)
+            {
+                // (but keep a deeper result for the same position)
+                if (TranspositionTable.unpackDepth(entry) > depth)
+                    return;
+                replaceSlot = slot;
+                break;
+            }
+
+            int value;
+            if (entry == 0)
+                value = Integer.MIN_VALUE;
+            else
+            {
+                int age = (generation - (int)(entry >>> GENERATION_SHIFT)) & GENERATION_MASK;
+                value = TranspositionTable.unpackDepth(entry) - AGE_PENALTY * age;
+            }
+            if (value < lowestValue)
+            {
+                lowestValue = value;
+                replaceSlot = slot;
+            }
+        }
+
+        long entry = TranspositionTable.pack(depth, score, bound, bestFrom, bestTo) |
+                     ((long)generation << GENERATION_SHIFT);
+        LONGS.setOpaque(buffer, replaceSlot, entry);
+        LONGS.setOpaque(buffer, replaceSlot + 8, key ^ entry);
+    }
+
+    /**
+     * Moves on to a new generation, so entries from earlier searches are replaced before newer ones.
+     * Should be called at the start of every search.
+     */
+    public void newSearch()
+    {
+        LONGS.getAndAdd(buffer, GENERATION_OFFSET, 1L);
+    }
+
+    /**
+     * @return Returns the current generation (as stored in entries).
+     */
+    public int getGeneration()
+    {
+        return (int)((long)LONGS.getVolatile(buffer, GENERATION_OFFSET)) & GENERATION_MASK;
+    }
+
+    /**
+     * @return Returns the number of entries the table can hold.
+     */
+    public int getEntryCount()
+    {
+        return (bucketMask + 1) * SLOTS_PER_BUCKET;
+    }
+
+    /**
+     * @return Returns the file the table is kept in.
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Writes everything to the disk and closes the file.
+     * (the memory stays mapped until it is garbage collected, but shouldn't be used after this)
+     * @throws IOException If the file can't be written
+     */
+    public void close() throws IOException
+    {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * @return Returns the offset in the file of the bucket the given key belongs in.
+     * @param key The (canonical) hash of the position
+     */
+    private int getBucketOffset(long key)
+    {
+        return HEADER_BYTES + ((int)key & bucketMask) * BUCKET_BYTES;
+    }
+}
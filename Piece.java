@@ -1,10 +1,13 @@
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 /**
  * A class representing a game piece, and handling interactions with it.
  * 
  * @author Mckenna Cisler
- * @version 11.23.2015
+ * @version 10.19.2026
  */
 public class Piece
 {
@@ -27,6 +30,19 @@ public class Piece
 		this.isWhite = isWhite;
     }
 
+    /**
+     * Constructor for objects of class Piece
+     * Copies the position, color and kingness of another piece.
+     * @param piece The piece to copy.
+     */
+    public Piece(Piece piece)
+    {
+        this.x = piece.x;
+        this.y = piece.y;
+        this.isWhite = piece.isWhite;
+        this.isKing = piece.isKing;
+    }
+
     /**
      * @return Returns a two-part array representing the coordinates of this piece's position.
      */
@@ -66,6 +82,23 @@ public class Piece
         isKing = true;
     }
     
+    /**
+     * Sets whether this piece is a king (used to take back a move that crowned this piece)
+     * @param isKing Whether this piece should be a king
+     */
+    public void setKing(boolean isKing)
+    {
+        this.isKing = isKing;
+    }
+    
+    /**
+     * @return Returns true if this piece is a king
+     */
+    public boolean isKing()
+    {
+        return isKing;
+    }
+    
     /**
      * Switches this peice to be a king if it is at the end of the board.
      * Should be called after every move.
@@ -90,164 +123,322 @@ public class Piece
     }
     
     /**
-     * Generates all physically possible moves of the given piece.
-     * (Only actually generates the non-jumping moves - jumps are done recusively in getAllPossibleJumps)
-     * @return Returns a list of all the moves (including recusively found jumps), including each individual one involved in every jump.
-     * @param board The board to work with - assumed to be flipped to correspond to this piece's color.
+     * Generates all legal moves of this piece.
+     * Jumping is compulsory, so if any piece of this color can jump, only this piece's jumps are legal
+     * (and only complete ones - a series of jumps can't be stopped early).
+     * @return Returns a list of all the legal moves of this piece (null if there are none).
+     * @param board The board to work with.
      */
     public Move[] getAllPossibleMoves(Board board)
     {
         // create expandable list of all moves
         ArrayList<Move> moves = new ArrayList<Move>();
         
-        // change y endpoints based on kingness and color=direction of movement
-        int startingY, yIncrement;
-        if (isWhite)
+        if (board.hasCapture(this.isWhite))
+            this.addAllPossibleJumps(board, moves);
+        else
+            this.addAllPossibleSteps(board, moves);
+
+        // IF there are some moves, shorten and return ArrayList as a normal array
+        if (!moves.isEmpty())
         {
-            // if it's white, we move from further down the board backwards to possible king position
-            startingY = this.y + 1; 
-            yIncrement = -2;
+            moves.trimToSize();
+            return moves.toArray(new Move[1]); // convert to Move objects
         }
         else 
-        {
-            // if it's black, we move from further up the board forward to possible king position
-            startingY = this.y - 1;
-            yIncrement = 2;
-        }
-        
-        // use kingess to determine number of rows to check
-        int rowsToCheck = 1; // default as non-king
-        if (this.isKing)
-            rowsToCheck = 2;
+            return null; // return null otherwise to symbolize no moves
+    }
+    
+    /**
+     * @return Returns true if this piece can move (or jump) in the given direction (men can only go forwards,
+     * which for white is down the board and for black up it)
+     * @param direction The direction (see BoardGeometry)
+     */
+    private boolean canMoveIn(int direction)
+    {
+        return isKing || BoardGeometry.getDirectionY(direction) == (isWhite ? 1 : -1);
+    }
+    
+    /**
+     * @return Returns true if this piece is a king that flies (moves and jumps any distance along a diagonal, see Variant).
+     * @param board The board to work with.
+     */
+    private boolean isFlying(Board board)
+    {
+        return isKing && board.getVariant().hasFlyingKings();
+    }
+    
+    /**
+     * Adds all the normal (non-jumping) moves of this piece to the given list.
+     * @param board The board to work with.
+     * @param moves The list to add the moves to.
+     */
+    public void addAllPossibleSteps(Board board, List<Move> moves)
+    {
+        BoardGeometry geometry = board.getGeometry();
+        int square = geometry.getSquare(this.x, this.y);
+        boolean isFlying = isFlying(board);
         
-        // iterate over the four spaces where normal (non-jumping) moves are possible        
-        for (int x = this.x - 1; x <= this.x + 1; x += 2)
+        // iterate over the two (or four, for kings) diagonal spaces next to us
+        for (int direction = 0; direction < BoardGeometry.DIRECTIONS; direction++)
         {
-            // go over the rows (or row) (we iterate the number of times determined by the kingess above)
-            int y = startingY - yIncrement; // add this so we can add the normal increment before the boundary checks
-            for (int i = 0; i < rowsToCheck; i++) 
+            if (!canMoveIn(direction))
+                continue;
+            
+            // a flying king can go to any of the empty spaces along the diagonal, up to the first piece
+            if (isFlying)
             {
-                // increment y if we need to (this will have no effect if we only run one iteration)
-                y += yIncrement;
-                
-                // check for going off end of board, in which case just skip this iteration (we may do this twice if at a corner)
-                if (board.isOverEdge(x, y))
-                    continue;
-                
-                // add a move here if there's not a piece 
-                if (board.getValueAt(x, y) == null)
+                int[] ray = geometry.getRay(square, direction);
+                int openLength = getOpenLength(board, square, direction, square);
+                for (int i = 0; i < openLength; i++)
                 {
-                    // this is not jump move in any case, and is always the first move
-                    moves.add(new Move(this.x, this.y, x, y, null, false)); 
+                    moves.add(new Move(this.x, this.y, geometry.getX(ray[i]), geometry.getY(ray[i]), null, false));
                 }
+                continue;
             }
+            
+            // add a move here if it's on the board and there's not a piece
+            int target = geometry.getNeighbour(square, direction);
+            if (target >= 0 && !board.isOccupied(target))
+                moves.add(new Move(this.x, this.y, geometry.getX(target), geometry.getY(target), null, false));
+        }
+    }
+    
+    /**
+     * @return Returns true if this piece has at least one jump available (without finding what the jumps are)
+     * @param board The board to work with.
+     */
+    public boolean canJump(Board board)
+    {
+        int square = board.getGeometry().getSquare(this.x, this.y);
+        return canJumpFrom(board, square, square, null);
+    }
+    
+    /**
+     * @return Returns true if this piece could jump from the given square.
+     * @param board The board to work with.
+     * @param square The square to jump from
+     * @param startingSquare The square this piece started on (which it has left, so can land on)
+     * @param captured The squares of the pieces jumped so far this move (null if there are none, or for a man)
+     */
+    private boolean canJumpFrom(Board board, int square, int startingSquare, long[] captured)
+    {
+        for (int direction = 0; direction < BoardGeometry.DIRECTIONS; direction++)
+        {
+            if (canMoveIn(direction) && getJumpedSquare(board, square, direction, startingSquare, captured) >= 0)
+                return true;
         }
+        return false;
+    }
+    
+    /**
+     * Adds all the complete jumping moves of this piece to the given list.
+     * Each move added is the last jump of a series that can't be continued any further
+     * (the earlier jumps are its preceding moves). Series that start and end on the same squares and capture the same pieces
+     * (only just in a different order) are the same move, so only the first one found of them is added.
+     * @param board The board to work with.
+     * @param moves The list to add the moves to.
+     */
+    public void addAllPossibleJumps(Board board, List<Move> moves)
+    {
+        BoardGeometry geometry = board.getGeometry();
+        int square = geometry.getSquare(this.x, this.y);
         
-        // after we've checked all normal moves, look for and add all possible jumps (recusively as well - I mean ALL jumps)
-        Move[] possibleJumps = this.getAllPossibleJumps(board, null);
-        if (possibleJumps != null)
-            moves.addAll(Arrays.asList(possibleJumps));
-
-        // IF there are some moves, shorten and return ArrayList as a normal array
-        if (!moves.isEmpty())
+        // a man only goes forwards, so it can never come back to a piece it's jumped (or a square it's been on),
+        // which means only kings need to keep track of what they've captured and where they've been
+        if (this.isKing)
+            addAllPossibleJumps(board, square, square, new long[geometry.getWordCount()], null, moves, new HashSet<JumpState>());
+        else
+            addAllPossibleJumps(board, square, square, null, null, moves, null);
+    }
+    
+    /**
+     * Finds all jumping moves continuing from the given square, recursively.
+     * The board isn't changed while doing this, so we have to keep in mind that this piece has left
+     * its starting square and that the pieces already jumped can't be jumped again.
+     * 
+     * Where this piece can go next only depends on the square it's on and the pieces it has captured, not on the order
+     * it captured them in, so the ways of jumping form a graph of those states rather than a tree of every series.
+     * A king that gets to a state it's already been in would only find the same moves again, so it stops there,
+     * which keeps the work down to the number of states instead of the (much larger) number of ways through them.
+     * @param board The board to work with.
+     * @param square The square this piece has jumped to so far
+     * @param startingSquare The square this piece started on
+     * @param captured The squares of the pieces a king has jumped so far (see BoardGeometry), which is put back as it was
+     * before returning (null for a man)
+     * @param precedingMove The jumps made so far - should be null at first call.
+     * @param moves The list to add the complete moves to.
+     * @param reached The states a king has already jumped from (null for a man)
+     */
+    private void addAllPossibleJumps(Board board, int square, int startingSquare, long[] captured, Move precedingMove,
+                                     List<Move> moves, Set<JumpState> reached)
+    {
+        // (it takes at least two jumps to get anywhere two different ways)
+        if (reached != null && precedingMove != null && precedingMove.getPrecedingMove() != null &&
+            !reached.add(new JumpState(square, captured)))
+            return;
+        
+        BoardGeometry geometry = board.getGeometry();
+        boolean jumpFound = false;
+        
+        for (int direction = 0; direction < BoardGeometry.DIRECTIONS; direction++)
         {
-            moves.trimToSize();
-            return moves.toArray(new Move[1]); // convert to Move objects
+            int jumped = canMoveIn(direction) ? getJumpedSquare(board, square, direction, startingSquare, captured) : -1;
+            if (jumped < 0)
+                continue;
+            
+            jumpFound = true;
+            if (isFlying(board))
+            {
+                addFlyingJumps(board, square, direction, jumped, startingSquare, captured, precedingMove, moves, reached);
+                continue;
+            }
+            int landing = geometry.getJumpLanding(square, direction);
+            Move jumpingMove = new Move(geometry.getX(square), geometry.getY(square),
+                                        geometry.getX(landing), geometry.getY(landing), precedingMove, true);
+            
+            // a man that reaches the far side is crowned, which ends its move; otherwise keep jumping if we can
+            if (!this.isKing && geometry.isPromotionSquare(landing, this.isWhite))
+                moves.add(jumpingMove);
+            else if (captured == null)
+                addAllPossibleJumps(board, landing, startingSquare, null, jumpingMove, moves, null);
+            else
+            {
+                BoardGeometry.addSquare(captured, jumped);
+                addAllPossibleJumps(board, landing, startingSquare, captured, jumpingMove, moves, reached);
+                BoardGeometry.removeSquare(captured, jumped);
+            }
         }
-        else 
-            return null; // return null otherwise to symbolize no moves
+        
+        // if we couldn't jump any further, the jumps so far are a complete move
+        if (!jumpFound && precedingMove != null)
+            moves.add(precedingMove);
     }
     
     /**
-     * Finds all jumping moves originating from this piece.
-     * Does this recursivly; for each move a new imaginary piece will be generated,
-     * and this function will then be called on that piece to find all possible subsequent moves.
-     * @param board The board to work with - assumed to be flipped to correspond to this piece's color.
-     * @param precedingMove The moves preceding the call to search for moves off this piece - only used
-     * in recursion, should be set to null at first call. (if it's not, it means this piece is imaginary).
+     * Adds the jumps of a flying king over the given piece, which can land on any of the empty spaces past it,
+     * then keeps jumping from each (recursively). The series of jumps has to go on if it can, so if it can from some
+     * of those spaces, only landing on those is allowed.
+     * @param board The board to work with.
+     * @param square The square this piece has jumped to so far
+     * @param direction The direction to jump in
+     * @param jumped The square of the piece to jump (see getJumpedSquare)
+     * @param startingSquare The square this piece started on
+     * @param captured The squares of the pieces jumped so far, which is put back as it was before returning
+     * @param precedingMove The jumps made so far (null if this is the first)
+     * @param moves The list to add the complete moves to.
+     * @param reached The states this piece has already jumped from
      */
-    private Move[] getAllPossibleJumps(Board board, Move precedingMove)
+    private void addFlyingJumps(Board board, int square, int direction, int jumped, int startingSquare, long[] captured,
+                                Move precedingMove, List<Move> moves, Set<JumpState> reached)
     {
-        // create expandable list of all moves
-        ArrayList<Move> moves = new ArrayList<Move>();
+        BoardGeometry geometry = board.getGeometry();
+        int[] landings = geometry.getRay(jumped, direction);
+        int landingCount = getOpenLength(board, jumped, direction, startingSquare);
         
-        // this is the same as above except we're doing a large cube (4x4)
-        // change y endpoints based on kingness and color=direction of movement
-        int startingY, yIncrement;
-        if (isWhite)
+        BoardGeometry.addSquare(captured, jumped);
+        boolean mustGoOn = false;
+        for (int i = 0; i < landingCount && !mustGoOn; i++)
         {
-            // if it's white, we move from further down the board backwards to possible king position
-            startingY = this.y + 2;
-            yIncrement = -4;
+            mustGoOn = canJumpFrom(board, landings[i], startingSquare, captured);
         }
-        else 
+        for (int i = 0; i < landingCount; i++)
         {
-            // if it's black, we move from further up the board forward to possible king position
-            startingY = this.y - 2;
-            yIncrement = 4;
+            if (mustGoOn && !canJumpFrom(board, landings[i], startingSquare, captured))
+                continue;
+            Move jumpingMove = new Move(geometry.getX(square), geometry.getY(square),
+                                        geometry.getX(landings[i]), geometry.getY(landings[i]), precedingMove, true);
+            addAllPossibleJumps(board, landings[i], startingSquare, captured, jumpingMove, moves, reached);
         }
+        BoardGeometry.removeSquare(captured, jumped);
+    }
+    
+    /**
+     * @return Returns the square of the piece this piece would jump going from the given square in the given direction,
+     * or -1 if it can't jump that way.
+     * @param board The board to work with.
+     * @param square The square to jump from
+     * @param direction The direction to jump in
+     * @param startingSquare The square this piece started on (which it has left, so can land on)
+     * @param captured The squares of the pieces jumped so far this move (null if there are none, or for a man)
+     */
+    private int getJumpedSquare(Board board, int square, int direction, int startingSquare, long[] captured)
+    {
+        BoardGeometry geometry = board.getGeometry();
         
-        // use kingess to determine number of rows to check
-        int rowsToCheck = 1; // default as non-king
-        if (this.isKing)
-            rowsToCheck = 2;
+        // there has to be a different-colored piece next to us (or for a flying king, the first piece along the diagonal)...
+        int jumped = isFlying(board) ? getFirstPieceInRay(board, square, direction, startingSquare) :
+                                       geometry.getNeighbour(square, direction);
+        if (jumped < 0 || !board.hasPieceAt(jumped, !this.isWhite))
+            return -1;
+        
+        // ...that we haven't already jumped (kings could otherwise go in circles forever)...
+        if (captured != null && BoardGeometry.containsSquare(captured, jumped))
+            return -1;
         
-        // iterate over the four spaces where normal (non-jumping) moves are possible        
-        for (int x = this.x - 2; x <= this.x + 2; x += 4)
+        // ...and nothing in the space behind it (except maybe ourselves, as we've left our starting space)
+        int landing = geometry.getNeighbour(jumped, direction);
+        return landing >= 0 && (landing == startingSquare || !board.isOccupied(landing)) ? jumped : -1;
+    }
+    
+    /**
+     * @return Returns the first square holding a piece along the diagonal from the given square in the given direction
+     * (other than this piece's starting square, which it has left), or -1 if there isn't one.
+     * @param board The board to work with.
+     * @param square The square to look from
+     * @param direction The direction to look in
+     * @param startingSquare The square this piece started on
+     */
+    private int getFirstPieceInRay(Board board, int square, int direction, int startingSquare)
+    {
+        int first = board.getFirstOccupied(square, direction);
+        return first == startingSquare ? board.getFirstOccupied(startingSquare, direction) : first;
+    }
+    
+    /**
+     * @return Returns the number of empty spaces along the diagonal from the given square in the given direction,
+     * before the first piece (see getFirstPieceInRay) or the edge of the board.
+     * @param board The board to work with.
+     * @param square The square to look from
+     * @param direction The direction to look in
+     * @param startingSquare The square this piece started on (which it has left, so counts as empty)
+     */
+    private int getOpenLength(Board board, int square, int direction, int startingSquare)
+    {
+        BoardGeometry geometry = board.getGeometry();
+        int first = getFirstPieceInRay(board, square, direction, startingSquare);
+        return first < 0 ? geometry.getRay(square, direction).length : geometry.getDistance(square, first) - 1;
+    }
+    
+    /**
+     * A point part way through a series of jumps: the square the piece is on and the pieces it has captured so far.
+     */
+    private static final class JumpState
+    {
+        private final int square;
+        private final long[] captured;
+        
+        /**
+         * @param square The square the piece is on
+         * @param captured The squares of the pieces captured so far (copied, as it goes on changing)
+         */
+        JumpState(int square, long[] captured)
         {
-            // go over the rows (or row) (we iterate the number of times determined by the kingess above)
-            int y = startingY - yIncrement; // add this so we can add the normal increment before the boundary checks in the loop
-            for (int i = 0; i < rowsToCheck; i++) 
-            {
-                // increment y if we need to (this will have no effect if we only run one iteration)
-                y += yIncrement;
-                
-                // check for going off end of board, in which case just skip this iteration (we may do this twice if at a corner)
-                if (board.isOverEdge(x, y))
-                    continue;
-                
-                // don't try to go backward to our old move start so we don't get in infinite recursion loops
-                if (precedingMove != null &&
-                    x == precedingMove.getStartingPosition()[0] && 
-                    y == precedingMove.getStartingPosition()[1])
-                    continue;
-                
-                // test if there is a different-colored piece between us (at the average of our position) and the starting point 
-                // AND that there's no piece in the planned landing space (meaning we can possible jump there)
-                Piece betweenPiece = board.getValueAt( (this.x + x)/2 , (this.y + y)/2 );
-                if (betweenPiece != null &&
-                    betweenPiece.isWhite != this.isWhite &&
-                    board.getValueAt(x, y) == null)
-                {
-                    // in which case, add a move here, and note that it is a jump (we may be following some other jumps)
-                    Move jumpingMove = new Move(this.x, this.y, x, y, precedingMove, true); // origin points are absolute origin (ORIGINAL piece)
-                    
-                    // then add it to our list
-                    moves.add(jumpingMove);
-                      
-                    // after jumping, create an imaginary piece as if it was there to look for more jumps
-                    Piece imaginaryPiece = new Piece(x, y, this.isWhite);
-                    
-					// correspond possible jumps to this piece's kingness
-               		if (this.isKing) imaginaryPiece.setKing();
-                    
-                    // find possible subsequent moves recusivly
-                    Move[] subsequentMoves = imaginaryPiece.getAllPossibleJumps(board, jumpingMove);
-                    
-                    // add these moves to our list if they exist, otherwise just move on to other possibilities
-                    if (subsequentMoves != null)
-                        moves.addAll(Arrays.asList(subsequentMoves));
-                }
-            }
+            this.square = square;
+            this.captured = captured.clone();
         }
-
-        // IF there are some moves, shorten and return ArrayList as a normal array
-        if (!moves.isEmpty())
+        
+        public boolean equals(Object other)
         {
-            moves.trimToSize();
-            return moves.toArray(new Move[1]); // convert to Move arrays
+            if (!(other instanceof JumpState))
+                return false;
+            JumpState state = (JumpState)other;
+            return square == state.square && Arrays.equals(captured, state.captured);
+        }
+        
+        public int hashCode()
+        {
+            return 31*square + Arrays.hashCode(captured);
         }
-        else 
-            return null; // return null otherwise to symbolize no moves
     }
 }
@@ -1,17 +1,136 @@
-
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
 /**
  * An abstract version of a player, from which Human and AI Players will be extended.
  * Used so that both player types can be used interchangably.
- * 
+ *
+ * A move can be asked for without waiting on it (see requestMove), so one thread can look after many games
+ * while their players think. Asking can be called off (by cancelling the future, or giving it a time limit),
+ * which lets the player stop thinking early. Each move asked for this way is timed (in CPU time on the thread
+ * it was thought about on), and players that score their moves say what they thought the last one was worth,
+ * so a game's result can be called early once it's clear (see Adjudicator).
+ *
  * @author Mckenna Cisler
- * @version 11.23.2015
+ * @version 10.19.2026
  */
 public abstract class Player
 {
+    // the score given by players that don't score their moves
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private static final ThreadMXBean threadTimes = ManagementFactory.getThreadMXBean();
+
+    // the CPU time taken to think of the last move asked for by requestMove (in nanoseconds)
+    private volatile long lastMoveCpuNanos;
+
+    /**
+     * Decides on a move, by asking the given player what move they want to do.
+     * @param board The board to move on (it is left unchanged)
+     * @param isCancelled Says whether the move isn't wanted any more, so the player can stop thinking early
+     * @return Returns the move chosen (one of board.getLegalMoves()), or null if the player has no move or quits
+     */
+    public abstract Move chooseMove(Board board, BooleanSupplier isCancelled);
+
     /**
      * Gets a move, by asking the given player what move they want to do.
      * @param board The board to apply the move to
      * @return Returns the board, modified according to the player's move
      */
-    public abstract Board getMove(Board board);
+    public Board getMove(Board board)
+    {
+        Move move = chooseMove(board, () -> false);
+        if (move != null)
+            board.applyMoveToBoard(move);
+        return board;
+    }
+
+    /**
+     * Asks for a move without waiting for it: the player thinks (on a copy of the board) on the given executor.
+     * Cancelling the future (or it timing out) tells the player to stop thinking, and whatever it then comes up with is ignored.
+     * @param board The board to move on (it isn't used after this returns, so it can go on changing)
+     * @param executor Where to do the thinking
+     * @return Returns the move, to be completed with null if the player has no move or quits
+     */
+    public CompletableFuture<Move> requestMove(Board board, Executor executor)
+    {
+        return requestMove(board, executor, null);
+    }
+
+    /**
+     * Asks for a move without waiting for it (see above), stopping every so often while thinking at a checkpoint,
+     * which can hold the player up (so a SearchScheduler can let other players think in the meantime).
+     * @param checkpoint Run every so often while the player thinks, on the thread it's thinking on (or null for none)
+     */
+    public CompletableFuture<Move> requestMove(Board board, Executor executor, Runnable checkpoint)
+    {
+        CompletableFuture<Move> move = new CompletableFuture<Move>();
+        Board copy = new Board(board);
+        BooleanSupplier isCancelled = checkpoint == null ? move::isDone : () -> {
+            checkpoint.run();
+            return move.isDone();
+        };
+        executor.execute(() -> {
+            // (no need to start if the move was called off while waiting to run)
+            if (move.isDone())
+                return;
+            try
+            {
+                // (the time is noted before the move is given, so whoever gets the move sees it)
+                long startCpuNanos = threadTimes.getCurrentThreadCpuTime();
+                Move chosen = chooseMove(copy, isCancelled);
+                lastMoveCpuNanos = threadTimes.getCurrentThreadCpuTime() - startCpuNanos;
+                move.complete(chosen);
+            }
+            catch (Throwable e)
+            {
+                move.completeExceptionally(e);
+            }
+        });
+        return move;
+    }
+
+    /**
+     * @return Returns what the player thought the last move it chose was worth, from its own point of view
+     * (in AIPlayer's units, where a man is worth Evaluator.MAN_VALUE), or NO_SCORE if it doesn't score its moves.
+     */
+    public int getLastScore()
+    {
+        return NO_SCORE;
+    }
+
+    /**
+     * @return Returns the CPU time it took to think of the last move asked for by requestMove, in nanoseconds
+     * (only counting the thread it was asked on, so not any helper threads the player thinks on as well).
+     */
+    public long getLastMoveCpuNanos()
+    {
+        return lastMoveCpuNanos;
+    }
+
+    /**
+     * Lets go of whatever the player holds on to between moves (like threads or tables), once it's finished playing.
+     * Players that hold nothing needn't do anything; any that do can still play afterwards, starting again from nothing.
+     */
+    public void releaseMemory()
+    {
+    }
+
+    /**
+     * Finds the legal move on the board that is the same as the given one (which may have been found on another board).
+     * @param board The board to check against
+     * @param move The move to look for
+     * @return Returns the board's own move, or null if the move isn't legal there
+     */
+    public static Move findLegalMove(Board board, Move move)
+    {
+        for (Move legalMove : board.getLegalMoves())
+        {
+            if (legalMove.isSameAs(move))
+                return legalMove;
+        }
+        return null;
+    }
 }
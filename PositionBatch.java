@@ -0,0 +1,162 @@
+/**
+ * A block of positions to be scored all at once by a BatchEvaluator.
+ *
+ * The positions are stored as a "structure of arrays": instead of one object per position, there is
+ * an array for each part of each set of squares, holding that part for every position, so the same part
+ * of neighbouring positions sits side by side in memory and can be loaded together.
+ *
+ * The squares (see BoardGeometry) are split into chunks of 32, and each chunk is stored as a long holding
+ * the white pieces in its low 32 bits and the black pieces in its high 32 bits. This way both colors are
+ * counted by the same operations. Kings are stored the same way, as a subset of the pieces.
+ * Every position in a batch must be on a board of the same size.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PositionBatch
+{
+    // the number of squares in each chunk (half a long), and the bits of a chunk that are white's
+    public static final int CHUNK_SQUARES = 32;
+    public static final long WHITE_HALF = 0xFFFFFFFFL;
+
+    private final BoardGeometry geometry;
+    private final int capacity;
+    private final int chunkCount;
+    private int count;
+
+    // [chunk][position] - the pieces and the kings (white in the low half, black in the high half)
+    private final long[][] pieces;
+    private final long[][] kings;
+
+    // whose turn it is in each position (scores are from the point of view of the player to move)
+    private final boolean[] isBlackTurn;
+
+    /**
+     * Constructor for the PositionBatch
+     * @param geometry The geometry of the board all of the positions are on
+     * @param capacity The most positions the batch can hold
+     */
+    public PositionBatch(BoardGeometry geometry, int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("A batch must hold at least one position");
+
+        this.geometry = geometry;
+        this.capacity = capacity;
+        this.chunkCount = getChunkCount(geometry);
+        this.pieces = new long[chunkCount][capacity];
+        this.kings = new long[chunkCount][capacity];
+        this.isBlackTurn = new boolean[capacity];
+    }
+
+    /**
+     * Adds the position on the given board to the end of the batch.
+     * @param board The board (it is copied, so can be changed afterwards)
+     * @return Returns the index of the position in the batch
+     */
+    public int add(Board board)
+    {
+        if (board.getGeometry() != geometry)
+            throw new IllegalArgumentException("All positions in a batch must be on the same size of board");
+        if (isFull())
+            throw new IllegalStateException("The batch is full");
+
+        for (int chunk = 0; chunk < chunkCount; chunk++)
+        {
+            // each word of the board's sets holds two chunks
+            int word = chunk / 2;
+            int shift = (chunk % 2) * CHUNK_SQUARES;
+            long white = (board.getPieceBits(true, word) >>> shift) & WHITE_HALF;
+            long black = (board.getPieceBits(false, word) >>> shift) & WHITE_HALF;
+            long kingBits = (board.getKingBits(word) >>> shift) & WHITE_HALF;
+
+            pieces[chunk][count] = white | (black << CHUNK_SQUARES);
+            kings[chunk][count] = (white & kingBits) | ((black & kingBits) << CHUNK_SQUARES);
+        }
+        isBlackTurn[count] = !board.isWhiteTurn;
+        return count++;
+    }
+
+    /**
+     * Removes every position from the batch, so it can be filled again.
+     */
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+     * @return Returns the number of positions in the batch.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return Returns the most positions the batch can hold.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return Returns true if no more positions can be added.
+     */
+    public boolean isFull()
+    {
+        return count == capacity;
+    }
+
+    /**
+     * @return Returns the geometry of the board all of the positions are on.
+     */
+    public BoardGeometry getGeometry()
+    {
+        return geometry;
+    }
+
+    /**
+     * @return Returns the number of chunks the squares of each position are split into.
+     */
+    public int getChunkCount()
+    {
+        return chunkCount;
+    }
+
+    /**
+     * @return Returns one chunk of the pieces of both colors, for every position (only the first size() entries are used).
+     * @param chunk Which chunk (0 to getChunkCount() - 1)
+     */
+    public long[] getPieces(int chunk)
+    {
+        return pieces[chunk];
+    }
+
+    /**
+     * @return Returns one chunk of the kings of both colors, for every position (only the first size() entries are used).
+     * @param chunk Which chunk (0 to getChunkCount() - 1)
+     */
+    public long[] getKings(int chunk)
+    {
+        return kings[chunk];
+    }
+
+    /**
+     * @return Returns whether it is black's turn in each position (only the first size() entries are used).
+     */
+    public boolean[] getBlackTurns()
+    {
+        return isBlackTurn;
+    }
+
+    /**
+     * @return Returns the number of chunks needed for the squares of a board.
+     * @param geometry The geometry of the board
+     */
+    public static int getChunkCount(BoardGeometry geometry)
+    {
+        return (geometry.getSquareCount() + CHUNK_SQUARES - 1) / CHUNK_SQUARES;
+    }
+}
@@ -0,0 +1,367 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+/**
+ * An index of the positions reached in a collection of games (built by a PositionIndexWriter),
+ * for finding which games reached a position and how they ended.
+ *
+ * The file holds blocks of postings (a position's hash, a game's id and its result) sorted by hash,
+ * followed by where each game starts in its PDN file, and a directory with the first hash of every block.
+ * Only the directory is kept in memory: finding a position searches it for the blocks that can hold the position's
+ * hash, and reads just those from the file.
+ *
+ * Run with: java PositionIndex [index file] [moves...]
+ * (the moves, in numeric notation like 11-15, lead to the position to look up from the start)
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PositionIndex implements Closeable
+{
+    // the header: a number marking the file as an index, the format version, the size of board, the number of games
+    // and of blocks, the number of postings, where the game offsets and the directory start, and the name of the variant
+    // (in ASCII, padded with zeros to the end of the header)
+    static final long MAGIC = 0x43484B4944583031L; // "CHKIDX01"
+    static final int FORMAT = 2;
+    static final int VARIANT_OFFSET = 48;
+    static final int HEADER_BYTES = 96;
+
+    // the most bytes a long takes up written with writeVarLong
+    static final int MAX_VARINT_BYTES = 10;
+
+    // the most games listed by main()
+    private static final int GAMES_TO_LIST = 20;
+
+    private final FileChannel channel;
+    private final Variant variant;
+    private final int gameCount;
+    private final long postingCount;
+    private final long gameTableOffset;
+
+    // the first hash in each block, and where each block starts (with the end of the last one after it)
+    private final long[] blockHashes;
+    private final long[] blockOffsets;
+
+    /**
+     * Opens an index file.
+     * @param path The file
+     * @throws IOException If it can't be read, or isn't an index
+     */
+    public PositionIndex(Path path) throws IOException
+    {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = read(0, HEADER_BYTES);
+            if (header.getLong() != MAGIC)
+                throw new IOException(path + " is not a position index");
+            int format = header.getInt();
+            if (format != FORMAT)
+                throw new IOException(path + " is a position index of an older format (format " + format +
+                                      "), which has to be made again");
+            int boardSize = header.getInt();
+            gameCount = header.getInt();
+            int blockCount = header.getInt();
+            postingCount = header.getLong();
+            gameTableOffset = header.getLong();
+            long directoryOffset = header.getLong();
+            variant = readVariant(header, boardSize, path);
+
+            ByteBuffer directory = read(directoryOffset, 16 * blockCount);
+            blockHashes = new long[blockCount];
+            blockOffsets = new long[blockCount + 1];
+            for (int i = 0; i < blockCount; i++)
+            {
+                blockHashes[i] = directory.getLong();
+                blockOffsets[i] = directory.getLong();
+            }
+            blockOffsets[blockCount] = gameTableOffset;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        try (PositionIndex index = new PositionIndex(Paths.get(args[0])))
+        {
+            // play the moves from the start to get the position
+            Variant variant = index.getVariant();
+            PdnGame moves = new PdnGame(0, Collections.<String, String>emptyMap(), Arrays.asList(args).subList(1, args.length), "*");
+            long[] hashes = moves.replay(variant);
+
+            long startTime = System.nanoTime();
+            List<Hit> hits = index.find(hashes[hashes.length - 1]);
+            double millis = (System.nanoTime() - startTime) / 1e6;
+
+            int[] results = new int[4];
+            for (Hit hit : hits)
+            {
+                results[hit.getResult()]++;
+            }
+            System.out.printf("%d of %d games reached this position (found in %.2fms): white won %d, black won %d, %d drawn, %d unknown%n",
+                              hits.size(), index.getGameCount(), millis, results[PdnGame.WHITE_WINS],
+                              results[PdnGame.BLACK_WINS], results[PdnGame.DRAW], results[PdnGame.UNKNOWN]);
+            for (int i = 0; i < Math.min(GAMES_TO_LIST, hits.size()); i++)
+            {
+                Hit hit = hits.get(i);
+                System.out.println("Game " + hit.getGameId() + " (at byte " + index.getGameOffset(hit.getGameId()) +
+                                   " of its file): " + new String[] {"white won", "black won", "drawn", "unknown"}[hit.getResult()]);
+            }
+        }
+    }
+
+    /**
+     * Finds the games that reached a position.
+     * @param hash The hash of the position (see Board.getHash)
+     * @return Returns the games, in order of their ids
+     * @throws IOException If the index can't be read
+     */
+    public List<Hit> find(long hash) throws IOException
+    {
+        List<Hit> hits = new ArrayList<Hit>();
+
+        // the position can be in any block starting with a hash up to its own, from the last block starting
+        // before it (so read them all at once)
+        if (blockHashes.length == 0)
+            return hits;
+        int first = findLastBlockBefore(hash);
+        int last = first;
+        while (last + 1 < blockHashes.length && Long.compareUnsigned(blockHashes[last + 1], hash) <= 0)
+        {
+            last++;
+        }
+        ByteBuffer blocks = read(blockOffsets[first], (int)(blockOffsets[last + 1] - blockOffsets[first]));
+
+        // read the postings, as written by PositionIndexWriter
+        for (int block = first; block <= last; block++)
+        {
+            long postingHash = blockHashes[block];
+            long game = 0;
+            int end = (int)(blockOffsets[block + 1] - blockOffsets[first]);
+            while (blocks.position() < end)
+            {
+                long hashDistance = readVarLong(blocks);
+                long value = readVarLong(blocks);
+                postingHash += hashDistance;
+                game = hashDistance == 0 ? (game & ~3L) + value : value;
+
+                if (postingHash == hash)
+                    hits.add(new Hit((int)(game >>> 2), (int)(game & 3)));
+                else if (Long.compareUnsigned(postingHash, hash) > 0)
+                    return hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Finds the games that reached the given board's position.
+     * @param board The board
+     * @return Returns the games, in order of their ids
+     * @throws IOException If the index can't be read
+     */
+    public List<Hit> find(Board board) throws IOException
+    {
+        return find(board.getHash());
+    }
+
+    /**
+     * @return Returns where the given game starts in its PDN file, in bytes.
+     * @param gameId The game's id
+     * @throws IOException If the index can't be read
+     */
+    public long getGameOffset(int gameId) throws IOException
+    {
+        return read(gameTableOffset + 8L * gameId, 8).getLong();
+    }
+
+    /**
+     * Reads the variant from the header.
+     * @param header The header
+     * @param boardSize The size of board the header gives
+     * @param path The file (for errors)
+     * @return Returns the variant
+     * @throws IOException If it's not a variant (of that size of board)
+     */
+    private static Variant readVariant(ByteBuffer header, int boardSize, Path path) throws IOException
+    {
+        StringBuilder name = new StringBuilder();
+        for (int i = VARIANT_OFFSET; i < HEADER_BYTES && header.get(i) != 0; i++)
+        {
+            name.append((char)header.get(i));
+        }
+        try
+        {
+            Variant variant = Variant.valueOf(name.toString());
+            if (variant.getSize() == boardSize)
+                return variant;
+        }
+        catch (IllegalArgumentException e)
+        {
+            // (fall through to the error below)
+        }
+        throw new IOException(path + " holds games of an unknown variant (" + name + ")");
+    }
+
+    /**
+     * @return Returns the variant the games were played in.
+     */
+    public Variant getVariant()
+    {
+        return variant;
+    }
+
+    /**
+     * @return Returns the size of board the games were played on.
+     */
+    public int getBoardSize()
+    {
+        return variant.getSize();
+    }
+
+    /**
+     * @return Returns the number of games in the index.
+     */
+    public int getGameCount()
+    {
+        return gameCount;
+    }
+
+    /**
+     * @return Returns the number of postings in the index (positions, counted once for each game reaching them).
+     */
+    public long getPostingCount()
+    {
+        return postingCount;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException If it can't be closed
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Writes a long (treated as unsigned) in as few bytes as it fits: seven bits to a byte, lowest first,
+     * with the top bit of each byte set if more follow.
+     * @param bytes Where to write it
+     * @param offset Where in bytes to start
+     * @return Returns the offset after it
+     */
+    static int writeVarLong(byte[] bytes, int offset, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            bytes[offset++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte)value;
+        return offset;
+    }
+
+    /**
+     * @return Returns a long written by writeVarLong, from the buffer's position (moving past it).
+     */
+    static long readVarLong(ByteBuffer buffer)
+    {
+        long value = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    /**
+     * @return Returns the last block starting with a hash before the given one (or the first block if there are none).
+     */
+    private int findLastBlockBefore(long hash)
+    {
+        int low = 0;
+        int high = blockHashes.length - 1;
+        int found = 0;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(blockHashes[middle], hash) < 0)
+            {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+        return found;
+    }
+
+    /**
+     * @return Returns the given bytes of the file, in a buffer ready to be read.
+     * @param offset Where to start reading
+     * @param length The number of bytes to read
+     * @throws IOException If the file can't be read, or ends first
+     */
+    private ByteBuffer read(long offset, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IOException("The index file ends too soon");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A game found in the index.
+     */
+    public static class Hit
+    {
+        private final int gameId;
+        private final int result;
+
+        /**
+         * Constructor for the Hit
+         * @param gameId The game's id (the order it was added to the index in, from 0)
+         * @param result The game's result (one of PdnGame's results)
+         */
+        public Hit(int gameId, int result)
+        {
+            this.gameId = gameId;
+            this.result = result;
+        }
+
+        /**
+         * @return Returns the game's id (the order it was added to the index in, from 0).
+         */
+        public int getGameId()
+        {
+            return gameId;
+        }
+
+        /**
+         * @return Returns the game's result (one of PdnGame's results).
+         */
+        public int getResult()
+        {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+/**
+ * Builds a PositionIndex file from games added one at a time, using a fixed amount of memory however many
+ * games there are.
+ *
+ * Every position of a game becomes a posting: the position's hash, the game's id and its result.
+ * Postings are collected in memory until there are a few million, then sorted and written out to a temporary
+ * "run" file. When the index is closed, the runs are merged (in order) into the index file, in blocks of postings
+ * that are compressed by writing each one as the difference from the one before, in as few bytes as it fits.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class PositionIndexWriter implements Closeable
+{
+    // the number of postings in each block of the index (fewer makes looking up a position read less)
+    public static final int BLOCK_POSTINGS = 256;
+
+    // the number of postings sorted in memory at once
+    private static final int RUN_POSTINGS = 1 << 21;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+
+    private final Path path;
+    private final Variant variant;
+
+    // the postings of the run being collected: hashes, and game ids with the results in their lowest two bits
+    private final long[] runHashes = new long[RUN_POSTINGS];
+    private final long[] runGames = new long[RUN_POSTINGS];
+    private int runSize;
+    private final List<Path> runFiles = new ArrayList<Path>();
+
+    // where each game starts in its PDN file (by game id)
+    private long[] gameOffsets = new long[1024];
+    private int gameCount;
+    private long postingCount;
+
+    /**
+     * Starts a new index.
+     * @param path The file to write the index to (replacing it if it exists)
+     * @param variant The variant the games are played in (recorded in the index, so it's looked up with the same rules)
+     */
+    public PositionIndexWriter(Path path, Variant variant)
+    {
+        this.path = path;
+        this.variant = variant;
+    }
+
+    /**
+     * Adds a game to the index.
+     * @param offset Where the game starts in its PDN file, in bytes
+     * @param result The game's result (one of PdnGame's results)
+     * @param hashes The hashes of the positions the game reached (see PdnGame.replay)
+     * @return Returns the game's id
+     * @throws IOException If a run file can't be written
+     */
+    public int addGame(long offset, int result, long[] hashes) throws IOException
+    {
+        // only count each position once per game
+        long[] positions = hashes.clone();
+        Arrays.sort(positions);
+        if (runSize + positions.length > RUN_POSTINGS)
+            writeRun();
+
+        int id = gameCount++;
+        if (id == gameOffsets.length)
+            gameOffsets = Arrays.copyOf(gameOffsets, gameOffsets.length * 2);
+        gameOffsets[id] = offset;
+
+        for (int i = 0; i < positions.length; i++)
+        {
+            if (i > 0 && positions[i] == positions[i - 1])
+                continue;
+            runHashes[runSize] = positions[i];
+            runGames[runSize] = ((long)id << 2) | result;
+            runSize++;
+            postingCount++;
+        }
+        return id;
+    }
+
+    /**
+     * @return Returns the number of games added.
+     */
+    public int getGameCount()
+    {
+        return gameCount;
+    }
+
+    /**
+     * @return Returns the number of postings added (positions, counted once for each game reaching them).
+     */
+    public long getPostingCount()
+    {
+        return postingCount;
+    }
+
+    /**
+     * Writes the index file, and removes the run files.
+     * @throws IOException If the index can't be written
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            writeRun();
+            merge();
+        }
+        finally
+        {
+            for (Path runFile : runFiles)
+            {
+                Files.deleteIfExists(runFile);
+            }
+        }
+    }
+
+    /**
+     * Sorts the postings collected in memory, and writes them to a new run file.
+     */
+    private void writeRun() throws IOException
+    {
+        if (runSize == 0)
+            return;
+
+        sortPostings(0, runSize - 1);
+        Path runFile = Files.createTempFile(path.toAbsolutePath().getParent(), "run", ".tmp");
+        runFiles.add(runFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), STREAM_BUFFER_BYTES)))
+        {
+            out.writeInt(runSize);
+            for (int i = 0; i < runSize; i++)
+            {
+                out.writeLong(runHashes[i]);
+                out.writeLong(runGames[i]);
+            }
+        }
+        runSize = 0;
+    }
+
+    /**
+     * Merges the runs into the index file: the header, the blocks of postings, where each game starts,
+     * and the directory of blocks (the first hash in each, and where it starts).
+     */
+    private void merge() throws IOException
+    {
+        PriorityQueue<RunReader> runs = new PriorityQueue<RunReader>();
+        List<Long> blockHashes = new ArrayList<Long>();
+        List<Long> blockOffsets = new ArrayList<Long>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            for (Path runFile : runFiles)
+            {
+                RunReader run = new RunReader(runFile);
+                if (run.next())
+                    runs.add(run);
+            }
+
+            // (the header is written last, once everything in it is known)
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(channel.position(PositionIndex.HEADER_BYTES)), STREAM_BUFFER_BYTES));
+            long offset = PositionIndex.HEADER_BYTES;
+            byte[] block = new byte[BLOCK_POSTINGS * 2 * PositionIndex.MAX_VARINT_BYTES];
+            int blockBytes = 0;
+            int blockPostings = 0;
+            long lastHash = 0;
+            long lastGame = 0;
+            while (!runs.isEmpty())
+            {
+                RunReader run = runs.poll();
+                if (blockPostings == BLOCK_POSTINGS)
+                {
+                    out.write(block, 0, blockBytes);
+                    offset += blockBytes;
+                    blockBytes = 0;
+                    blockPostings = 0;
+                }
+
+                // each posting is the distance from the last hash, then the game id (and result) - as the distance
+                // from the last id if the hash is the same
+                if (blockPostings == 0)
+                {
+                    blockHashes.add(run.hash);
+                    blockOffsets.add(offset);
+                    lastHash = run.hash;
+                    lastGame = 0;
+                }
+                long game = run.hash == lastHash ? run.game - (lastGame & ~3L) : run.game;
+                blockBytes = PositionIndex.writeVarLong(block, blockBytes, run.hash - lastHash);
+                blockBytes = PositionIndex.writeVarLong(block, blockBytes, game);
+                blockPostings++;
+                lastHash = run.hash;
+                lastGame = run.game;
+
+                if (run.next())
+                    runs.add(run);
+                else
+                    run.close();
+            }
+            out.write(block, 0, blockBytes);
+            offset += blockBytes;
+
+            long gameTableOffset = offset;
+            for (int id = 0; id < gameCount; id++)
+            {
+                out.writeLong(gameOffsets[id]);
+            }
+            long directoryOffset = gameTableOffset + 8L * gameCount;
+            for (int i = 0; i < blockHashes.size(); i++)
+            {
+                out.writeLong(blockHashes.get(i));
+                out.writeLong(blockOffsets.get(i));
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+            header.putLong(PositionIndex.MAGIC);
+            header.putInt(PositionIndex.FORMAT);
+            header.putInt(variant.getSize());
+            header.putInt(gameCount);
+            header.putInt(blockHashes.size());
+            header.putLong(postingCount);
+            header.putLong(gameTableOffset);
+            header.putLong(directoryOffset);
+            header.position(PositionIndex.VARIANT_OFFSET);
+            header.put(variant.name().getBytes(StandardCharsets.US_ASCII));
+            header.clear();
+            channel.write(header, 0);
+        }
+        finally
+        {
+            for (RunReader run : runs)
+            {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Sorts the postings of the run between the given indices (inclusive) by hash (as unsigned numbers)
+     * and then by game.
+     */
+    private void sortPostings(int low, int high)
+    {
+        while (high - low > 16)
+        {
+            // split around the middle posting, then sort the smaller side and loop on the bigger one
+            int middle = (low + high) >>> 1;
+            long pivotHash = runHashes[middle];
+            long pivotGame = runGames[middle];
+            int i = low;
+            int j = high;
+            while (i <= j)
+            {
+                while (comparePostings(runHashes[i], runGames[i], pivotHash, pivotGame) < 0)
+                    i++;
+                while (comparePostings(runHashes[j], runGames[j], pivotHash, pivotGame) > 0)
+                    j--;
+                if (i <= j)
+                    swapPostings(i++, j--);
+            }
+            if (j - low < high - i)
+            {
+                sortPostings(low, j);
+                low = i;
+            }
+            else
+            {
+                sortPostings(i, high);
+                high = j;
+            }
+        }
+
+        // finish small ranges by insertion
+        for (int i = low + 1; i <= high; i++)
+        {
+            for (int j = i; j > low && comparePostings(runHashes[j - 1], runGames[j - 1], runHashes[j], runGames[j]) > 0; j--)
+            {
+                swapPostings(j - 1, j);
+            }
+        }
+    }
+
+    /**
+     * Swaps two postings of the run.
+     */
+    private void swapPostings(int i, int j)
+    {
+        long hash = runHashes[i];
+        runHashes[i] = runHashes[j];
+        runHashes[j] = hash;
+        long game = runGames[i];
+        runGames[i] = runGames[j];
+        runGames[j] = game;
+    }
+
+    /**
+     * @return Returns a negative number, zero or a positive number as the first posting comes before, with or after the second.
+     */
+    private static int comparePostings(long hash1, long game1, long hash2, long game2)
+    {
+        int compare = Long.compareUnsigned(hash1, hash2);
+        return compare != 0 ? compare : Long.compare(game1, game2);
+    }
+
+    /**
+     * Reads the postings of a run file in order, one at a time.
+     */
+    private static class RunReader implements Comparable<RunReader>, Closeable
+    {
+        private final DataInputStream in;
+        private int remaining;
+        long hash;
+        long game;
+
+        RunReader(Path runFile) throws IOException
+        {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), STREAM_BUFFER_BYTES));
+            this.remaining = in.readInt();
+        }
+
+        /**
+         * Moves on to the next posting.
+         * @return Returns false if there are no more
+         */
+        boolean next() throws IOException
+        {
+            if (remaining == 0)
+                return false;
+            remaining--;
+            hash = in.readLong();
+            game = in.readLong();
+            return true;
+        }
+
+        public int compareTo(RunReader other)
+        {
+            return comparePostings(hash, game, other.hash, other.game);
+        }
+
+        public void close() throws IOException
+        {
+            in.close();
+        }
+    }
+}
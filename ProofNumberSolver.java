@@ -0,0 +1,528 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Proves whether a position is a forced win, loss or draw for the player to move, by depth-first
+ * proof-number search (df-pn) over the legal moves, instead of searching to a fixed depth and guessing with
+ * a score like AIPlayer. Useful for checking endgames and puzzles, and for finding out whether a game is already decided.
+ *
+ * Every node of the search is a position together with the goal of the player to move there: either to win,
+ * or just not to lose. Trying to win, a player needs one move to a position where the opponent can't avoid losing;
+ * trying not to lose, a player needs one move to a position where the opponent can't win - so the goals alternate
+ * down the tree. Each node has a proof number and a disproof number: (an estimate of) how many more positions
+ * have to be solved to show the player to move reaches their goal, or doesn't. The search always goes down towards
+ * the position that looks easiest to decide, and only comes back up when a node's numbers pass the thresholds
+ * its parent set, so it needs no tree in memory - just a ProofTable of the numbers found so far.
+ *
+ * A position is first searched with the goal of winning; if that is disproved, it is searched again with
+ * the goal of not losing, which tells a draw from a loss. Draws come from Board.isDraw, and a position that comes up
+ * again along the line being searched also counts as a draw (a player who can win never needs to repeat a position,
+ * and one who can't will happily repeat it). As in most solvers, what is stored in the table about a position is
+ * used however the position was reached, even though draws depend on the moves that led to it - so very rarely
+ * a position reached by different routes can be misjudged.
+ *
+ * The search stops when it runs out of nodes or time. With more than one thread, every thread searches
+ * the same position with its own board, sharing the table, and breaking ties between equally easy moves at random
+ * so they spread out over different parts of the tree; whichever finishes first decides the result.
+ * A solver with more than one thread should be closed once it's no longer needed (with try-with-resources),
+ * which stops them.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class ProofNumberSolver implements AutoCloseable
+{
+    // search constants
+    public static final int INFINITY = 1 << 28;
+    public static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+    private static final double EPSILON = 0.25;
+    private static final int MAX_LINE_PLIES = 300;
+    private static final int NODES_PER_CHECK = 1024;
+
+    // the goals of the player to move at a node
+    private static final int WIN = 0;
+    private static final int NOT_LOSE = 1;
+
+    // the value XORed into the table keys of positions where the goal is not to lose
+    private static final long NOT_LOSE_KEY = 0x5851F42D4C957F2DL;
+
+    // main() constants
+    private static final int DEFAULT_PIECES = 6;
+    private static final int MAX_RANDOM_PLIES = 500;
+
+    // global variables
+    private final ProofTable table;
+    private final long nodeLimit;
+    private final long timeLimitMillis;
+    private final int threadCount;
+    private final ExecutorService threads;
+
+    // the state of the current solve
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile long deadline;
+    private volatile boolean stopped;
+    private volatile boolean rootSolved;
+
+    /**
+     * Constructor for the ProofNumberSolver
+     * @param tableEntries The number of entries in the table (which is all the memory the search needs)
+     * @param nodeLimit The most positions to search for each solve (or 0 for no limit)
+     * @param timeLimitMillis The most time to spend on each solve in milliseconds (or 0 for no limit)
+     * @param threadCount The number of threads to search on
+     */
+    public ProofNumberSolver(int tableEntries, long nodeLimit, long timeLimitMillis, int threadCount)
+    {
+        this.table = new ProofTable(tableEntries);
+        this.nodeLimit = nodeLimit;
+        this.timeLimitMillis = timeLimitMillis;
+        this.threadCount = Math.max(1, threadCount);
+
+        // use daemon threads, so they never keep the program from exiting
+        this.threads = this.threadCount == 1 ? null : Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "proof-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args)
+    {
+        Variant variant = args.length > 0 ? Variant.valueOf(args[0].toUpperCase()) : Variant.ENGLISH;
+        int pieces = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PIECES;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        long nodeLimit = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        long timeLimitMillis = args.length > 4 ? Long.parseLong(args[4]) * 1000 : 0;
+        int threadCount = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+        // play random moves until there are few enough pieces left
+        Board board = new Board(variant);
+        Random random = new Random(seed);
+        for (int ply = 0; ply < MAX_RANDOM_PLIES && countPieces(board) > pieces && !board.isDraw(); ply++)
+        {
+            Move[] moves = board.getLegalMoves();
+            if (moves.length == 0)
+                break;
+            board.applyMoveToBoard(moves[random.nextInt(moves.length)]);
+        }
+
+        System.out.println("Solving a position with " + countPieces(board) + " pieces, " +
+                           (board.isWhiteTurn ? "white" : "black") + " to move:");
+        try (ProofNumberSolver solver = new ProofNumberSolver(DEFAULT_TABLE_ENTRIES, nodeLimit, timeLimitMillis, threadCount))
+        {
+            System.out.println(solver.solve(board));
+            System.out.println(solver.table.size() + " table entries used, " +
+                               solver.table.getGarbageCollections() + " garbage collections");
+        }
+    }
+
+    /**
+     * Stops the solver's threads (if it has more than one), once it's done solving. It can't solve anything after this.
+     */
+    public void close()
+    {
+        if (threads != null)
+            threads.shutdown();
+    }
+
+    /**
+     * Finds out whether the player to move wins, loses or draws.
+     * @param board The position to solve (it is left unchanged)
+     * @return Returns the result, with the line of play showing it
+     */
+    public ProofResult solve(Board board)
+    {
+        long startTime = System.nanoTime();
+        deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis * 1000000 : Long.MAX_VALUE;
+        nodes.set(0);
+        stopped = false;
+        Board root = new Board(board);
+
+        // first see if the player to move can win, and if not, whether they can at least draw
+        ProofResult.Outcome outcome = ProofResult.Outcome.UNKNOWN;
+        int goal = WIN;
+        long value = search(root, WIN);
+        if (ProofTable.getProof(value) == 0)
+            outcome = ProofResult.Outcome.WIN;
+        else if (ProofTable.getDisproof(value) == 0)
+        {
+            goal = NOT_LOSE;
+            value = search(root, NOT_LOSE);
+            if (ProofTable.getProof(value) == 0)
+                outcome = ProofResult.Outcome.DRAW;
+            else if (ProofTable.getDisproof(value) == 0)
+                outcome = ProofResult.Outcome.LOSS;
+        }
+
+        Move[] line = outcome == ProofResult.Outcome.UNKNOWN ? new Move[0] : findLine(root, goal);
+        return new ProofResult(outcome, line, nodes.get(), (System.nanoTime() - startTime) / 1000000);
+    }
+
+    /**
+     * @return Returns the table of proof and disproof numbers.
+     */
+    public ProofTable getTable()
+    {
+        return table;
+    }
+
+    /**
+     * Searches a position with every thread until it is solved, or the nodes or time run out.
+     * @param board The position to search (it is left unchanged)
+     * @param goal The goal of the player to move
+     * @return Returns the proof and disproof numbers found for it (see ProofTable.pack)
+     */
+    private long search(Board board, int goal)
+    {
+        rootSolved = false;
+        if (threadCount == 1)
+            return new Searcher(board, null).searchRoot(goal);
+
+        // each thread works on its own copy of the board (and all but the first break ties at random)
+        List<Future<Long>> results = new ArrayList<Future<Long>>();
+        for (int i = 0; i < threadCount; i++)
+        {
+            Searcher searcher = new Searcher(new Board(board), i == 0 ? null : new Random(i));
+            results.add(threads.submit(() -> searcher.searchRoot(goal)));
+        }
+
+        // use the result of whichever thread solved it (or the first thread's, if none did)
+        long value = ProofTable.NOT_FOUND;
+        for (Future<Long> result : results)
+        {
+            long threadValue;
+            try
+            {
+                threadValue = result.get();
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException("A search thread failed", e);
+            }
+            if (value == ProofTable.NOT_FOUND || isSolved(threadValue))
+                value = threadValue;
+        }
+        return value;
+    }
+
+    /**
+     * Finds the line of play showing the result of a solved position: the player reaching their goal
+     * plays a move that reaches it (the one that took the least work to prove), and the other player
+     * the move that took the most work to refute (the longest resistance) - though a player who can't win
+     * sticks to moves known to keep the draw, if there are any. Positions that have been dropped
+     * from the table along the way are solved again.
+     * @param board The position (it is left unchanged)
+     * @param goal The goal of the player to move, which has been proved or disproved
+     * @return Returns the moves (cut short if the nodes or time run out)
+     */
+    private Move[] findLine(Board board, int goal)
+    {
+        rootSolved = false;
+        Searcher searcher = new Searcher(new Board(board), null);
+        Board lineBoard = searcher.board;
+        List<Move> line = new ArrayList<Move>();
+        while (line.size() < MAX_LINE_PLIES && !lineBoard.isDraw())
+        {
+            Move[] moves = lineBoard.getLegalMoves();
+            long value = searcher.solve(goal);
+            if (moves.length == 0 || !isSolved(value))
+                break;
+
+            // when the goal is reached we need one child that fails, otherwise every child succeeds
+            boolean reached = ProofTable.getProof(value) == 0;
+            int chosen = -1;
+            for (int attempt = 0; attempt < 2 && chosen < 0; attempt++)
+            {
+                // (if nothing suitable is in the table, solve the position again to put it back)
+                if (attempt == 1)
+                    searcher.solve(goal);
+
+                long chosenWork = 0;
+                boolean chosenHolds = false;
+                for (int i = 0; i < moves.length; i++)
+                {
+                    lineBoard.applyMoveToBoard(moves[i]);
+                    long childValue = reached ? searcher.getKnownValue(1 - goal) : searcher.solve(1 - goal);
+                    long work = lineBoard.isDraw() ? 1 : table.getWork(getKey(lineBoard, 1 - goal));
+
+                    // (failing to win, a move holds the draw if the opponent is known not to be able to win after it)
+                    boolean holds = !reached && goal == WIN && searcher.getKnownValue(WIN) != ProofTable.NOT_FOUND &&
+                                    ProofTable.getDisproof(searcher.getKnownValue(WIN)) == 0;
+                    lineBoard.undoLastMove();
+
+                    boolean fits = reached ? ProofTable.getDisproof(childValue) == 0 : ProofTable.getProof(childValue) == 0;
+                    boolean better = reached ? work < chosenWork : (holds && !chosenHolds) ||
+                                                                   (holds == chosenHolds && work > chosenWork);
+                    if (childValue != ProofTable.NOT_FOUND && fits && (chosen < 0 || better))
+                    {
+                        chosen = i;
+                        chosenWork = work;
+                        chosenHolds = holds;
+                    }
+                }
+            }
+            if (chosen < 0)
+                break;
+
+            lineBoard.applyMoveToBoard(moves[chosen]);
+            line.add(moves[chosen]);
+            goal = 1 - goal;
+        }
+        nodes.addAndGet(searcher.localNodes % NODES_PER_CHECK);
+        return line.toArray(new Move[line.size()]);
+    }
+
+    /**
+     * @return Returns the key of a position with the given goal for the player to move.
+     * @param board The position
+     * @param goal WIN or NOT_LOSE
+     */
+    private static long getKey(Board board, int goal)
+    {
+        long key = board.getCanonicalHash();
+        return goal == NOT_LOSE ? key ^ NOT_LOSE_KEY : key;
+    }
+
+    /**
+     * @return Returns the proof and disproof numbers of a drawn position, for the given goal of the player to move.
+     * @param goal WIN or NOT_LOSE
+     */
+    private static long getDrawValue(int goal)
+    {
+        return goal == NOT_LOSE ? ProofTable.pack(0, INFINITY) : ProofTable.pack(INFINITY, 0);
+    }
+
+    /**
+     * @return Returns true if the given proof and disproof numbers show the goal is proved or disproved.
+     * @param value The packed numbers
+     */
+    private static boolean isSolved(long value)
+    {
+        return value != ProofTable.NOT_FOUND && (ProofTable.getProof(value) == 0 || ProofTable.getDisproof(value) == 0);
+    }
+
+    /**
+     * @return Returns the number of pieces on the given board.
+     */
+    private static int countPieces(Board board)
+    {
+        int count = 0;
+        for (int word = 0; word < board.getGeometry().getWordCount(); word++)
+        {
+            count += Long.bitCount(board.getPieceBits(true, word)) + Long.bitCount(board.getPieceBits(false, word));
+        }
+        return count;
+    }
+
+    /**
+     * The search run by one thread, on its own board.
+     */
+    private class Searcher
+    {
+        private final Board board;
+        private final Random random;
+        private long localNodes;
+
+        // the hashes of the positions along the line being searched, from the position the search started at
+        private long[] path = new long[MAX_LINE_PLIES];
+        private int ply;
+
+        /**
+         * Constructor for the Searcher
+         * @param board The board to search on (moves are applied and taken back as it goes)
+         * @param random What to break ties between equally easy moves with, or null to always take the first
+         */
+        Searcher(Board board, Random random)
+        {
+            this.board = board;
+            this.random = random;
+        }
+
+        /**
+         * Searches the board's position until it is solved, or the search is stopped.
+         * @param goal The goal of the player to move
+         * @return Returns the proof and disproof numbers found
+         */
+        long searchRoot(int goal)
+        {
+            long value = solve(goal);
+            if (isSolved(value))
+                rootSolved = true;
+
+            // (count the nodes not counted yet)
+            nodes.addAndGet(localNodes % NODES_PER_CHECK);
+            localNodes -= localNodes % NODES_PER_CHECK;
+            return value;
+        }
+
+        /**
+         * @return Returns the proof and disproof numbers of the board's position after searching it
+         * until it is solved (or the search is stopped).
+         * @param goal The goal of the player to move
+         */
+        long solve(int goal)
+        {
+            ply = 0;
+            path[0] = board.getHash();
+            return search(goal, INFINITY, INFINITY);
+        }
+
+        /**
+         * @return Returns the proof and disproof numbers of the board's position if they are known without
+         * searching (if it has ended, or is in the table), otherwise ProofTable.NOT_FOUND.
+         * @param goal The goal of the player to move
+         */
+        long getKnownValue(int goal)
+        {
+            if (board.isDraw())
+                return getDrawValue(goal);
+            long value = table.find(getKey(board, goal));
+            if (value == ProofTable.NOT_FOUND && board.getLegalMoves().length == 0)
+                return ProofTable.pack(INFINITY, 0);
+            return value;
+        }
+
+        /**
+         * Searches the board's position until its proof number reaches the proof threshold
+         * or its disproof number reaches the disproof threshold, storing what is found in the table.
+         * @param goal The goal of the player to move
+         * @param proofThreshold The proof number to stop at
+         * @param disproofThreshold The disproof number to stop at
+         * @return Returns the proof and disproof numbers found
+         */
+        private long search(int goal, int proofThreshold, int disproofThreshold)
+        {
+            countNode();
+
+            // a finished game needs no searching (the player with no moves has lost)
+            if (board.isDraw() || repeatsOnPath())
+                return getDrawValue(goal);
+            Move[] moves = board.getLegalMoves();
+            if (moves.length == 0)
+                return ProofTable.pack(INFINITY, 0);
+
+            // look up what's known about each move, and which lead straight to a draw (which depends on the path here)
+            long key = getKey(board, goal);
+            int childGoal = 1 - goal;
+            long[] childKeys = new long[moves.length];
+            long[] childValues = new long[moves.length];
+            boolean[] childDraws = new boolean[moves.length];
+            for (int i = 0; i < moves.length; i++)
+            {
+                board.applyMoveToBoard(moves[i]);
+                enterPosition();
+                childKeys[i] = getKey(board, childGoal);
+                childDraws[i] = board.isDraw() || repeatsOnPath();
+                ply--;
+                childValues[i] = childDraws[i] ? getDrawValue(childGoal) : ProofTable.pack(1, 1);
+                board.undoLastMove();
+            }
+
+            long startNodes = localNodes;
+            while (true)
+            {
+                // our proof number is the smallest disproof number of a move (also finding the second smallest),
+                // and our disproof number counts up their proof numbers - as the largest of them plus one for every
+                // other move still open, rather than their sum, because positions reached by several moves would
+                // otherwise be counted again for each (and king endgames are full of them)
+                int proof = INFINITY;
+                int largestProof = 0;
+                int openMoves = 0;
+                int best = -1;
+                int bestProof = 0;
+                int secondDisproof = INFINITY;
+                for (int i = 0; i < moves.length; i++)
+                {
+                    if (!childDraws[i])
+                    {
+                        // (another thread may have got further with it)
+                        long found = table.find(childKeys[i]);
+                        if (found != ProofTable.NOT_FOUND)
+                            childValues[i] = found;
+                    }
+                    int childProof = ProofTable.getProof(childValues[i]);
+                    int childDisproof = ProofTable.getDisproof(childValues[i]);
+
+                    if (childProof > 0)
+                    {
+                        largestProof = Math.max(largestProof, childProof);
+                        openMoves++;
+                    }
+                    if (childDisproof < proof || (childDisproof == proof && random != null && random.nextBoolean()))
+                    {
+                        secondDisproof = proof;
+                        proof = childDisproof;
+                        best = i;
+                        bestProof = childProof;
+                    }
+                    else if (childDisproof < secondDisproof)
+                        secondDisproof = childDisproof;
+                }
+
+                // (only a disproved move makes it infinite)
+                int disproof = largestProof >= INFINITY || openMoves == 0 ? largestProof :
+                               Math.min(INFINITY - 1, largestProof + openMoves - 1);
+                if (proof >= proofThreshold || disproof >= disproofThreshold || stopped || rootSolved)
+                {
+                    table.store(key, proof, disproof, localNodes - startNodes + 1);
+                    return ProofTable.pack(proof, disproof);
+                }
+
+                // search the easiest move until it's no longer the easiest (with a little slack, so we don't switch
+                // back and forth between two moves too often), or our numbers pass the thresholds
+                int childProofThreshold = (int)Math.min(INFINITY, (long)disproofThreshold - disproof + bestProof);
+                int childDisproofThreshold = Math.min(proofThreshold,
+                    (int)Math.min(INFINITY, secondDisproof + 1 + (long)(secondDisproof * EPSILON)));
+
+                board.applyMoveToBoard(moves[best]);
+                enterPosition();
+                childValues[best] = search(childGoal, childProofThreshold, childDisproofThreshold);
+                ply--;
+                board.undoLastMove();
+            }
+        }
+
+        /**
+         * Adds the board's position (just moved to) to the end of the path.
+         */
+        private void enterPosition()
+        {
+            if (++ply == path.length)
+                path = Arrays.copyOf(path, path.length * 2);
+            path[ply] = board.getHash();
+        }
+
+        /**
+         * @return Returns true if the position at the end of the path has come up before on it.
+         * Only looks back as far as the last capture or man move, because no position before that can come up again.
+         */
+        private boolean repeatsOnPath()
+        {
+            // (only positions with the same player to move, every other one)
+            int oldestReachable = Math.max(0, ply - board.getNoProgressPlies());
+            for (int i = ply - 2; i >= oldestReachable; i -= 2)
+            {
+                if (path[i] == path[ply])
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Counts a node, checking every so often whether the nodes or time have run out.
+         */
+        private void countNode()
+        {
+            if (++localNodes % NODES_PER_CHECK == 0)
+            {
+                long total = nodes.addAndGet(NODES_PER_CHECK);
+                if ((nodeLimit > 0 && total >= nodeLimit) || System.nanoTime() >= deadline)
+                    stopped = true;
+            }
+        }
+    }
+}
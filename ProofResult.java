@@ -0,0 +1,80 @@
+import java.util.Arrays;
+/**
+ * What a ProofNumberSolver found out about a position: whether the player to move wins, loses or draws
+ * (or that it ran out of nodes or time before finding out), along with a line of play showing it,
+ * and how much work it took.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class ProofResult
+{
+    /**
+     * The results a position can have, for the player to move.
+     */
+    public enum Outcome
+    {
+        WIN, LOSS, DRAW, UNKNOWN
+    }
+
+    private final Outcome outcome;
+    private final Move[] line;
+    private final long nodes;
+    private final long millis;
+
+    /**
+     * Constructor for the ProofResult
+     * @param outcome The result for the player to move
+     * @param line The moves showing the result (the winner's best moves against the loser's longest resistance)
+     * @param nodes The number of positions searched
+     * @param millis The time taken, in milliseconds
+     */
+    public ProofResult(Outcome outcome, Move[] line, long nodes, long millis)
+    {
+        this.outcome = outcome;
+        this.line = line;
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    /**
+     * @return Returns the result for the player to move.
+     */
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+    /**
+     * @return Returns the moves showing the result, starting with the move of the player to move.
+     * (empty if the result is unknown, and possibly cut short if the solver ran out of nodes or time while finding it)
+     */
+    public Move[] getLine()
+    {
+        return line.clone();
+    }
+
+    /**
+     * @return Returns the number of positions searched.
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * @return Returns the time taken, in milliseconds.
+     */
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    /**
+     * @return Returns the result and line as a line of text.
+     */
+    public String toString()
+    {
+        return outcome + " " + Arrays.toString(line) + " (" + nodes + " nodes, " + millis + "ms)";
+    }
+}
@@ -0,0 +1,259 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * Remembers the proof and disproof numbers of positions for a ProofNumberSolver, along with the "work" done
+ * on each (the number of nodes searched below it), in a fixed amount of memory that can be shared by several threads.
+ *
+ * Entries are kept in buckets of four, and when a bucket is full the entry with the least work is replaced.
+ * When the table is almost full, entries with little work behind them (which are quick to search again)
+ * are thrown away in bulk: starting with those from a single node, and going up until a good part of the table is free.
+ *
+ * Each group of buckets has its own lock, so threads only wait for each other when they use the same part of the table.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class ProofTable
+{
+    // what find returns when there's no entry
+    public static final long NOT_FOUND = -1;
+
+    // the number of entries in each bucket, and the number of locks shared out among the buckets
+    private static final int WAYS = 4;
+    private static final int LOCKS = 256;
+
+    // collect garbage when this much of the table is used, until this much of it is free again
+    private static final double FULL_FRACTION = 0.9;
+    private static final double FREED_FRACTION = 0.25;
+
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final long[] works; // (0 for an empty slot)
+    private final int bucketMask;
+    private final Object[] locks = new Object[LOCKS];
+
+    private final AtomicInteger usedCount = new AtomicInteger();
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    private final AtomicInteger garbageCollections = new AtomicInteger();
+
+    /**
+     * Constructor for the ProofTable
+     * @param entryCount The number of entries to hold (rounded down to a power of two, and to at least one bucket)
+     */
+    public ProofTable(int entryCount)
+    {
+        int bucketCount = Integer.highestOneBit(Math.max(1, entryCount / WAYS));
+        this.keys = new long[bucketCount * WAYS];
+        this.proofs = new int[bucketCount * WAYS];
+        this.disproofs = new int[bucketCount * WAYS];
+        this.works = new long[bucketCount * WAYS];
+        this.bucketMask = bucketCount - 1;
+        for (int i = 0; i < LOCKS; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Looks for an entry for the given position.
+     * @param key The key of the position
+     * @return Returns the proof and disproof numbers, to be read with getProof and getDisproof, or NOT_FOUND
+     */
+    public long find(long key)
+    {
+        int bucket = getBucket(key);
+        synchronized (locks[bucket & (LOCKS - 1)])
+        {
+            int slot = findSlot(bucket, key);
+            if (slot < 0)
+                return NOT_FOUND;
+            return pack(proofs[slot], disproofs[slot]);
+        }
+    }
+
+    /**
+     * @return Returns the work done on the given position, or 0 if there's no entry for it.
+     * @param key The key of the position
+     */
+    public long getWork(long key)
+    {
+        int bucket = getBucket(key);
+        synchronized (locks[bucket & (LOCKS - 1)])
+        {
+            int slot = findSlot(bucket, key);
+            return slot < 0 ? 0 : works[slot];
+        }
+    }
+
+    /**
+     * Stores the proof and disproof numbers of a position, replacing the entry with the least work
+     * in its bucket if there's no room.
+     * @param key The key of the position
+     * @param proof The proof number
+     * @param disproof The disproof number
+     * @param work The number of nodes searched to find them (at least 1)
+     */
+    public void store(long key, int proof, int disproof, long work)
+    {
+        int bucket = getBucket(key);
+        synchronized (locks[bucket & (LOCKS - 1)])
+        {
+            int slot = findSlot(bucket, key);
+            if (slot < 0)
+            {
+                // use an empty slot, or the one with the least work
+                slot = bucket * WAYS;
+                for (int i = bucket * WAYS; i < (bucket + 1) * WAYS; i++)
+                {
+                    if (works[i] < works[slot])
+                        slot = i;
+                }
+                if (works[slot] == 0)
+                    usedCount.incrementAndGet();
+                keys[slot] = key;
+            }
+            proofs[slot] = proof;
+            disproofs[slot] = disproof;
+            works[slot] = Math.max(1, work);
+        }
+
+        if (usedCount.get() > FULL_FRACTION * keys.length)
+            collectGarbage();
+    }
+
+    /**
+     * Throws away entries with little work behind them, until at least a quarter of the table is free.
+     * (does nothing if another thread is already doing it)
+     */
+    public void collectGarbage()
+    {
+        if (!collecting.compareAndSet(false, true))
+            return;
+        try
+        {
+            garbageCollections.incrementAndGet();
+            for (long smallestKept = 2; usedCount.get() > (1 - FREED_FRACTION) * keys.length; smallestKept *= 2)
+            {
+                // go through the buckets of each lock together
+                for (int lock = 0; lock < LOCKS; lock++)
+                {
+                    synchronized (locks[lock])
+                    {
+                        for (int bucket = lock; bucket <= bucketMask; bucket += LOCKS)
+                        {
+                            for (int slot = bucket * WAYS; slot < (bucket + 1) * WAYS; slot++)
+                            {
+                                if (works[slot] != 0 && works[slot] < smallestKept)
+                                {
+                                    works[slot] = 0;
+                                    usedCount.decrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            collecting.set(false);
+        }
+    }
+
+    /**
+     * @return Returns the number of entries in use.
+     */
+    public int size()
+    {
+        return usedCount.get();
+    }
+
+    /**
+     * @return Returns the number of entries the table can hold.
+     */
+    public int getCapacity()
+    {
+        return keys.length;
+    }
+
+    /**
+     * @return Returns the number of times garbage has been collected.
+     */
+    public int getGarbageCollections()
+    {
+        return garbageCollections.get();
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear()
+    {
+        for (int lock = 0; lock < LOCKS; lock++)
+        {
+            synchronized (locks[lock])
+            {
+                for (int bucket = lock; bucket <= bucketMask; bucket += LOCKS)
+                {
+                    for (int slot = bucket * WAYS; slot < (bucket + 1) * WAYS; slot++)
+                    {
+                        works[slot] = 0;
+                    }
+                }
+            }
+        }
+        usedCount.set(0);
+    }
+
+    /**
+     * @return Returns the proof number in the given result of find.
+     * @param entry The result of find
+     */
+    public static int getProof(long entry)
+    {
+        return (int)(entry >>> 32);
+    }
+
+    /**
+     * @return Returns the disproof number in the given result of find.
+     * @param entry The result of find
+     */
+    public static int getDisproof(long entry)
+    {
+        return (int)entry;
+    }
+
+    /**
+     * @return Returns the given proof and disproof numbers packed together, as returned by find.
+     * @param proof The proof number (not negative)
+     * @param disproof The disproof number (not negative)
+     */
+    public static long pack(int proof, int disproof)
+    {
+        return ((long)proof << 32) | (disproof & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return Returns the bucket the given key belongs in.
+     */
+    private int getBucket(long key)
+    {
+        // (mix the high bits in, as the low bits of keys that differ only by the side to move are alike)
+        return (int)(key ^ (key >>> 32)) & bucketMask;
+    }
+
+    /**
+     * @return Returns the slot in the given bucket holding the given key, or -1 if it isn't there.
+     * (the bucket's lock must be held)
+     */
+    private int findSlot(int bucket, long key)
+    {
+        for (int slot = bucket * WAYS; slot < (bucket + 1) * WAYS; slot++)
+        {
+            if (works[slot] != 0 && keys[slot] == key)
+                return slot;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,574 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+/**
+ * Shares the processors fairly between the searches of many games at once, so one deep search can't hold up
+ * the others. At most workerCount searches run at a time; each runs for a time slice, and then (at its next
+ * checkpoint, see Player.requestMove) goes back in the queue if others are waiting, so a search that needs a
+ * long time gets it in slices while quick ones get in between.
+ *
+ * A search can't be taken off its thread part way through (it's a recursion, whose state is on the thread's stack),
+ * so a search waiting for its next slice keeps its thread, just not running. The threads come from a fixed pool
+ * of maxSearches (a few for each worker): that's how many searches can be under way at once, and a search that
+ * hasn't started yet waits in the queue without a thread until one is free. So the number of threads never grows
+ * with the number of games, though with more games than that asking at once, new searches can be held up
+ * until one of the searches under way finishes.
+ *
+ * The queue is weighted fair queuing (start-time fair queuing, in fact): each game has an Account with a weight,
+ * and the CPU time its searches use is charged to it divided by the weight. The waiting search whose game has
+ * been charged the least (in that "virtual time") goes next, so under load each game gets processor time
+ * in proportion to its weight, and a game that has been waiting starts from where the others are, not from zero.
+ * A Difficulty's weight is meant for this, so harder levels get more time without starving easy ones.
+ *
+ * Accounts also keep count of each game's CPU time, moves, slices and time spent waiting, and how long each move
+ * took to come back, so the cost of each kind of game (like each difficulty) can be reported, capped or priced.
+ *
+ * Run with: java SearchScheduler [games of each level] [workers] [slice in ms] [plies] [levels, like easy,hard]
+ * to play games of different levels at once, both letting each search run to the end (as on GameRunner's carriers)
+ * and in time slices, and compare how long moves of each level took to come back.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SearchScheduler
+{
+    public static final long DEFAULT_SLICE_MILLIS = 10;
+
+    // the searches that can be under way at once (each with a thread of its own) for each worker
+    public static final int DEFAULT_SEARCHES_PER_WORKER = 8;
+
+    // for the comparison run by main
+    private static final int DEFAULT_GAMES_PER_LEVEL = 3;
+    private static final int DEFAULT_PLIES = 16;
+    private static final int OPENING_PLIES = 6;
+
+    private static final ThreadMXBean threadTimes = ManagementFactory.getThreadMXBean();
+
+    // the order searches get their turns in: by virtual time, and then by when they asked
+    private static final Comparator<Search> TURN_ORDER =
+        Comparator.comparingDouble((Search search) -> search.tag).thenComparingLong(search -> search.sequence);
+
+    private final int workerCount;
+    private final int maxSearches;
+    private final long sliceNanos;
+
+    // the threads searches run on, one for each search under way (only workerCount of which run at a time)
+    private final ExecutorService threads;
+
+    // the searches running and under way, those waiting to start and those waiting for their next slice,
+    // the virtual time, and every account (all guarded by this)
+    private int running;
+    private int underWay;
+    private final PriorityQueue<Search> starting = new PriorityQueue<Search>(TURN_ORDER);
+    private final PriorityQueue<Search> resuming = new PriorityQueue<Search>(TURN_ORDER);
+    private long sequence;
+    private double virtualTime;
+    private final List<Account> accounts = new ArrayList<Account>();
+
+    /**
+     * Constructor for the SearchScheduler
+     * @param workerCount The most searches to run at once (usually the number of processors)
+     * @param sliceMillis How long a search runs before letting another have a turn, in milliseconds
+     * (or 0 to let every search run to the end, in the order they came)
+     */
+    public SearchScheduler(int workerCount, long sliceMillis)
+    {
+        this(workerCount, sliceMillis, workerCount * DEFAULT_SEARCHES_PER_WORKER);
+    }
+
+    /**
+     * Constructor for the SearchScheduler
+     * @param workerCount The most searches to run at once (usually the number of processors)
+     * @param sliceMillis How long a search runs before letting another have a turn, in milliseconds
+     * (or 0 to let every search run to the end, in the order they came)
+     * @param maxSearches The most searches to have under way at once, which is the number of threads
+     * (at least workerCount)
+     */
+    public SearchScheduler(int workerCount, long sliceMillis, int maxSearches)
+    {
+        this.workerCount = Math.max(1, workerCount);
+        this.maxSearches = Math.max(this.workerCount, maxSearches);
+        this.sliceNanos = sliceMillis * 1000000;
+
+        // use daemon threads, so they never keep the program from exiting
+        this.threads = Executors.newFixedThreadPool(this.maxSearches, runnable -> {
+            Thread thread = new Thread(runnable, "search-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int gamesPerLevel = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES_PER_LEVEL;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long sliceMillis = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SLICE_MILLIS;
+        int plies = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLIES;
+        List<Difficulty> levels = new ArrayList<Difficulty>();
+        for (String level : (args.length > 4 ? args[4] : "easy,hard").split(","))
+        {
+            levels.add(Difficulty.valueOf(level.trim().toUpperCase()));
+        }
+
+        System.out.println("Each search running to the end (as on GameRunner's carriers):");
+        playGames(new SearchScheduler(workerCount, 0), levels, gamesPerLevel, plies);
+        System.out.println("In " + sliceMillis + "ms time slices, weighted by difficulty:");
+        playGames(new SearchScheduler(workerCount, sliceMillis), levels, gamesPerLevel, plies);
+    }
+
+    /**
+     * Plays some moves of a few games of each level at once (the same games every time), then reports how they went.
+     * @param scheduler The scheduler to play them through
+     * @param levels The levels to play (each game is between two players of the same level)
+     * @param gamesPerLevel The number of games of each level
+     * @param plies The number of moves to play in each game
+     */
+    private static void playGames(SearchScheduler scheduler, List<Difficulty> levels, int gamesPerLevel, int plies)
+        throws InterruptedException
+    {
+        // a thread for each game, which just waits for each move and plays it
+        List<Thread> games = new ArrayList<Thread>();
+        for (Difficulty level : levels)
+        {
+            for (int i = 0; i < gamesPerLevel; i++)
+            {
+                int id = games.size();
+                Account account = scheduler.openAccount(level + " game " + id, level.toString(), level.getWeight());
+                Player white = account.schedule(level.createPlayer(true));
+                Player black = account.schedule(level.createPlayer(false));
+                Board board = new SelfPlayJob(SelfPlayJob.GAME, id, GameRunner.VARIANT, level.getMaxDepth(), OPENING_PLIES, id)
+                    .createStartingBoard();
+                Thread game = new Thread(() -> {
+                    for (int ply = 0; ply < plies && !board.isDraw(); ply++)
+                    {
+                        Move move = (board.isWhiteTurn ? white : black).requestMove(board, Runnable::run).join();
+                        if (move == null)
+                            break;
+                        board.applyMoveToBoard(Player.findLegalMove(board, move));
+                    }
+                }, "game-" + id);
+                games.add(game);
+            }
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread game : games)
+        {
+            game.start();
+        }
+        for (Thread game : games)
+        {
+            game.join();
+        }
+        System.out.printf("Played %d games for up to %d plies each in %.1fs%n", games.size(), plies,
+                          (System.nanoTime() - startTime) / 1e9);
+        System.out.println(scheduler.getReport());
+    }
+
+    /**
+     * Opens an account for a game, to play its players' searches through.
+     * @param name The name of the game
+     * @param kind The kind of game it is (games of the same kind are reported together), like its difficulty
+     * @param weight The game's share of the processors, next to the other games (at least 1)
+     * @return Returns the account
+     */
+    public synchronized Account openAccount(String name, String kind, int weight)
+    {
+        Account account = new Account(name, kind, Math.max(1, weight));
+        accounts.add(account);
+        return account;
+    }
+
+    /**
+     * @return Returns every account opened so far.
+     */
+    public synchronized List<Account> getAccounts()
+    {
+        return new ArrayList<Account>(accounts);
+    }
+
+    /**
+     * @return Returns a few lines saying, for each kind of game, how much CPU time its moves cost and how long they took.
+     */
+    public synchronized String getReport()
+    {
+        // gather the accounts of each kind
+        Map<String, List<Account>> kinds = new TreeMap<String, List<Account>>();
+        long totalCpuNanos = 0;
+        for (Account account : accounts)
+        {
+            kinds.computeIfAbsent(account.kind, kind -> new ArrayList<Account>()).add(account);
+            totalCpuNanos += account.cpuNanos;
+        }
+
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, List<Account>> kind : kinds.entrySet())
+        {
+            long cpuNanos = 0;
+            long waitNanos = 0;
+            long slices = 0;
+            List<Long> latencies = new ArrayList<Long>();
+            for (Account account : kind.getValue())
+            {
+                cpuNanos += account.cpuNanos;
+                waitNanos += account.waitNanos;
+                slices += account.slices;
+                latencies.addAll(account.moveNanos);
+            }
+            Collections.sort(latencies);
+            int moves = latencies.size();
+            if (report.length() > 0)
+                report.append(String.format("%n"));
+            report.append(String.format("  %s: %d games, %d moves in %d slices, %.1fms of CPU a move (%.0f%% of all CPU time)",
+                                        kind.getKey(), kind.getValue().size(), moves, slices,
+                                        cpuNanos / 1e6 / Math.max(1, moves), 100.0 * cpuNanos / Math.max(1, totalCpuNanos)));
+            report.append(String.format("%n    moves came back in %.1fms (median), %.1fms (99th percentile), %.1fms (worst), " +
+                                        "having waited %.1fms a move", getPercentile(latencies, 0.5) / 1e6,
+                                        getPercentile(latencies, 0.99) / 1e6, getPercentile(latencies, 1) / 1e6,
+                                        waitNanos / 1e6 / Math.max(1, moves)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return Returns the given fraction of the way through a sorted list of times (0 if it's empty).
+     */
+    private static long getPercentile(List<Long> times, double fraction)
+    {
+        if (times.isEmpty())
+            return 0;
+        int index = (int)Math.ceil(fraction * times.size()) - 1;
+        return times.get(Math.max(0, Math.min(times.size() - 1, index)));
+    }
+
+    /**
+     * Puts a search in the queue: it's started (on a thread of the pool) once it's its turn.
+     * @param search The search
+     * @param think The thinking to do
+     */
+    private synchronized void submit(Search search, Runnable think)
+    {
+        search.think = think;
+        queue(search, starting);
+        grantTurns();
+    }
+
+    /**
+     * Puts a search in one of the queues, behind the games charged less than it.
+     * @param search The search
+     * @param queue The queue
+     */
+    private void queue(Search search, PriorityQueue<Search> queue)
+    {
+        // a search starts from its game's charges so far, but never from before where the others are
+        search.tag = sliceNanos > 0 ? Math.max(virtualTime, search.account.finishTag) : 0;
+        search.sequence = sequence++;
+        search.waitStart = System.nanoTime();
+        queue.add(search);
+    }
+
+    /**
+     * Ends a search's slice, charging its game for the CPU time it used, and lets the next search waiting run.
+     * @param search The search
+     * @param isFinished Whether the search is over (so its thread is free for another)
+     */
+    private void release(Search search, boolean isFinished)
+    {
+        long cpuNanos = threadTimes.getCurrentThreadCpuTime() - search.sliceStartCpuNanos;
+        synchronized (this)
+        {
+            Account account = search.account;
+            account.cpuNanos += cpuNanos;
+            account.slices++;
+            account.finishTag = search.tag + (double)cpuNanos / account.weight;
+            running--;
+            if (isFinished)
+            {
+                underWay--;
+                account.moveNanos.add(System.nanoTime() - search.requestTime);
+            }
+            grantTurns();
+        }
+    }
+
+    /**
+     * Goes back in the queue at the end of a search's slice, and waits (on the search's own thread) for its next turn.
+     * @param search The search
+     */
+    private void yieldTurn(Search search)
+    {
+        release(search, false);
+        synchronized (this)
+        {
+            search.isGranted = false;
+            queue(search, resuming);
+            grantTurns();
+
+            // (waiting can't be given up, as the search has to run to give back its move)
+            boolean isInterrupted = false;
+            while (!search.isGranted)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted)
+                Thread.currentThread().interrupt();
+        }
+        search.startSlice();
+    }
+
+    /**
+     * Lets the searches first in the queues run, as long as there's a worker free: a search that's waiting
+     * for its next slice carries on where it is, and one that hasn't started yet gets a thread (if there's one free).
+     */
+    private void grantTurns()
+    {
+        boolean isAnyResumed = false;
+        while (running < workerCount)
+        {
+            // (searches under way all have threads, so only they can run while every thread is taken)
+            Search nextResuming = resuming.peek();
+            Search nextStarting = underWay < maxSearches ? starting.peek() : null;
+            Search next;
+            if (nextResuming != null && (nextStarting == null || TURN_ORDER.compare(nextResuming, nextStarting) <= 0))
+                next = resuming.poll();
+            else if (nextStarting != null)
+                next = starting.poll();
+            else
+                break;
+
+            running++;
+            virtualTime = Math.max(virtualTime, next.tag);
+            next.account.waitNanos += System.nanoTime() - next.waitStart;
+            if (next.isStarted)
+            {
+                next.isGranted = true;
+                isAnyResumed = true;
+            }
+            else
+            {
+                next.isStarted = true;
+                underWay++;
+                threads.execute(next::run);
+            }
+        }
+        if (isAnyResumed)
+            notifyAll();
+    }
+
+    /**
+     * What one game's searches have used, and the game's share of the processors.
+     * Its players are played through the scheduler by wrapping them (see schedule).
+     */
+    public class Account
+    {
+        private final String name;
+        private final String kind;
+        private final int weight;
+
+        // the virtual time the game has been charged up to, and what its searches have used (all guarded by the scheduler)
+        private double finishTag;
+        private long cpuNanos;
+        private long waitNanos;
+        private long slices;
+        private final List<Long> moveNanos = new ArrayList<Long>();
+
+        /**
+         * @param name The name of the game
+         * @param kind The kind of game
+         * @param weight The game's share of the processors
+         */
+        Account(String name, String kind, int weight)
+        {
+            this.name = name;
+            this.kind = kind;
+            this.weight = weight;
+        }
+
+        /**
+         * Wraps a player, so the moves asked of it are thought about through the scheduler, and charged to this game.
+         * @param player The player
+         * @return Returns the scheduled player, to play the game with instead
+         */
+        public Player schedule(Player player)
+        {
+            return new ScheduledPlayer(player, this);
+        }
+
+        /**
+         * @return Returns the name of the game.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return Returns the CPU time the game's searches have used, in nanoseconds.
+         */
+        public long getCpuNanos()
+        {
+            synchronized (SearchScheduler.this)
+            {
+                return cpuNanos;
+            }
+        }
+
+        /**
+         * @return Returns the number of moves the game's players have made through the scheduler.
+         */
+        public int getMoves()
+        {
+            synchronized (SearchScheduler.this)
+            {
+                return moveNanos.size();
+            }
+        }
+
+        /**
+         * @return Returns a line saying what the game has used.
+         */
+        public String toString()
+        {
+            synchronized (SearchScheduler.this)
+            {
+                return String.format("%s (weight %d): %d moves, %.1fms of CPU, %.1fms waiting", name, weight,
+                                     moveNanos.size(), cpuNanos / 1e6, waitNanos / 1e6);
+            }
+        }
+    }
+
+    /**
+     * One move being thought about through the scheduler: it runs in slices, between which it may wait for a turn.
+     */
+    private class Search
+    {
+        final Account account;
+        final long requestTime = System.nanoTime();
+        Runnable think;
+
+        // its place in the queue, whether it's been started and given its turn, and when it started waiting
+        // (all guarded by the scheduler), and when its current slice started
+        double tag;
+        long sequence;
+        boolean isStarted;
+        boolean isGranted;
+        long waitStart;
+        Thread thread;
+        long sliceStart;
+        long sliceStartCpuNanos;
+
+        /**
+         * @param account The game's account
+         */
+        Search(Account account)
+        {
+            this.account = account;
+        }
+
+        /**
+         * Thinks about the move (on a thread of the pool, once it's the search's turn), in as many slices as it takes.
+         */
+        void run()
+        {
+            startSlice();
+            try
+            {
+                think.run();
+            }
+            finally
+            {
+                release(this, true);
+            }
+        }
+
+        /**
+         * Notes when the slice starts, on the thread it's running on.
+         */
+        void startSlice()
+        {
+            thread = Thread.currentThread();
+            sliceStart = System.nanoTime();
+            sliceStartCpuNanos = threadTimes.getCurrentThreadCpuTime();
+        }
+
+        /**
+         * Called every so often while thinking: once the slice is over, goes back in the queue (if anything's waiting,
+         * this waits for its next turn). Only the search's own thread can do this, so calls from any helper threads
+         * the player thinks on as well are ignored (their CPU time isn't charged to the game either).
+         */
+        void checkpoint()
+        {
+            if (Thread.currentThread() != thread)
+                return;
+            if (sliceNanos > 0 && System.nanoTime() - sliceStart >= sliceNanos)
+                yieldTurn(this);
+        }
+    }
+
+    /**
+     * A player whose moves are thought about through the scheduler, on its threads (whatever executor it's given).
+     */
+    private class ScheduledPlayer extends Player
+    {
+        private final Player player;
+        private final Account account;
+
+        /**
+         * @param player The player to ask for moves
+         * @param account The account of its game
+         */
+        ScheduledPlayer(Player player, Account account)
+        {
+            this.player = player;
+            this.account = account;
+        }
+
+        public Move chooseMove(Board board, BooleanSupplier isCancelled)
+        {
+            return player.chooseMove(board, isCancelled);
+        }
+
+        public CompletableFuture<Move> requestMove(Board board, Executor executor, Runnable checkpoint)
+        {
+            Search search = new Search(account);
+            Runnable checkpoints = checkpoint == null ? search::checkpoint : () -> {
+                checkpoint.run();
+                search.checkpoint();
+            };
+            return player.requestMove(board, think -> submit(search, think), checkpoints);
+        }
+
+        public int getLastScore()
+        {
+            return player.getLastScore();
+        }
+
+        public long getLastMoveCpuNanos()
+        {
+            return player.getLastMoveCpuNanos();
+        }
+
+        public void releaseMemory()
+        {
+            player.releaseMemory();
+        }
+    }
+}
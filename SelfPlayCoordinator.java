@@ -0,0 +1,299 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Runs a batch of self-play games (or position analyses) spread over several worker processes
+ * (see SelfPlayWorker), so long test runs aren't limited by the heap and garbage collector of one JVM.
+ *
+ * The coordinator listens on a socket and hands out one job at a time to each worker that connects.
+ * A worker can be started by the coordinator itself (on this machine) or separately (on any machine that can
+ * reach the port). If a worker's connection drops, or it takes too long over a job, its job is put back
+ * at the front of the queue for another worker, and a worker started here is restarted if work is left.
+ * Progress (with the number of jobs finished per second) is reported every few seconds,
+ * and the results are put together and summarised at the end.
+ *
+ * Run with: java SelfPlayCoordinator [game|analyse] [jobs] [depth] [local workers] [port] [variant]
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SelfPlayCoordinator
+{
+    // run constants
+    private static final int DEFAULT_JOBS = 20;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int OPENING_PLIES = 6;
+    private static final long SEED = 42;
+    private static final long REPORT_INTERVAL_MILLIS = 5000;
+    private static final long POLL_MILLIS = 200;
+
+    // how long a worker may take over one job before it's given up on
+    private static final int JOB_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    // the jobs still to be handed out, and the results of those finished (by job id)
+    private final BlockingDeque<SelfPlayJob> queue = new LinkedBlockingDeque<SelfPlayJob>();
+    private final String[] results;
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private final AtomicInteger requeuedCount = new AtomicInteger();
+    private final AtomicLong totalNodes = new AtomicLong();
+
+    // the worker processes started here
+    private final List<Process> localWorkers = new ArrayList<Process>();
+
+    private final ServerSocket server;
+
+    /**
+     * Constructor for the SelfPlayCoordinator
+     * @param jobs The jobs to run (numbered from 0)
+     * @param port The port to listen for workers on
+     * @throws IOException If the port can't be listened on
+     */
+    public SelfPlayCoordinator(List<SelfPlayJob> jobs, int port) throws IOException
+    {
+        queue.addAll(jobs);
+        results = new String[jobs.size()];
+        server = new ServerSocket(port);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String kind = args.length > 0 ? args[0].toUpperCase() : SelfPlayJob.GAME;
+        int jobCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_JOBS;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+        int workerCount = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_WORKERS;
+        int port = args.length > 4 ? Integer.parseInt(args[4]) : SelfPlayWorker.DEFAULT_PORT;
+        Variant variant = args.length > 5 ? Variant.valueOf(args[5].toUpperCase()) : Variant.ENGLISH;
+
+        // every job starts from its own random opening (the same ones every run)
+        Random random = new Random(SEED);
+        List<SelfPlayJob> jobs = new ArrayList<SelfPlayJob>();
+        for (int id = 0; id < jobCount; id++)
+        {
+            jobs.add(new SelfPlayJob(kind, id, variant, depth, OPENING_PLIES, random.nextLong()));
+        }
+
+        SelfPlayCoordinator coordinator = new SelfPlayCoordinator(jobs, port);
+        coordinator.run(workerCount);
+    }
+
+    /**
+     * Hands out every job and waits for them all to finish, then prints the results.
+     * @param workerCount The number of worker processes to start on this machine (0 to only use outside ones)
+     * @throws IOException If a worker process can't be started
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void run(int workerCount) throws IOException, InterruptedException
+    {
+        System.out.println("Waiting for workers on port " + server.getLocalPort() + "...");
+        Thread acceptor = new Thread(this::acceptWorkers, "selfplay-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (int i = 0; i < workerCount; i++)
+        {
+            localWorkers.add(startLocalWorker());
+        }
+
+        long startTime = System.nanoTime();
+        long nextReport = startTime + REPORT_INTERVAL_MILLIS * 1000000;
+        while (finishedCount.get() < results.length)
+        {
+            Thread.sleep(POLL_MILLIS);
+
+            // bring back any local worker that died while there's still work to do
+            for (int i = 0; i < localWorkers.size(); i++)
+            {
+                Process worker = localWorkers.get(i);
+                if (!worker.isAlive() && worker.exitValue() != 0)
+                {
+                    System.out.println("A worker exited with code " + worker.exitValue() + ", starting another");
+                    localWorkers.set(i, startLocalWorker());
+                }
+            }
+
+            if (System.nanoTime() >= nextReport)
+            {
+                report(startTime);
+                nextReport += REPORT_INTERVAL_MILLIS * 1000000;
+            }
+        }
+
+        report(startTime);
+        server.close();
+        for (Process worker : localWorkers)
+        {
+            worker.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        summarise();
+    }
+
+    /**
+     * Accepts workers as they connect, giving each one its own thread (until the server is closed).
+     */
+    private void acceptWorkers()
+    {
+        while (!server.isClosed())
+        {
+            try
+            {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serveWorker(socket), "selfplay-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+            catch (IOException e)
+            {
+                // (the server was closed at the end of the run)
+            }
+        }
+    }
+
+    /**
+     * Hands jobs to one worker until there are none left, putting its job back in the queue if it's lost.
+     * @param socket The worker's connection
+     */
+    private void serveWorker(Socket socket)
+    {
+        SelfPlayJob job = null;
+        try (Socket connection = socket)
+        {
+            connection.setSoTimeout(JOB_TIMEOUT_MILLIS);
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(connection.getOutputStream(), true, StandardCharsets.UTF_8);
+
+            while ((job = takeJob()) != null)
+            {
+                out.println(job.toLine());
+                String reply = in.readLine();
+                if (reply == null)
+                    throw new SocketException("connection closed");
+
+                // a reply is DONE, the job's id and its result
+                String[] parts = reply.split(" ", 3);
+                if (parts.length < 3 || !parts[0].equals(SelfPlayWorker.DONE) || Integer.parseInt(parts[1]) != job.getId())
+                    throw new IOException("unexpected reply: " + reply);
+                recordResult(job, parts[2]);
+                job = null;
+            }
+            out.println(SelfPlayWorker.STOP);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // give the job to someone else
+            if (job != null)
+            {
+                String reason = e instanceof SocketTimeoutException ? "timed out" : "was lost (" + e.getMessage() + ")";
+                System.out.println("Worker " + socket.getRemoteSocketAddress() + " " + reason +
+                                   ", re-queueing job " + job.getId());
+                requeuedCount.incrementAndGet();
+                queue.addFirst(job);
+            }
+        }
+    }
+
+    /**
+     * Waits for a job to hand out. (while there are jobs out with other workers, one of them might be re-queued)
+     * @return Returns the next job, or null once every job is finished
+     * @throws IOException If interrupted while waiting (treated like the connection closing)
+     */
+    private SelfPlayJob takeJob() throws IOException
+    {
+        try
+        {
+            while (finishedCount.get() < results.length)
+            {
+                SelfPlayJob job = queue.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (job != null)
+                    return job;
+            }
+            return null;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+    }
+
+    /**
+     * Stores the result of a job.
+     * @param job The job
+     * @param result Its result, as sent by the worker
+     */
+    private synchronized void recordResult(SelfPlayJob job, String result)
+    {
+        // (a job can be re-queued after a worker times out, and then finished twice)
+        if (results[job.getId()] != null)
+            return;
+
+        results[job.getId()] = result;
+        String[] parts = result.split(" ");
+        totalNodes.addAndGet(Long.parseLong(parts[parts.length - 2]));
+        finishedCount.incrementAndGet();
+    }
+
+    /**
+     * Prints how far through the jobs we are, and how quickly they're being done.
+     * @param startTime When the run started, from System.nanoTime
+     */
+    private void report(long startTime)
+    {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        int finished = finishedCount.get();
+        System.out.printf("%d/%d jobs done in %.1fs: %.2f per second, %.0f nodes per second%n",
+                          finished, results.length, seconds, finished / seconds, totalNodes.get() / seconds);
+    }
+
+    /**
+     * Prints every result, and the totals of the games.
+     */
+    private synchronized void summarise()
+    {
+        int whiteWins = 0, blackWins = 0, draws = 0;
+        for (int id = 0; id < results.length; id++)
+        {
+            System.out.println(id + " " + results[id]);
+            if (results[id].startsWith("W "))
+                whiteWins++;
+            else if (results[id].startsWith("B "))
+                blackWins++;
+            else if (results[id].startsWith("D "))
+                draws++;
+        }
+        if (whiteWins + blackWins + draws > 0)
+            System.out.println("White won " + whiteWins + ", black won " + blackWins + ", " + draws + " drawn");
+        System.out.println(requeuedCount.get() + " jobs re-queued");
+    }
+
+    /**
+     * Starts a worker process on this machine, running with the same Java and classes as this one
+     * (and warming up the same way, see WarmUp).
+     * @return Returns the process
+     * @throws IOException If it can't be started
+     */
+    private Process startLocalWorker() throws IOException
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String warmUp = "-D" + WarmUp.WARMUP_PROPERTY + "=" + System.getProperty(WarmUp.WARMUP_PROPERTY, "off");
+        ProcessBuilder builder = new ProcessBuilder(java, warmUp, "-cp", System.getProperty("java.class.path"),
+                                                    "SelfPlayWorker", "localhost", String.valueOf(server.getLocalPort()));
+        builder.inheritIO();
+        return builder.start();
+    }
+}
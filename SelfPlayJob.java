@@ -0,0 +1,111 @@
+import java.util.Random;
+/**
+ * One piece of work handed out by a SelfPlayCoordinator to a SelfPlayWorker: either playing a whole game
+ * between two AIPlayers, or analysing a single position. The starting position is made by playing a few
+ * random moves (chosen by a seed) from the start, so every job gets a different game or position
+ * but can still be sent as a single short line of text.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SelfPlayJob
+{
+    // the kinds of job
+    public static final String GAME = "GAME";
+    public static final String ANALYSE = "ANALYSE";
+
+    private final String kind;
+    private final int id;
+    private final Variant variant;
+    private final int depth;
+    private final int openingPlies;
+    private final long seed;
+
+    /**
+     * Constructor for the SelfPlayJob
+     * @param kind GAME or ANALYSE
+     * @param id The number of this job (unique among the jobs of one run)
+     * @param variant The variant to play
+     * @param depth The depth the computer players search to
+     * @param openingPlies The number of random moves played from the start to get the starting position
+     * @param seed The seed for choosing the random moves
+     */
+    public SelfPlayJob(String kind, int id, Variant variant, int depth, int openingPlies, long seed)
+    {
+        if (!kind.equals(GAME) && !kind.equals(ANALYSE))
+            throw new IllegalArgumentException("Unknown kind of job: " + kind);
+
+        this.kind = kind;
+        this.id = id;
+        this.variant = variant;
+        this.depth = depth;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+    }
+
+    /**
+     * Reads a job back from the line made by toLine.
+     * @param line The line
+     * @return Returns the job
+     */
+    public static SelfPlayJob parse(String line)
+    {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 6)
+            throw new IllegalArgumentException("Not a job: " + line);
+
+        return new SelfPlayJob(parts[0], Integer.parseInt(parts[1]), Variant.valueOf(parts[2]),
+                               Integer.parseInt(parts[3]), Integer.parseInt(parts[4]), Long.parseLong(parts[5]));
+    }
+
+    /**
+     * @return Returns the job as a single line of text (without the line break), to be read with parse.
+     */
+    public String toLine()
+    {
+        return kind + " " + id + " " + variant.name() + " " + depth + " " + openingPlies + " " + seed;
+    }
+
+    /**
+     * Makes the board this job starts from, by playing the random opening moves.
+     * (stopping early if the game ends first)
+     * @return Returns the new board
+     */
+    public Board createStartingBoard()
+    {
+        Board board = new Board(variant);
+        Random random = new Random(seed);
+        for (int ply = 0; ply < openingPlies && !board.isDraw(); ply++)
+        {
+            Move[] moves = board.getLegalMoves();
+            if (moves.length == 0)
+                break;
+            board.applyMoveToBoard(moves[random.nextInt(moves.length)]);
+        }
+        return board;
+    }
+
+    /**
+     * @return Returns GAME or ANALYSE.
+     */
+    public String getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * @return Returns the number of this job.
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return Returns the depth the computer players search to.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+/**
+ * A headless process that connects to a SelfPlayCoordinator, and does the jobs it is given
+ * (playing AIPlayer against itself, or analysing positions) until it is told to stop.
+ *
+ * The protocol is a line of text each way: the coordinator sends a job (see SelfPlayJob.toLine) or STOP,
+ * and the worker answers each job with "DONE", the job's id and its result:
+ * for a game, the winner (W, B or D for a draw), the number of plies, and the nodes and milliseconds used,
+ * and for an analysis, the best move, its score, and the nodes and milliseconds used.
+ *
+ * Run with: java SelfPlayWorker [host] [port] (add -Dcheckers.warmup=on to warm up before connecting)
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SelfPlayWorker
+{
+    // protocol constants
+    public static final String DONE = "DONE";
+    public static final String STOP = "STOP";
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 7777;
+
+    // the longest a game is allowed to go on (the draw rules usually end it well before this)
+    private static final int MAX_GAME_PLIES = 500;
+
+    public static void main(String[] args) throws IOException
+    {
+        String host = args.length > 0 ? args[0] : DEFAULT_HOST;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+
+        // only ask for jobs once warmed up, if asked to (see WarmUp), so the first ones aren't slower than the rest
+        WarmUp.fromSystemProperties(Variant.ENGLISH, AIPlayer.DEFAULT_SEARCH_DEPTH, "off");
+
+        try (Socket socket = new Socket(host, port))
+        {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+            // do jobs until we're told to stop (or the coordinator goes away)
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(STOP))
+            {
+                SelfPlayJob job = SelfPlayJob.parse(line);
+                out.println(DONE + " " + job.getId() + " " + runJob(job));
+            }
+        }
+    }
+
+    /**
+     * Does a job.
+     * @param job The job to do
+     * @return Returns the result of the job, as sent back to the coordinator
+     */
+    public static String runJob(SelfPlayJob job)
+    {
+        long startTime = System.nanoTime();
+        Board board = job.createStartingBoard();
+
+        if (job.getKind().equals(SelfPlayJob.ANALYSE))
+        {
+            AIPlayer analyser = new AIPlayer(board.isWhiteTurn, job.getDepth());
+            List<AnalysisLine> lines = analyser.analyse(board, 1, job.getDepth(), null);
+            String best = lines.isEmpty() ? "- 0" : lines.get(0).getMove() + " " + lines.get(0).getScore();
+            return best + " " + (analyser.nodes + analyser.quiescenceNodes) + " " + getMillisSince(startTime);
+        }
+
+        // otherwise play the game out, with a separate player (and table) for each side
+        AIPlayer white = new AIPlayer(true, job.getDepth());
+        AIPlayer black = new AIPlayer(false, job.getDepth());
+        long nodes = 0;
+        int plies = 0;
+        String winner = "D";
+        while (!board.isDraw() && plies < MAX_GAME_PLIES)
+        {
+            if (board.getLegalMoves().length == 0)
+            {
+                // the player to move has lost
+                winner = board.isWhiteTurn ? "B" : "W";
+                break;
+            }
+
+            AIPlayer player = board.isWhiteTurn ? white : black;
+            board = player.getMove(board);
+            nodes += player.nodes + player.quiescenceNodes;
+            plies++;
+        }
+        return winner + " " + plies + " " + nodes + " " + getMillisSince(startTime);
+    }
+
+    /**
+     * @return Returns the number of milliseconds since the given time.
+     * @param startTime The time, from System.nanoTime
+     */
+    private static long getMillisSince(long startTime)
+    {
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+}
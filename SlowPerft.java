@@ -0,0 +1,349 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+/**
+ * A second, separate way of counting the positions reached by every sequence of legal moves, to check Perft's counts
+ * against. It shares none of Board's move generation (no bit sets, geometry tables or capture states): the board is
+ * a grid of characters, looked at a square at a time, with the rules written out as plainly as they can be.
+ * That makes it far slower, so it's only used for checking (see Perft's crosscheck).
+ *
+ * The rules are those of Variant: men move and capture forwards only, and are crowned on the far row (which ends
+ * a capture). Flying kings move and capture any distance along a diagonal. A capture has to go on while it can, so
+ * if it can go on from some of the squares past a captured piece, it has to land on one of those. Captured pieces
+ * stay on the board (and can't be jumped again) until the capture is over, and moves that start and end on the
+ * same squares and capture the same pieces are the same move.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SlowPerft
+{
+    // the four diagonal directions, as steps in x and y
+    private static final int[][] DIRECTIONS = {{-1, -1}, {1, -1}, {-1, 1}, {1, 1}};
+
+    // what's on each square of the grid
+    private static final char EMPTY = '.';
+    private static final char WHITE_MAN = 'w';
+    private static final char WHITE_KING = 'W';
+    private static final char BLACK_MAN = 'b';
+    private static final char BLACK_KING = 'B';
+
+    private final int size;
+    private final boolean hasFlyingKings;
+
+    /**
+     * @param variant The variant whose rules to count by
+     */
+    private SlowPerft(Variant variant)
+    {
+        this.size = variant.getSize();
+        this.hasFlyingKings = variant.hasFlyingKings();
+    }
+
+    /**
+     * Counts the positions reached by every sequence of legal moves of the given length.
+     * @param board The board to count from (only its pieces, whose turn it is and its variant are used)
+     * @param depth The number of moves in each sequence
+     * @return Returns the number of positions (counting a position once for each way of reaching it)
+     */
+    public static long perft(Board board, int depth)
+    {
+        SlowPerft counter = new SlowPerft(board.getVariant());
+        char[][] grid = new char[counter.size][counter.size];
+        for (int y = 0; y < counter.size; y++)
+        {
+            for (int x = 0; x < counter.size; x++)
+            {
+                Piece piece = board.getValueAt(x, y);
+                if (piece == null)
+                    grid[y][x] = EMPTY;
+                else if (piece.isWhite)
+                    grid[y][x] = piece.isKing() ? WHITE_KING : WHITE_MAN;
+                else
+                    grid[y][x] = piece.isKing() ? BLACK_KING : BLACK_MAN;
+            }
+        }
+        return counter.count(grid, board.isWhiteTurn, depth);
+    }
+
+    /**
+     * Counts the positions reached from the given grid.
+     * @param grid The pieces on each square
+     * @param isWhiteTurn Whether white is to move
+     * @param depth The number of moves left
+     * @return Returns the number of positions
+     */
+    private long count(char[][] grid, boolean isWhiteTurn, int depth)
+    {
+        if (depth == 0)
+            return 1;
+        List<int[]> moves = getMoves(grid, isWhiteTurn);
+        if (depth == 1)
+            return moves.size();
+
+        long count = 0;
+        for (int[] move : moves)
+        {
+            count += count(play(grid, move), !isWhiteTurn, depth - 1);
+        }
+        return count;
+    }
+
+    /**
+     * Finds every legal move of the player to move: the captures if there are any (as capturing is compulsory),
+     * otherwise the steps. Each move is {from x, from y, to x, to y, then each captured square as x * size + y}.
+     * @param grid The pieces on each square
+     * @param isWhiteTurn Whether white is to move
+     * @return Returns the moves
+     */
+    private List<int[]> getMoves(char[][] grid, boolean isWhiteTurn)
+    {
+        List<int[]> captures = new ArrayList<int[]>();
+        Set<String> seen = new HashSet<String>();
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                if (grid[y][x] != EMPTY && isWhite(grid[y][x]) == isWhiteTurn)
+                    addCaptures(grid, x, y, x, y, grid[y][x], new TreeSet<Integer>(), captures, seen);
+            }
+        }
+        if (!captures.isEmpty())
+            return captures;
+
+        List<int[]> steps = new ArrayList<int[]>();
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                char piece = grid[y][x];
+                if (piece == EMPTY || isWhite(piece) != isWhiteTurn)
+                    continue;
+                for (int[] direction : DIRECTIONS)
+                {
+                    if (!canGo(piece, direction))
+                        continue;
+
+                    // one square (or, for a flying king, every empty square up to the first piece)
+                    for (int distance = 1; ; distance++)
+                    {
+                        int toX = x + direction[0] * distance;
+                        int toY = y + direction[1] * distance;
+                        if (!isOnBoard(toX, toY) || grid[toY][toX] != EMPTY)
+                            break;
+                        steps.add(new int[] {x, y, toX, toY});
+                        if (!isFlying(piece))
+                            break;
+                    }
+                }
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Adds every capture a piece can finish from where it has got to.
+     * @param grid The pieces on each square (as they were before the capture started)
+     * @param x The column the piece has got to
+     * @param y The row the piece has got to
+     * @param startX The column the piece started from (which is empty while it's moving)
+     * @param startY The row the piece started from
+     * @param piece The piece capturing
+     * @param captured The squares captured so far
+     * @param moves The list to add the finished captures to
+     * @param seen The captures already added (so the same one reached in a different order is only added once)
+     */
+    private void addCaptures(char[][] grid, int x, int y, int startX, int startY, char piece, TreeSet<Integer> captured,
+                             List<int[]> moves, Set<String> seen)
+    {
+        List<int[]> jumps = getJumps(grid, x, y, startX, startY, piece, captured);
+        if (jumps.isEmpty())
+        {
+            // nothing more to capture, so the capture ends here (if it has captured anything)
+            if (!captured.isEmpty())
+                addCapture(x, y, startX, startY, captured, moves, seen);
+            return;
+        }
+
+        for (int[] jump : jumps)
+        {
+            // a capture has to go on if it can, so a landing square it can't go on from is only allowed
+            // if the same piece couldn't be captured landing anywhere it could
+            if (!canGoOn(grid, jump, startX, startY, piece, captured))
+            {
+                boolean isOtherBetter = false;
+                for (int[] other : jumps)
+                {
+                    if (other[2] == jump[2] && canGoOn(grid, other, startX, startY, piece, captured))
+                        isOtherBetter = true;
+                }
+                if (isOtherBetter)
+                    continue;
+            }
+
+            captured.add(jump[2]);
+            if (isCrowning(piece, jump[1]))
+                addCapture(jump[0], jump[1], startX, startY, captured, moves, seen);
+            else
+                addCaptures(grid, jump[0], jump[1], startX, startY, piece, captured, moves, seen);
+            captured.remove(jump[2]);
+        }
+    }
+
+    /**
+     * @return Returns true if the capture can go on after the given jump (a man being crowned stops there).
+     */
+    private boolean canGoOn(char[][] grid, int[] jump, int startX, int startY, char piece, TreeSet<Integer> captured)
+    {
+        if (isCrowning(piece, jump[1]))
+            return false;
+        captured.add(jump[2]);
+        boolean canGoOn = !getJumps(grid, jump[0], jump[1], startX, startY, piece, captured).isEmpty();
+        captured.remove(jump[2]);
+        return canGoOn;
+    }
+
+    /**
+     * Adds a finished capture, unless it has already been added.
+     */
+    private void addCapture(int x, int y, int startX, int startY, TreeSet<Integer> captured, List<int[]> moves, Set<String> seen)
+    {
+        if (!seen.add(startX + "," + startY + ">" + x + "," + y + captured))
+            return;
+        int[] move = new int[4 + captured.size()];
+        move[0] = startX;
+        move[1] = startY;
+        move[2] = x;
+        move[3] = y;
+        int i = 4;
+        for (int square : captured)
+        {
+            move[i++] = square;
+        }
+        moves.add(move);
+    }
+
+    /**
+     * Finds every single jump a piece can make from where it has got to.
+     * @return Returns the jumps, each {landing x, landing y, captured square}
+     */
+    private List<int[]> getJumps(char[][] grid, int x, int y, int startX, int startY, char piece, Set<Integer> captured)
+    {
+        List<int[]> jumps = new ArrayList<int[]>();
+        for (int[] direction : DIRECTIONS)
+        {
+            if (!canGo(piece, direction))
+                continue;
+
+            // find the first piece along the diagonal (right next to it, unless it's a flying king)
+            int jumpedX = -1;
+            int jumpedY = -1;
+            for (int distance = 1; ; distance++)
+            {
+                int squareX = x + direction[0] * distance;
+                int squareY = y + direction[1] * distance;
+                if (!isOnBoard(squareX, squareY))
+                    break;
+                if (!isEmpty(grid, squareX, squareY, startX, startY))
+                {
+                    jumpedX = squareX;
+                    jumpedY = squareY;
+                    break;
+                }
+                if (!isFlying(piece))
+                    break;
+            }
+            if (jumpedX < 0 || isWhite(grid[jumpedY][jumpedX]) == isWhite(piece) ||
+                captured.contains(jumpedX * size + jumpedY))
+                continue;
+
+            // then land on the empty square past it (or, for a flying king, any of the empty squares past it)
+            for (int distance = 1; ; distance++)
+            {
+                int landingX = jumpedX + direction[0] * distance;
+                int landingY = jumpedY + direction[1] * distance;
+                if (!isOnBoard(landingX, landingY) || !isEmpty(grid, landingX, landingY, startX, startY))
+                    break;
+                jumps.add(new int[] {landingX, landingY, jumpedX * size + jumpedY});
+                if (!isFlying(piece))
+                    break;
+            }
+        }
+        return jumps;
+    }
+
+    /**
+     * Plays a move on a copy of the grid.
+     * @return Returns the new grid
+     */
+    private char[][] play(char[][] grid, int[] move)
+    {
+        char[][] next = new char[size][];
+        for (int y = 0; y < size; y++)
+        {
+            next[y] = grid[y].clone();
+        }
+        char piece = next[move[1]][move[0]];
+        next[move[1]][move[0]] = EMPTY;
+        for (int i = 4; i < move.length; i++)
+        {
+            next[move[i] % size][move[i] / size] = EMPTY;
+        }
+        if (isCrowning(piece, move[3]))
+            piece = isWhite(piece) ? WHITE_KING : BLACK_KING;
+        next[move[3]][move[2]] = piece;
+        return next;
+    }
+
+    /**
+     * @return Returns true if the square is empty (counting the square a capturing piece started from, which it has left).
+     */
+    private boolean isEmpty(char[][] grid, int x, int y, int startX, int startY)
+    {
+        return grid[y][x] == EMPTY || x == startX && y == startY;
+    }
+
+    /**
+     * @return Returns true if the piece can go in the given direction (men only go forwards: down the grid for white).
+     */
+    private boolean canGo(char piece, int[] direction)
+    {
+        return isKing(piece) || direction[1] == (isWhite(piece) ? 1 : -1);
+    }
+
+    /**
+     * @return Returns true if the piece is a man reaching the far row.
+     */
+    private boolean isCrowning(char piece, int y)
+    {
+        return !isKing(piece) && y == (isWhite(piece) ? size - 1 : 0);
+    }
+
+    /**
+     * @return Returns true if the piece is a king that flies.
+     */
+    private boolean isFlying(char piece)
+    {
+        return hasFlyingKings && isKing(piece);
+    }
+
+    /**
+     * @return Returns true if the square is on the board.
+     */
+    private boolean isOnBoard(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < size && y < size;
+    }
+
+    private static boolean isWhite(char piece)
+    {
+        return piece == WHITE_MAN || piece == WHITE_KING;
+    }
+
+    private static boolean isKing(char piece)
+    {
+        return piece == WHITE_KING || piece == BLACK_KING;
+    }
+}
@@ -0,0 +1,483 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+/**
+ * Lets any number of spectators watch the games being played, live, over plain TCP connections on this machine.
+ *
+ * Games report each move as it's played (see GameRunner.playGame), which is sent to every spectator as a short line of text
+ * with just what changed. A spectator who connects part way through is first sent a snapshot of each game going on,
+ * and then the changes from there. The lines are (with squares numbered as in PDN, see PdnGame.getNumber):
+ *
+ *   S [game] [ply] [variant] [W or B to move] [white squares] [black squares] [king squares]   a game's position
+ *   M [game] [ply] [from] [to] [captured squares] [K if the piece was crowned]                  a move
+ *   E [game] [ply] [outcome] [reason]                                                            the end of a game
+ *
+ * where lists of squares are separated by commas (or "-" if there are none). The ply is the number of moves played since
+ * the game started, so a spectator can tell it hasn't missed one.
+ *
+ * A single thread sends to every spectator, without ever waiting on one: each has a queue of lines waiting to be sent,
+ * and a spectator too slow to keep up (whose queue fills) is disconnected rather than holding anything up.
+ * Games only ever add to the queues, so watching never slows down a game.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SpectatorFeed implements Closeable
+{
+    public static final int DEFAULT_PORT = 7778;
+
+    // the most lines that can be waiting to be sent to a spectator before they are disconnected
+    public static final int MAX_QUEUED_LINES = 4096;
+
+    // the most lines sent to a spectator in one write
+    private static final int LINES_PER_WRITE = 256;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread sender;
+    private volatile boolean closed;
+
+    // the spectators, and the games going on now (by id, with their latest positions)
+    private final List<Spectator> spectators = new ArrayList<Spectator>();
+    private final Map<Integer, BoardSnapshot> liveGames = new LinkedHashMap<Integer, BoardSnapshot>();
+    private int nextGameId;
+
+    // spectators that have been given lines to send since the sending thread last looked
+    private final Queue<Spectator> readySpectators = new ConcurrentLinkedQueue<Spectator>();
+
+    // statistics
+    private long linesPublished;
+    private long spectatorsDropped;
+
+    /**
+     * Starts listening for spectators.
+     * @param port The port to listen on (on this machine only)
+     * @throws IOException If the port can't be listened on
+     */
+    public SpectatorFeed(int port) throws IOException
+    {
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try
+        {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException e)
+        {
+            server.close();
+            selector.close();
+            throw e;
+        }
+
+        // a daemon, so it never keeps the program from exiting
+        this.sender = new Thread(this::serve, "spectator-feed");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Announces a new game.
+     * @param start The game's starting position
+     * @return Returns the game's id, to report its moves with
+     */
+    public synchronized int startGame(BoardSnapshot start)
+    {
+        int gameId = nextGameId++;
+        liveGames.put(gameId, start);
+        publish(getSnapshotLine(gameId, start));
+        return gameId;
+    }
+
+    /**
+     * Announces a move.
+     * @param gameId The game's id (from startGame)
+     * @param move The move
+     * @param before The position before the move
+     * @param after The position after it
+     */
+    public synchronized void movePlayed(int gameId, Move move, BoardSnapshot before, BoardSnapshot after)
+    {
+        // (the game may have been stopped while the move was being applied)
+        if (liveGames.replace(gameId, after) == null)
+            return;
+        publish(getMoveLine(gameId, move, before, after));
+    }
+
+    /**
+     * Announces the end of a game.
+     * @param gameId The game's id (from startGame)
+     * @param position The final position
+     * @param result The result, or null if the game was stopped
+     */
+    public synchronized void gameEnded(int gameId, BoardSnapshot position, GameResult result)
+    {
+        liveGames.remove(gameId);
+        publish("E " + gameId + " " + position.getPly() + " " +
+                (result != null ? result.getOutcome() + " " + result.getReason() : "STOPPED -"));
+    }
+
+    /**
+     * @return Returns the number of spectators watching.
+     */
+    public synchronized int getSpectatorCount()
+    {
+        return spectators.size();
+    }
+
+    /**
+     * @return Returns the number of spectators disconnected for not keeping up.
+     */
+    public synchronized long getDroppedCount()
+    {
+        return spectatorsDropped;
+    }
+
+    /**
+     * @return Returns the number of lines published (not counting the snapshots sent to spectators joining part way through).
+     */
+    public synchronized long getPublishedCount()
+    {
+        return linesPublished;
+    }
+
+    /**
+     * @return Returns the port being listened on.
+     */
+    public int getPort()
+    {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Disconnects every spectator and stops listening.
+     * @throws IOException If the port can't be closed
+     */
+    public void close() throws IOException
+    {
+        closed = true;
+        selector.wakeup();
+        try
+        {
+            sender.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+    }
+
+    /**
+     * Adds a line to every spectator's queue (disconnecting any whose queue is full), and wakes up the sending thread.
+     * Only called while holding this feed's lock, so every spectator gets the lines in the same order.
+     * @param line The line (without the line break)
+     */
+    private void publish(String line)
+    {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        linesPublished++;
+        for (Iterator<Spectator> iterator = spectators.iterator(); iterator.hasNext(); )
+        {
+            Spectator spectator = iterator.next();
+            if (!spectator.offer(bytes))
+            {
+                iterator.remove();
+                spectatorsDropped++;
+                spectator.close();
+            }
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Sends lines to spectators (as they can take them) and lets new ones in, until the feed is closed.
+     */
+    private void serve()
+    {
+        try
+        {
+            while (!closed)
+            {
+                selector.select();
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); )
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else
+                    {
+                        Spectator spectator = (Spectator)key.attachment();
+                        if (key.isReadable())
+                            spectator.readOrClose();
+                        if (key.isValid() && key.isWritable())
+                            spectator.send();
+                    }
+                }
+
+                // then send what's been published since
+                for (Spectator spectator = readySpectators.poll(); spectator != null; spectator = readySpectators.poll())
+                {
+                    spectator.send();
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e)
+        {
+            if (!closed)
+                System.out.println("The spectator feed stopped: " + e);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                for (Spectator spectator : spectators)
+                {
+                    spectator.close();
+                }
+                spectators.clear();
+            }
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                // (nothing more to do)
+            }
+        }
+    }
+
+    /**
+     * Lets in a new spectator, sending them a snapshot of every game going on.
+     */
+    private void accept() throws IOException
+    {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        Spectator spectator = new Spectator(channel);
+        spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+
+        // (while holding the lock, so no move is published between the snapshots and joining)
+        synchronized (this)
+        {
+            for (Map.Entry<Integer, BoardSnapshot> game : liveGames.entrySet())
+            {
+                spectator.offer(ByteBuffer.wrap((getSnapshotLine(game.getKey(), game.getValue()) + "\n")
+                                                .getBytes(StandardCharsets.UTF_8)));
+            }
+            spectators.add(spectator);
+        }
+        spectator.send();
+    }
+
+    /**
+     * @return Returns the line announcing a game's position.
+     */
+    private static String getSnapshotLine(int gameId, BoardSnapshot position)
+    {
+        BoardGeometry geometry = BoardGeometry.forSize(position.getVariant().getSize());
+        long[] white = new long[geometry.getWordCount()];
+        long[] black = new long[geometry.getWordCount()];
+        long[] kings = new long[geometry.getWordCount()];
+        for (int word = 0; word < white.length; word++)
+        {
+            white[word] = position.getPieceBits(true, word);
+            black[word] = position.getPieceBits(false, word);
+            kings[word] = position.getKingBits(word);
+        }
+        return "S " + gameId + " " + position.getPly() + " " + position.getVariant() + " " + (position.isWhiteTurn() ? "W" : "B") +
+               " " + getSquareList(white, position.getVariant()) + " " + getSquareList(black, position.getVariant()) +
+               " " + getSquareList(kings, position.getVariant());
+    }
+
+    /**
+     * @return Returns the line announcing a move: where it went from and to, what it captured and whether it crowned the piece
+     * (worked out from what changed between the positions before and after it).
+     */
+    private static String getMoveLine(int gameId, Move move, BoardSnapshot before, BoardSnapshot after)
+    {
+        Variant variant = before.getVariant();
+        BoardGeometry geometry = BoardGeometry.forSize(variant.getSize());
+        boolean isWhite = before.isWhiteTurn();
+        long[] captured = new long[geometry.getWordCount()];
+        for (int word = 0; word < captured.length; word++)
+        {
+            captured[word] = before.getPieceBits(!isWhite, word) & ~after.getPieceBits(!isWhite, word);
+        }
+
+        int[] from = move.getOriginPosition();
+        int[] to = move.getEndingPosition();
+        int fromSquare = geometry.getSquare(from[0], from[1]);
+        int toSquare = geometry.getSquare(to[0], to[1]);
+        boolean isCrowned = (after.getKingBits(toSquare >>> 6) & (1L << toSquare)) != 0 &&
+                            (before.getKingBits(fromSquare >>> 6) & (1L << fromSquare)) == 0;
+        return "M " + gameId + " " + after.getPly() + " " + PdnGame.getNumber(from[0], from[1], variant) + " " +
+               PdnGame.getNumber(to[0], to[1], variant) + " " + getSquareList(captured, variant) + (isCrowned ? " K" : "");
+    }
+
+    /**
+     * @return Returns the PDN numbers of a set of squares in order, separated by commas (or "-" if there are none).
+     */
+    private static String getSquareList(long[] squares, Variant variant)
+    {
+        BoardGeometry geometry = BoardGeometry.forSize(variant.getSize());
+        int[] numbers = new int[geometry.getSquareCount()];
+        int count = 0;
+        for (int word = 0; word < squares.length; word++)
+        {
+            for (long bits = squares[word]; bits != 0; bits &= bits - 1)
+            {
+                int square = word*64 + Long.numberOfTrailingZeros(bits);
+                numbers[count++] = PdnGame.getNumber(geometry.getX(square), geometry.getY(square), variant);
+            }
+        }
+        if (count == 0)
+            return "-";
+        Arrays.sort(numbers, 0, count);
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+                list.append(',');
+            list.append(numbers[i]);
+        }
+        return list.toString();
+    }
+
+    /**
+     * A connected spectator, with the lines waiting to be sent to them.
+     */
+    private class Spectator
+    {
+        final SocketChannel channel;
+        SelectionKey key;
+        private final Deque<ByteBuffer> queue = new ArrayDeque<ByteBuffer>();
+        private final ByteBuffer[] sending = new ByteBuffer[LINES_PER_WRITE];
+
+        Spectator(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        /**
+         * Adds a line to the queue (and marks this spectator as having something to send, if it didn't already).
+         * @param bytes The line (shared between spectators, so only read from a copy of it)
+         * @return Returns false if the queue is full
+         */
+        synchronized boolean offer(ByteBuffer bytes)
+        {
+            if (queue.size() >= MAX_QUEUED_LINES)
+                return false;
+            if (queue.isEmpty())
+                readySpectators.add(this);
+            queue.add(bytes.duplicate());
+            return true;
+        }
+
+        /**
+         * Sends as much of the queue as the connection will take without waiting, and asks to be told when it can take
+         * more if there's any left. (only called on the sending thread)
+         */
+        void send()
+        {
+            try
+            {
+                synchronized (this)
+                {
+                    // (sending many lines in each write, so a busy feed doesn't take a system call per line)
+                    while (!queue.isEmpty())
+                    {
+                        int count = 0;
+                        for (Iterator<ByteBuffer> lines = queue.iterator(); lines.hasNext() && count < LINES_PER_WRITE; )
+                        {
+                            sending[count++] = lines.next();
+                        }
+                        channel.write(sending, 0, count);
+                        while (!queue.isEmpty() && !queue.peek().hasRemaining())
+                        {
+                            queue.poll();
+                        }
+                        if (sending[count - 1].hasRemaining())
+                            break;
+                    }
+                    Arrays.fill(sending, null);
+                    if (key.isValid())
+                        key.interestOps(queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            }
+            catch (IOException e)
+            {
+                leave();
+            }
+        }
+
+        /**
+         * Reads (and ignores) anything the spectator sends, noticing if they've disconnected. (only called on the sending thread)
+         */
+        void readOrClose()
+        {
+            try
+            {
+                ByteBuffer ignored = ByteBuffer.allocate(256);
+                if (channel.read(ignored) < 0)
+                    leave();
+            }
+            catch (IOException e)
+            {
+                leave();
+            }
+        }
+
+        /**
+         * Removes this spectator from the feed (when they've disconnected).
+         */
+        void leave()
+        {
+            synchronized (SpectatorFeed.this)
+            {
+                spectators.remove(this);
+            }
+            close();
+        }
+
+        /**
+         * Closes the connection.
+         */
+        void close()
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                // (it's gone either way)
+            }
+        }
+    }
+}
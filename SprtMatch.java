@@ -0,0 +1,440 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/**
+ * Plays a match between two engine configurations to find out whether the first ("A") is stronger than the second ("B"),
+ * stopping as soon as the games played so far are enough to tell (a sequential probability ratio test),
+ * rather than after a fixed number of games.
+ *
+ * Games are played in pairs: both engines play each opening once as white and once as black, so an opening that
+ * favours one side doesn't favour either engine. Each pair scores 0, 1/2, 1, 3/2 or 2 for A, and the test works on
+ * how often each of those comes up (a "pentanomial" model, which accounts for the two games of a pair being alike).
+ * The test weighs up A being elo1 stronger than B against A being only elo0 stronger, and stops once one is likely
+ * enough: alpha is the chance of wrongly deciding A is stronger, and beta of wrongly deciding it isn't.
+ *
+ * Pairs are played at once on a few carrier threads (see GameRunner.playGame). The CPU time of the whole process
+ * is measured (as engines can think on threads of their own), so the report can say how much was saved next to playing every pair.
+ *
+ * Games are called early once their result is clear (see Adjudicator, which main sets up from system properties,
+ * like -Dcheckers.adjudication=off to play every game out).
+ *
+ * Engines are given like "alphabeta:6" (an AIPlayer searching 6 plies) or "mcts:20000" (an MCTSPlayer with 20000 playouts per move).
+ *
+ * Run with: java SprtMatch [engine A] [engine B] [max pairs] [elo0] [elo1] [alpha] [beta] [threads] [openings file]
+ * (the openings file has a line of moves in numeric notation for each opening; without one, openings are made
+ * by playing a few random moves)
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class SprtMatch
+{
+    // defaults
+    private static final int DEFAULT_MAX_PAIRS = 1000;
+    private static final double DEFAULT_ELO0 = 0;
+    private static final double DEFAULT_ELO1 = 30;
+    private static final double DEFAULT_ALPHA = 0.05;
+    private static final double DEFAULT_BETA = 0.05;
+
+    // random openings: the number of random moves in each, and the seed for choosing them (the same ones every run)
+    private static final int OPENING_PLIES = 6;
+    private static final long SEED = 42;
+
+    // the number of pairs being played at once for each carrier thread, and how often (in pairs) to report
+    private static final int PAIRS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int REPORT_INTERVAL_PAIRS = 10;
+
+    // added to the count of each pair score before testing: without it the first few pairs (which often all score the same)
+    // have next to no variance, and the test would decide on them alone. It makes no difference once there are a few dozen pairs.
+    private static final double PAIR_SCORE_PRIOR = 0.5;
+
+    // the z value for a 95% confidence interval
+    private static final double Z_95 = 1.959964;
+
+    private final String engineA;
+    private final String engineB;
+    private final List<BoardSnapshot> openings;
+    private final int maxPairs;
+    private final double elo0, elo1;
+    private final double lowerBound, upperBound;
+
+    // the number of pairs with each score for A (in half points, so 0 for losing both up to 4 for winning both),
+    // and the results of single games (from A's point of view)
+    private final long[] pairScores = new long[5];
+    private int wins, draws, losses;
+
+    // the state of the run: pairs started and finished, pairs still going, the games being played, and whether the test is done
+    private int startedPairs;
+    private int finishedPairs;
+    private int pairsInFlight;
+    private final List<CompletableFuture<GameResult>> activeGames = new ArrayList<CompletableFuture<GameResult>>();
+    private String decision;
+    private final CompletableFuture<Void> finished = new CompletableFuture<Void>();
+
+    // calls games early (null to play them all out)
+    private Adjudicator adjudicator;
+
+    /**
+     * Constructor for the SprtMatch
+     * @param engineA The first engine (like "alphabeta:6")
+     * @param engineB The second engine
+     * @param openings The positions to start games from (used in turn, going round again if there are more pairs than openings)
+     * @param maxPairs The most pairs to play if the test doesn't stop first
+     * @param elo0 How much stronger A is thought to be if it isn't really better
+     * @param elo1 How much stronger A is thought to be if it is
+     * @param alpha The chance allowed of wrongly deciding A is elo1 stronger
+     * @param beta The chance allowed of wrongly deciding it isn't
+     */
+    public SprtMatch(String engineA, String engineB, List<BoardSnapshot> openings, int maxPairs,
+                     double elo0, double elo1, double alpha, double beta)
+    {
+        if (elo1 <= elo0)
+            throw new IllegalArgumentException("elo1 has to be more than elo0");
+        if (openings.isEmpty())
+            throw new IllegalArgumentException("There has to be at least one opening");
+
+        this.engineA = engineA;
+        this.engineB = engineB;
+        this.openings = openings;
+        this.maxPairs = maxPairs;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String engineA = args.length > 0 ? args[0] : "alphabeta:" + AIPlayer.DEFAULT_SEARCH_DEPTH;
+        String engineB = args.length > 1 ? args[1] : "alphabeta:" + (AIPlayer.DEFAULT_SEARCH_DEPTH - 2);
+        int maxPairs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PAIRS;
+        double elo0 = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_ELO0;
+        double elo1 = args.length > 4 ? Double.parseDouble(args[4]) : DEFAULT_ELO1;
+        double alpha = args.length > 5 ? Double.parseDouble(args[5]) : DEFAULT_ALPHA;
+        double beta = args.length > 6 ? Double.parseDouble(args[6]) : DEFAULT_BETA;
+        int threadCount = args.length > 7 ? Integer.parseInt(args[7]) : Runtime.getRuntime().availableProcessors();
+
+        List<BoardSnapshot> openings = args.length > 8 ? readOpenings(args[8]) : createRandomOpenings(maxPairs);
+        SprtMatch match = new SprtMatch(engineA, engineB, openings, maxPairs, elo0, elo1, alpha, beta);
+        match.setAdjudicator(Adjudicator.fromSystemProperties());
+        match.run(threadCount);
+    }
+
+    /**
+     * Has games called early once their result is clear.
+     * @param adjudicator The adjudicator to call them, or null to play every game out
+     */
+    public void setAdjudicator(Adjudicator adjudicator)
+    {
+        this.adjudicator = adjudicator;
+    }
+
+    /**
+     * Plays pairs of games until the test decides (or every pair has been played), reporting as it goes.
+     * @param threadCount The number of carrier threads to play on
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void run(int threadCount) throws InterruptedException
+    {
+        System.out.printf("%s vs %s: testing elo0 = %.1f against elo1 = %.1f (LLR bounds %.2f, %.2f), at most %d pairs on %d threads%n",
+                          engineA, engineB, elo0, elo1, lowerBound, upperBound, maxPairs, threadCount);
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "match-carrier");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long startCpuNanos = getProcessCpuNanos();
+
+        // each slot plays one pair at a time, with its own players (so their tables are reused, but never shared)
+        long startTime = System.nanoTime();
+        int slotCount = Math.max(1, threadCount * PAIRS_IN_FLIGHT_PER_THREAD);
+        for (int slot = 0; slot < slotCount; slot++)
+        {
+            Player[] players = {createPlayer(engineA, true), createPlayer(engineB, false),
+                                createPlayer(engineB, true), createPlayer(engineA, false)};
+            startPair(players, pool);
+        }
+        try
+        {
+            finished.join();
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        report();
+        System.out.println(decision != null ? decision : "No decision after " + maxPairs + " pairs");
+
+        // every pair finished used about the same CPU time, so a fixed run of them all would have used that much for each
+        double cpuSeconds = (getProcessCpuNanos() - startCpuNanos) / 1e9;
+        double fixedCpuSeconds = cpuSeconds / Math.max(1, finishedPairs) * maxPairs;
+        System.out.printf("Played %d of %d pairs in %.1fs, using %.1fs of CPU; all %d pairs would have used about %.1fs (%.1fs, or %.0f%%, saved)%n",
+                          finishedPairs, maxPairs, seconds, cpuSeconds, maxPairs, fixedCpuSeconds,
+                          Math.max(0, fixedCpuSeconds - cpuSeconds), 100 * Math.max(0, 1 - cpuSeconds / fixedCpuSeconds));
+        if (adjudicator != null)
+            System.out.println(adjudicator.getReport());
+        System.out.println(MemoryGovernor.getGlobal().getReport());
+    }
+
+    /**
+     * Starts the next pair of games (if there is one, and the test hasn't decided) on a slot's players,
+     * and starts another once it's finished.
+     * @param players The slot's players: A as white, B as black, B as white and A as black
+     * @param carriers Where to play the games
+     */
+    private void startPair(Player[] players, Executor carriers)
+    {
+        List<CompletableFuture<GameResult>> games = new ArrayList<CompletableFuture<GameResult>>(2);
+        synchronized (this)
+        {
+            if (decision == null && startedPairs < maxPairs)
+            {
+                BoardSnapshot opening = openings.get(startedPairs++ % openings.size());
+                pairsInFlight++;
+
+                games.add(GameRunner.playGame(opening.toBoard(), players[0], players[1], carriers, 0, null, adjudicator));
+                games.add(GameRunner.playGame(opening.toBoard(), players[2], players[3], carriers, 0, null, adjudicator));
+                activeGames.addAll(games);
+            }
+            else if (pairsInFlight == 0)
+                finished.complete(null);
+        }
+
+        // once the slot has played its last pair, its players can let go of their threads and tables
+        // (outside the lock, as a player may have to finish a cancelled move first)
+        if (games.isEmpty())
+        {
+            for (Player player : players)
+            {
+                player.releaseMemory();
+            }
+            return;
+        }
+
+        CompletableFuture<GameResult> game1 = games.get(0);
+        CompletableFuture<GameResult> game2 = games.get(1);
+        game1.thenCombine(game2, (result1, result2) -> new GameResult[] {result1, result2})
+            .whenComplete((results, error) -> {
+                synchronized (this)
+                {
+                    activeGames.remove(game1);
+                    activeGames.remove(game2);
+                    pairsInFlight--;
+                    // (games cancelled because the test has decided don't count)
+                    if (error != null && decision == null)
+                        finished.completeExceptionally(error);
+                    else if (error == null && decision == null)
+                        pairFinished(results[0], results[1]);
+                }
+                startPair(players, carriers);
+            });
+    }
+
+    /**
+     * Counts the results of a pair, and checks whether the test can decide.
+     * @param result1 The result of the game A played as white
+     * @param result2 The result of the game A played as black
+     */
+    private synchronized void pairFinished(GameResult result1, GameResult result2)
+    {
+        int score = countGame(result1, GameResult.Outcome.WHITE_WINS) + countGame(result2, GameResult.Outcome.BLACK_WINS);
+        pairScores[score]++;
+        finishedPairs++;
+
+        double llr = getLogLikelihoodRatio();
+        if (llr >= upperBound)
+            decision = String.format("H1 accepted: %s is stronger than %s (by at least %.1f Elo, LLR %.2f)", engineA, engineB, elo1, llr);
+        else if (llr <= lowerBound)
+            decision = String.format("H0 accepted: %s is not stronger than %s by %.1f Elo (LLR %.2f)", engineA, engineB, elo1, llr);
+
+        if (decision != null)
+        {
+            // no need to finish the games still going
+            for (CompletableFuture<GameResult> game : new ArrayList<CompletableFuture<GameResult>>(activeGames))
+            {
+                game.cancel(true);
+            }
+        }
+        else if (finishedPairs % REPORT_INTERVAL_PAIRS == 0)
+            report();
+    }
+
+    /**
+     * Counts a single game's result for A.
+     * @param result The result
+     * @param winForA The outcome that is a win for A
+     * @return Returns A's score in half points (2 for a win, 1 for a draw and 0 for a loss)
+     */
+    private int countGame(GameResult result, GameResult.Outcome winForA)
+    {
+        if (result.getOutcome() == winForA)
+        {
+            wins++;
+            return 2;
+        }
+        else if (result.getOutcome() == GameResult.Outcome.DRAW)
+        {
+            draws++;
+            return 1;
+        }
+        else
+        {
+            losses++;
+            return 0;
+        }
+    }
+
+    /**
+     * Works out the log of how much more likely the pair scores so far are if A is elo1 stronger than if it's elo0 stronger
+     * (the generalised SPRT's normal approximation: it only depends on the mean and variance of the pair scores).
+     * @return Returns the log likelihood ratio
+     */
+    private double getLogLikelihoodRatio()
+    {
+        double[] stats = getScoreStatistics();
+        double s0 = getExpectedScore(elo0);
+        double s1 = getExpectedScore(elo1);
+        return stats[2] * (s1 - s0) * (2 * stats[0] - s0 - s1) / (2 * stats[1]);
+    }
+
+    /**
+     * @return Returns the mean score of a pair (as a fraction of the points available), the variance of the pair scores,
+     * and the number of pairs (with the prior included).
+     */
+    private double[] getScoreStatistics()
+    {
+        double count = 0;
+        double mean = 0;
+        for (int score = 0; score < pairScores.length; score++)
+        {
+            count += pairScores[score] + PAIR_SCORE_PRIOR;
+            mean += (pairScores[score] + PAIR_SCORE_PRIOR) * score / 4.0;
+        }
+        mean /= count;
+
+        double variance = 0;
+        for (int score = 0; score < pairScores.length; score++)
+        {
+            variance += (pairScores[score] + PAIR_SCORE_PRIOR) * Math.pow(score / 4.0 - mean, 2);
+        }
+        return new double[] {mean, variance / count, count};
+    }
+
+    /**
+     * Prints the results so far: the games won, drawn and lost by A, its Elo difference with a 95% confidence interval,
+     * and the log likelihood ratio with the bounds it's being tested against.
+     */
+    private synchronized void report()
+    {
+        double[] stats = getScoreStatistics();
+        double margin = Z_95 * Math.sqrt(stats[1] / stats[2]);
+        double elo = getElo(stats[0]);
+        System.out.printf("%d pairs: +%d =%d -%d, Elo %+.1f (95%%: %+.1f to %+.1f), LLR %.2f (%.2f, %.2f)%n",
+                          finishedPairs, wins, draws, losses, elo, getElo(stats[0] - margin), getElo(stats[0] + margin),
+                          getLogLikelihoodRatio(), lowerBound, upperBound);
+    }
+
+    /**
+     * @return Returns the CPU time used by this process so far (on all threads), in nanoseconds.
+     */
+    private static long getProcessCpuNanos()
+    {
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /**
+     * @return Returns the expected score (as a fraction) of a player the given number of Elo points stronger than its opponent.
+     */
+    private static double getExpectedScore(double elo)
+    {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * @return Returns the Elo difference that gives the expected score (as a fraction), kept just inside 0 and 1.
+     */
+    private static double getElo(double score)
+    {
+        score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Makes a player from an engine description.
+     * @param engine "alphabeta:[depth]" or "mcts:[playouts per move]"
+     * @param isWhite The color it plays
+     * @return Returns the new player
+     * @throws IllegalArgumentException If the description can't be read
+     */
+    public static Player createPlayer(String engine, boolean isWhite)
+    {
+        String[] parts = engine.split(":");
+        try
+        {
+            if (parts.length == 2 && parts[0].equals("alphabeta"))
+                return new AIPlayer(isWhite, Integer.parseInt(parts[1]));
+            else if (parts.length == 2 && parts[0].equals("mcts"))
+                return new MCTSPlayer(isWhite, 1, Long.parseLong(parts[1]), 0);
+        }
+        catch (NumberFormatException e)
+        {
+            // (fall through to the error below)
+        }
+        throw new IllegalArgumentException("Not an engine: " + engine + " (try alphabeta:6 or mcts:20000)");
+    }
+
+    /**
+     * Makes openings by playing a few random moves from the start.
+     * @param count The number of openings
+     * @return Returns the openings
+     */
+    private static List<BoardSnapshot> createRandomOpenings(int count)
+    {
+        Random random = new Random(SEED);
+        List<BoardSnapshot> openings = new ArrayList<BoardSnapshot>();
+        for (int id = 0; id < count; id++)
+        {
+            SelfPlayJob job = new SelfPlayJob(SelfPlayJob.GAME, id, GameRunner.VARIANT, 0, OPENING_PLIES, random.nextLong());
+            openings.add(new BoardSnapshot(job.createStartingBoard()));
+        }
+        return openings;
+    }
+
+    /**
+     * Reads openings from a file, with the moves of one opening (in numeric notation, like "11-15 23-19") on each line.
+     * @param file The file
+     * @return Returns the openings
+     * @throws IOException If the file can't be read
+     * @throws IllegalArgumentException If a move can't be read, or isn't legal
+     */
+    private static List<BoardSnapshot> readOpenings(String file) throws IOException
+    {
+        List<BoardSnapshot> openings = new ArrayList<BoardSnapshot>();
+        for (String line : Files.readAllLines(Paths.get(file)))
+        {
+            if (line.trim().isEmpty())
+                continue;
+            Board board = new Board(GameRunner.VARIANT);
+            for (String notation : line.trim().split("\\s+"))
+            {
+                List<Move> moves = PdnGame.findMoves(board, notation);
+                if (moves.isEmpty())
+                    throw new IllegalArgumentException("Illegal move " + notation + " in opening: " + line);
+                board.applyMoveToBoard(moves.get(0));
+            }
+            openings.add(new BoardSnapshot(board));
+        }
+        return openings;
+    }
+}
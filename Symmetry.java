@@ -0,0 +1,119 @@
+/**
+ * The ways a position can be transformed into an equivalent one, where the player to move
+ * has exactly the same moves (just moved around the board) and so the same result.
+ *
+ * A colour flip swaps the colours of every piece and rotates the board 180 degrees (so each side still
+ * moves towards the other), which also switches whose turn it is. A mirror flips the board left to right,
+ * but this only keeps pieces on the dark spaces on boards with an odd size, so it isn't allowed otherwise.
+ *
+ * Applying a symmetry twice gets back the original position, and applying two in a row is the same
+ * as applying the one found by combining them (see combine).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public enum Symmetry
+{
+    // (the order matters - bit 0 of the ordinal is a colour flip and bit 1 is a mirror)
+    IDENTITY(false, false),
+    COLOUR_FLIP(true, false),
+    MIRROR(false, true),
+    MIRROR_COLOUR_FLIP(true, true);
+
+    // keep our own copy of the values, as values() makes a new array every time
+    private static final Symmetry[] ALL = values();
+
+    private final boolean swapsColour;
+    private final boolean mirrors;
+
+    /**
+     * Constructor for the symmetries
+     * @param swapsColour Whether this symmetry swaps piece colours (and rotates the board to match)
+     * @param mirrors Whether this symmetry flips the board left to right
+     */
+    Symmetry(boolean swapsColour, boolean mirrors)
+    {
+        this.swapsColour = swapsColour;
+        this.mirrors = mirrors;
+    }
+
+    /**
+     * @return Returns true if this symmetry swaps the colours of the pieces (and so whose turn it is).
+     */
+    public boolean swapsColour()
+    {
+        return swapsColour;
+    }
+
+    /**
+     * @return Returns true if this symmetry keeps pieces on the dark spaces of a board of this size.
+     * @param size The size of the board
+     */
+    public boolean isAllowed(int size)
+    {
+        return !mirrors || size % 2 == 1;
+    }
+
+    /**
+     * @return Returns the x coordinate the given space is moved to by this symmetry.
+     * @param x The x coordinate of the space
+     * @param size The size of the board
+     */
+    public int mapX(int x, int size)
+    {
+        // a rotation and a mirror both flip x, so doing both leaves it alone
+        return swapsColour != mirrors ? size - 1 - x : x;
+    }
+
+    /**
+     * @return Returns the y coordinate the given space is moved to by this symmetry.
+     * @param y The y coordinate of the space
+     * @param size The size of the board
+     */
+    public int mapY(int y, int size)
+    {
+        return swapsColour ? size - 1 - y : y;
+    }
+
+    /**
+     * @return Returns the single position value the given one is moved to by this symmetry.
+     * @param position The single position value, zero indexed at top left.
+     * @param size The size of the board
+     */
+    public int mapPosition(int position, int size)
+    {
+        return mapY(position / size, size) * size + mapX(position % size, size);
+    }
+
+    /**
+     * @return Returns the symmetry that is the same as applying this one and then the given one.
+     * @param other The symmetry applied after this one
+     */
+    public Symmetry combine(Symmetry other)
+    {
+        return ALL[this.ordinal() ^ other.ordinal()];
+    }
+
+    /**
+     * @return Returns all of the symmetries allowed on a board of the given size (always starting with IDENTITY)
+     * @param size The size of the board
+     */
+    public static Symmetry[] getAllowed(int size)
+    {
+        int allowedCount = 0;
+        for (int i = 0; i < ALL.length; i++)
+        {
+            if (ALL[i].isAllowed(size))
+                allowedCount++;
+        }
+
+        Symmetry[] allowed = new Symmetry[allowedCount];
+        int index = 0;
+        for (int i = 0; i < ALL.length; i++)
+        {
+            if (ALL[i].isAllowed(size))
+                allowed[index++] = ALL[i];
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,266 @@
+import java.nio.LongBuffer;
+/**
+ * Remembers the results of searching positions, so the same position reached by a different
+ * order of moves (or a symmetric equivalent of it) doesn't have to be searched again.
+ * Positions should be stored by their canonical hash (see Board.getCanonicalHash), and any best move
+ * stored in the canonical position's coordinates, so only one entry is used for each set of equivalent positions.
+ *
+ * Entries are packed into two parallel arrays of longs (no objects per entry), and each hash has one slot;
+ * a new result replaces an old one unless the old one came from a deeper search of the same position.
+ * Large tables are kept off the heap (see MemoryGovernor.allocateLongs), and a table can be copied into
+ * one of a different size when the memory it's given changes (see resize).
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class TranspositionTable
+{
+    // the kinds of scores that can be stored
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // where each part of an entry is packed: score (32 bits), depth (8), bound (2), move from (8) and to (8),
+    // and a bit marking the entry as used
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int FROM_SHIFT = 42;
+    private static final int TO_SHIFT = 50;
+    private static final long HAS_MOVE_BIT = 1L << 58;
+    private static final long USED_BIT = 1L << 59;
+
+    // the number of low bits a packed entry uses (the rest are free for whoever stores it)
+    public static final int ENTRY_BITS = 60;
+
+    // the memory each entry takes (a key and a packed entry)
+    public static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    private final LongBuffer keys;
+    private final LongBuffer entries;
+    private final int mask;
+
+    /**
+     * Constructor for the TranspositionTable
+     * @param entryCount The number of entries to hold (rounded down to a power of two)
+     */
+    public TranspositionTable(int entryCount)
+    {
+        int size = Integer.highestOneBit(Math.max(1, entryCount));
+        this.keys = MemoryGovernor.allocateLongs(size);
+        this.entries = MemoryGovernor.allocateLongs(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return Returns the number of entries that fit in the given memory (a power of two, at least one,
+     *         and no more than MemoryGovernor.allocateLongs can make).
+     * @param bytes The memory, in bytes
+     */
+    public static int getEntriesFor(long bytes)
+    {
+        return Integer.highestOneBit((int)Math.max(1, Math.min(MemoryGovernor.MAX_LONGS, bytes / BYTES_PER_ENTRY)));
+    }
+
+    /**
+     * @return Returns the number of entries the table holds.
+     */
+    public int size()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * @return Returns the memory the table takes, in bytes.
+     */
+    public long getMemoryBytes()
+    {
+        return (long)size() * BYTES_PER_ENTRY;
+    }
+
+    /**
+     * Copies the table into a new one of a different size. When it's smaller, the deepest of the entries
+     * that land on the same slot is kept.
+     * @param entryCount The number of entries for the new table to hold (rounded down to a power of two)
+     * @return Returns the new table
+     */
+    public TranspositionTable resize(int entryCount)
+    {
+        TranspositionTable table = new TranspositionTable(entryCount);
+        for (int slot = 0; slot <= mask; slot++)
+        {
+            long entry = entries.get(slot);
+            if ((entry & USED_BIT) == 0)
+                continue;
+            int newSlot = (int)keys.get(slot) & table.mask;
+            if ((table.entries.get(newSlot) & USED_BIT) == 0 || table.getDepth(newSlot) < unpackDepth(entry))
+            {
+                table.keys.put(newSlot, keys.get(slot));
+                table.entries.put(newSlot, entry);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Looks for an entry for the given position.
+     * @param key The (canonical) hash of the position
+     * @return Returns the slot of the entry to pass to the getters, or -1 if there isn't one
+     */
+    public int find(long key)
+    {
+        int slot = (int)key & mask;
+        if (keys.get(slot) == key && (entries.get(slot) & USED_BIT) != 0)
+            return slot;
+        else
+            return -1;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     * @param key The (canonical) hash of the position
+     * @param depth The depth the position was searched to
+     * @param score The score found
+     * @param bound Whether the score is EXACT, a LOWER_BOUND or an UPPER_BOUND
+     * @param bestFrom The position the best move starts at (in the canonical position), or -1 if there isn't one
+     * @param bestTo The position the best move ends at (in the canonical position)
+     */
+    public void store(long key, int depth, int score, int bound, int bestFrom, int bestTo)
+    {
+        int slot = (int)key & mask;
+
+        // keep a deeper result for the same position
+        if (keys.get(slot) == key && (entries.get(slot) & USED_BIT) != 0 && getDepth(slot) > depth)
+            return;
+
+        long entry = pack(depth, score, bound, bestFrom, bestTo);
+        keys.put(slot, key);
+        entries.put(slot, entry);
+    }
+
+    /**
+     * @return Returns the depth stored in the given slot.
+     * @param slot The slot returned by find
+     */
+    public int getDepth(int slot)
+    {
+        return unpackDepth(entries.get(slot));
+    }
+
+    /**
+     * @return Returns the score stored in the given slot.
+     * @param slot The slot returned by find
+     */
+    public int getScore(int slot)
+    {
+        return unpackScore(entries.get(slot));
+    }
+
+    /**
+     * @return Returns the kind of score (EXACT, LOWER_BOUND or UPPER_BOUND) stored in the given slot.
+     * @param slot The slot returned by find
+     */
+    public int getBound(int slot)
+    {
+        return unpackBound(entries.get(slot));
+    }
+
+    /**
+     * @return Returns the position the best move stored in the given slot starts at, or -1 if there isn't one.
+     * @param slot The slot returned by find
+     */
+    public int getBestMoveFrom(int slot)
+    {
+        return unpackBestMoveFrom(entries.get(slot));
+    }
+
+    /**
+     * @return Returns the position the best move stored in the given slot ends at, or -1 if there isn't one.
+     * @param slot The slot returned by find
+     */
+    public int getBestMoveTo(int slot)
+    {
+        return unpackBestMoveTo(entries.get(slot));
+    }
+
+    /**
+     * Packs the result of searching a position into a single long (see store).
+     * Entries always have at least one bit set, so 0 can be used to mean no entry.
+     * @param depth The depth the position was searched to
+     * @param score The score found
+     * @param bound Whether the score is EXACT, a LOWER_BOUND or an UPPER_BOUND
+     * @param bestFrom The position the best move starts at (in the canonical position), or -1 if there isn't one
+     * @param bestTo The position the best move ends at (in the canonical position)
+     * @return Returns the packed entry (only the low ENTRY_BITS bits are used)
+     */
+    public static long pack(int depth, int score, int bound, int bestFrom, int bestTo)
+    {
+        long entry = (score & 0xFFFFFFFFL) |
+                     ((long)Math.min(depth, 0xFF) << DEPTH_SHIFT) |
+                     ((long)bound << BOUND_SHIFT) |
+                     USED_BIT;
+        if (bestFrom >= 0)
+            entry |= ((long)bestFrom << FROM_SHIFT) | ((long)bestTo << TO_SHIFT) | HAS_MOVE_BIT;
+        return entry;
+    }
+
+    /**
+     * @return Returns the depth stored in the given packed entry.
+     * @param entry The entry
+     */
+    public static int unpackDepth(long entry)
+    {
+        return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @return Returns the score stored in the given packed entry.
+     * @param entry The entry
+     */
+    public static int unpackScore(long entry)
+    {
+        return (int)entry;
+    }
+
+    /**
+     * @return Returns the kind of score stored in the given packed entry.
+     * @param entry The entry
+     */
+    public static int unpackBound(long entry)
+    {
+        return (int)(entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @return Returns the position the best move stored in the given packed entry starts at, or -1 if there isn't one.
+     * @param entry The entry
+     */
+    public static int unpackBestMoveFrom(long entry)
+    {
+        if ((entry & HAS_MOVE_BIT) == 0)
+            return -1;
+        return (int)(entry >>> FROM_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @return Returns the position the best move stored in the given packed entry ends at, or -1 if there isn't one.
+     * @param entry The entry
+     */
+    public static int unpackBestMoveTo(long entry)
+    {
+        if ((entry & HAS_MOVE_BIT) == 0)
+            return -1;
+        return (int)(entry >>> TO_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear()
+    {
+        for (int slot = 0; slot <= mask; slot++)
+        {
+            keys.put(slot, 0);
+            entries.put(slot, 0);
+        }
+    }
+}
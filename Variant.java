@@ -0,0 +1,74 @@
+/**
+ * The sizes of checkers board that can be played on, how many rows of men each side starts with,
+ * and whether kings can fly. The rules of play are otherwise the same in every variant.
+ * 
+ * Flying kings (as in international and Russian draughts) move any distance along a diagonal, and capture a piece
+ * any distance away along one, landing on any empty square past it. A capture has to go on while it can, so if it can
+ * go on from some of those squares, it has to land on one of them. Men move, capture and are crowned as in the others.
+ * 
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public enum Variant
+{
+    ENGLISH(8, 3, false),
+    INTERNATIONAL(10, 4, false),
+    CANADIAN(12, 5, false),
+    INTERNATIONAL_FLYING(10, 4, true);
+    
+    private final int size;
+    private final int rowsPerSide;
+    private final boolean hasFlyingKings;
+    
+    /**
+     * Constructor for the variants
+     * @param size The length of each side of the board
+     * @param rowsPerSide The number of rows of men each side starts with
+     * @param hasFlyingKings Whether kings fly (move and capture any distance along a diagonal)
+     */
+    Variant(int size, int rowsPerSide, boolean hasFlyingKings)
+    {
+        this.size = size;
+        this.rowsPerSide = rowsPerSide;
+        this.hasFlyingKings = hasFlyingKings;
+    }
+    
+    /**
+     * @return Returns the length of each side of the board.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * @return Returns the number of rows of men each side starts with.
+     */
+    public int getRowsPerSide()
+    {
+        return rowsPerSide;
+    }
+    
+    /**
+     * @return Returns true if kings fly (move and capture any distance along a diagonal) in this variant.
+     */
+    public boolean hasFlyingKings()
+    {
+        return hasFlyingKings;
+    }
+    
+    /**
+     * @return Returns the usual variant played on a board of the given size (the first listed, with kings that don't fly).
+     * @param size The length of each side of the board
+     * @throws IllegalArgumentException If no variant is played on that size of board
+     */
+    public static Variant forSize(int size)
+    {
+        for (Variant variant : values())
+        {
+            if (variant.size == size)
+                return variant;
+        }
+        throw new IllegalArgumentException("No variant is played on a board of size " + size);
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+/**
+ * A BatchEvaluator that scores several positions at once in the lanes of the CPU's vector registers,
+ * using the (incubating) Java vector API. It works out exactly the same features as BatchEvaluator,
+ * one lane per position, and any positions left over at the end of a batch are scored the scalar way.
+ *
+ * Each feature is added to the scores in its own pass over the batch. Doing every feature in one pass
+ * makes the loop too big for the JIT compiler to inline, and then every vector becomes an object on the heap,
+ * which is several times slower than the scalar evaluator.
+ *
+ * This needs the jdk.incubator.vector module, both to compile and to run
+ * (javac/java --add-modules jdk.incubator.vector). Get one with BatchEvaluator.create(), which
+ * falls back to the scalar evaluator when the module isn't there.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class VectorBatchEvaluator extends BatchEvaluator
+{
+    // the widest vectors this CPU handles well, and the int vectors with the same number of lanes (for the scores)
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> SCORE_SPECIES =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    // what to XOR the kings with to pick out the men (~kings) or the kings themselves, and a mask of every square
+    private static final long MEN = -1L;
+    private static final long KINGS = 0L;
+    private static final long ALL_SQUARES = -1L;
+
+    // masks for counting bits in parallel (the vector API has no bit count operation in this version of Java)
+    private static final long PAIRS = 0x5555555555555555L;
+    private static final long NIBBLES = 0x3333333333333333L;
+    private static final long BYTES = 0x0F0F0F0F0F0F0F0FL;
+    private static final long BYTE_MASK = 0xFFL;
+
+    /**
+     * Scores every position in the batch.
+     * @param batch The positions to score
+     * @param scores Filled with the score of each position, from the point of view of its player to move
+     */
+    public void evaluate(PositionBatch batch, int[] scores)
+    {
+        long[][] planes = getAdvancementPlanes(batch.getGeometry());
+        int vectorEnd = SPECIES.loopBound(batch.size());
+
+        Arrays.fill(scores, 0, vectorEnd, 0);
+        for (int chunk = 0; chunk < batch.getChunkCount(); chunk++)
+        {
+            long[] pieces = batch.getPieces(chunk);
+            long[] kings = batch.getKings(chunk);
+            addCounts(pieces, kings, MEN, ALL_SQUARES, Evaluator.MAN_VALUE, scores, vectorEnd);
+            addCounts(pieces, kings, KINGS, ALL_SQUARES, Evaluator.KING_VALUE, scores, vectorEnd);
+            for (int bit = 0; bit < planes[chunk].length; bit++)
+            {
+                addCounts(pieces, kings, MEN, planes[chunk][bit], Evaluator.ADVANCEMENT_VALUE << bit, scores, vectorEnd);
+            }
+        }
+
+        // turn the scores around for the positions where black is to move
+        boolean[] isBlackTurn = batch.getBlackTurns();
+        for (int i = 0; i < vectorEnd; i += SCORE_SPECIES.length())
+        {
+            IntVector score = IntVector.fromArray(SCORE_SPECIES, scores, i);
+            VectorMask<Integer> blackTurns = VectorMask.fromArray(SCORE_SPECIES, isBlackTurn, i);
+            score.blend(score.neg(), blackTurns).intoArray(scores, i);
+        }
+
+        // then score whatever is left over (fewer than one vector's worth) one at a time
+        evaluateRange(batch, scores, vectorEnd, batch.size());
+    }
+
+    /**
+     * Adds one weighted feature to the scores of a run of positions: the number of white men or kings
+     * on the given squares, minus the number of black ones.
+     * @param pieces One chunk of the pieces of every position
+     * @param kings The same chunk of the kings of every position
+     * @param kingFlip MEN to count the men, or KINGS to count the kings
+     * @param squares The squares to count on (in both halves of the chunk)
+     * @param weight The value of each piece counted
+     * @param scores The scores to add to
+     * @param end The index after the last position (a multiple of the number of lanes)
+     */
+    private static void addCounts(long[] pieces, long[] kings, long kingFlip, long squares, int weight,
+                                  int[] scores, int end)
+    {
+        for (int i = 0; i < end; i += SPECIES.length())
+        {
+            LongVector kingBits = LongVector.fromArray(SPECIES, kings, i).lanewise(VectorOperators.XOR, kingFlip);
+            LongVector bits = LongVector.fromArray(SPECIES, pieces, i).and(kingBits).and(squares);
+
+            // count the bits in each byte (adding up pairs, then nibbles, then bytes),
+            // then add the bytes of each half together into its lowest byte
+            bits = bits.sub(bits.lanewise(VectorOperators.LSHR, 1).and(PAIRS));
+            bits = bits.and(NIBBLES).add(bits.lanewise(VectorOperators.LSHR, 2).and(NIBBLES));
+            bits = bits.add(bits.lanewise(VectorOperators.LSHR, 4)).and(BYTES);
+            bits = bits.add(bits.lanewise(VectorOperators.LSHR, 8));
+            bits = bits.add(bits.lanewise(VectorOperators.LSHR, 16));
+            LongVector difference = bits.and(BYTE_MASK).sub(bits.lanewise(VectorOperators.LSHR, 32).and(BYTE_MASK));
+
+            IntVector weighted = ((IntVector)difference.convertShape(VectorOperators.L2I, SCORE_SPECIES, 0)).mul(weight);
+            weighted.add(IntVector.fromArray(SCORE_SPECIES, scores, i)).intoArray(scores, i);
+        }
+    }
+
+    /**
+     * @return Returns a short name for this evaluator (for reports).
+     */
+    public String getName()
+    {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+/**
+ * Warms up the JIT compiler before the first real move, by running a canned workload through everything a move uses
+ * (move generation, Board.applyMoveToBoard and undoLastMove, snapshots and the AIPlayer search), so the first moves
+ * of the first game aren't made in the interpreter. Rounds of the workload are run until they stop getting faster
+ * (or the time limit runs out), and then the warm-up is ready: getReady completes, for anything waiting to start
+ * (a SelfPlayWorker only connects to its coordinator once it's warm, for example).
+ * It can run on a thread of its own, so a program can get on with starting up meanwhile.
+ *
+ * Whether to warm up is set with the checkers.warmup system property: "on" to warm up before starting,
+ * "background" to warm up on a thread of its own, or "off".
+ *
+ * Run with: java WarmUp [variant] [runs] [depth] to compare how long the first moves take in fresh processes,
+ * with and without warming up first.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class WarmUp
+{
+    // the system property saying whether to warm up ("on", "background" or "off")
+    public static final String WARMUP_PROPERTY = "checkers.warmup";
+
+    // the longest to spend warming up, and the rounds it takes at least and at most
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = 5000;
+    private static final int MIN_ROUNDS = 3;
+    private static final int MAX_ROUNDS = 40;
+
+    // warmed up once a round takes at least this much of the fastest round before it (so rounds aren't getting faster)
+    private static final double STEADY_RATIO = 0.9;
+
+    // each round: the depth to count moves to from the start, and the plies of a game to play from a random opening
+    private static final int PERFT_DEPTH = 5;
+    private static final int GAME_PLIES = 8;
+    private static final int OPENING_PLIES = 6;
+
+    // for the benchmark: the runs of each kind, and the moves timed in each (starting from an opening no round used)
+    private static final int DEFAULT_RUNS = 5;
+    private static final int TIMED_MOVES = 3;
+    private static final int BENCHMARK_OPENING = 1000;
+    private static final String FIRST_MOVES = "FIRST_MOVES";
+
+    private final Variant variant;
+    private final int depth;
+    private final long timeLimitMillis;
+    private final CompletableFuture<WarmUp> ready = new CompletableFuture<WarmUp>();
+    private volatile int rounds;
+    private volatile long millis;
+
+    /**
+     * Constructor for the WarmUp
+     * @param variant The variant that's going to be played
+     * @param depth The depth the computer players are going to search to
+     * @param timeLimitMillis The longest to spend warming up, in milliseconds
+     */
+    public WarmUp(Variant variant, int depth, long timeLimitMillis)
+    {
+        this.variant = variant;
+        this.depth = depth;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        // (a run of the benchmark, in a process of its own)
+        if (args.length > 0 && args[0].equals(FIRST_MOVES))
+        {
+            timeFirstMoves(Variant.valueOf(args[1]), Integer.parseInt(args[2]), Boolean.parseBoolean(args[3]));
+            return;
+        }
+
+        Variant variant = args.length > 0 ? Variant.valueOf(args[0].toUpperCase()) : Variant.ENGLISH;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : AIPlayer.DEFAULT_SEARCH_DEPTH;
+        compareFirstMoves(variant, runs, depth);
+    }
+
+    /**
+     * Warms up as the checkers.warmup system property says (see above).
+     * @param variant The variant that's going to be played
+     * @param depth The depth the computer players are going to search to
+     * @param defaultMode What to do if the property isn't set ("on", "background" or "off")
+     * @return Returns the warm-up (ready already if it was "on"), or null if it's off
+     */
+    public static WarmUp fromSystemProperties(Variant variant, int depth, String defaultMode)
+    {
+        String mode = System.getProperty(WARMUP_PROPERTY, defaultMode).trim().toLowerCase();
+        if (mode.equals("off"))
+            return null;
+        if (!mode.equals("on") && !mode.equals("background"))
+            throw new IllegalArgumentException(WARMUP_PROPERTY + " should be on, background or off, not " + mode);
+
+        WarmUp warmUp = new WarmUp(variant, depth, DEFAULT_TIME_LIMIT_MILLIS);
+        if (mode.equals("on"))
+        {
+            warmUp.run();
+            System.out.println(warmUp);
+        }
+        else
+            warmUp.start();
+        return warmUp;
+    }
+
+    /**
+     * Warms up on a thread of its own (a daemon, so it never keeps the program from exiting).
+     * @return Returns the readiness signal (see getReady)
+     */
+    public CompletableFuture<WarmUp> start()
+    {
+        Thread thread = new Thread(this::run, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return ready;
+    }
+
+    /**
+     * Warms up here, returning once it's ready.
+     */
+    public void run()
+    {
+        try
+        {
+            long startTime = System.nanoTime();
+            long deadline = startTime + timeLimitMillis * 1000000;
+            long fastestRound = Long.MAX_VALUE;
+
+            // the same two players play every round (so their tables are only made once), forgetting what they
+            // searched in between (so every round has as much to do)
+            AIPlayer white = new AIPlayer(true, depth);
+            AIPlayer black = new AIPlayer(false, depth);
+            for (int round = 0; round < MAX_ROUNDS; round++)
+            {
+                long roundStart = System.nanoTime();
+                white.clearTable();
+                black.clearTable();
+                runRound(round, white, black);
+                long roundTime = System.nanoTime() - roundStart;
+                rounds = round + 1;
+
+                // stop once the rounds aren't getting any faster (or there's no time left)
+                boolean isSteady = round >= MIN_ROUNDS && roundTime >= fastestRound * STEADY_RATIO;
+                fastestRound = Math.min(fastestRound, roundTime);
+                if (isSteady || System.nanoTime() > deadline)
+                    break;
+            }
+            white.releaseMemory();
+            black.releaseMemory();
+            millis = (System.nanoTime() - startTime) / 1000000;
+            ready.complete(this);
+        }
+        catch (Throwable e)
+        {
+            ready.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Runs one round of the workload: counting the moves from the start a few plies deep (applying and taking back
+     * every one), then playing a few moves of a game from a random opening (a different one each round).
+     * @param round The number of the round
+     * @param white The player to play white
+     * @param black The player to play black
+     */
+    private void runRound(int round, AIPlayer white, AIPlayer black)
+    {
+        Perft.perft(new Board(variant), PERFT_DEPTH);
+
+        Board board = new SelfPlayJob(SelfPlayJob.GAME, round, variant, depth, OPENING_PLIES, round).createStartingBoard();
+        BoardSnapshot position = new BoardSnapshot(board);
+        for (int ply = 0; ply < GAME_PLIES && !board.isDraw(); ply++)
+        {
+            // (moves are asked for the way games ask for them, to warm that up too)
+            Move move = (board.isWhiteTurn ? white : black).requestMove(board, Runnable::run).join();
+            if (move == null)
+                break;
+            Move legalMove = Player.findLegalMove(board, move);
+            position = position.play(legalMove);
+            board.applyMoveToBoard(legalMove);
+        }
+    }
+
+    /**
+     * @return Returns the readiness signal: completed (with this) once warmed up.
+     */
+    public CompletableFuture<WarmUp> getReady()
+    {
+        return ready;
+    }
+
+    /**
+     * @return Returns whether it's warmed up.
+     */
+    public boolean isReady()
+    {
+        return ready.isDone();
+    }
+
+    /**
+     * @return Returns the number of rounds of the workload run so far.
+     */
+    public int getRounds()
+    {
+        return rounds;
+    }
+
+    /**
+     * @return Returns the time it took to warm up, in milliseconds (0 until it's ready).
+     */
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    /**
+     * @return Returns a line saying how warming up went.
+     */
+    public String toString()
+    {
+        return isReady() ? "Warmed up in " + millis + "ms (" + rounds + " rounds), ready" :
+                           "Warming up (" + rounds + " rounds so far)";
+    }
+
+    /**
+     * Times the first few moves of a game in this process (which should be fresh), printing how long each took
+     * on a line for compareFirstMoves to read.
+     * @param variant The variant to play
+     * @param depth The depth to search to
+     * @param isWarm Whether to warm up first
+     */
+    private static void timeFirstMoves(Variant variant, int depth, boolean isWarm)
+    {
+        WarmUp warmUp = new WarmUp(variant, depth, DEFAULT_TIME_LIMIT_MILLIS);
+        if (isWarm)
+            warmUp.run();
+
+        Board board = new SelfPlayJob(SelfPlayJob.GAME, BENCHMARK_OPENING, variant, depth, OPENING_PLIES, BENCHMARK_OPENING)
+            .createStartingBoard();
+        AIPlayer white = new AIPlayer(true, depth);
+        AIPlayer black = new AIPlayer(false, depth);
+        StringBuilder line = new StringBuilder(FIRST_MOVES + " " + warmUp.getMillis());
+        for (int ply = 0; ply < TIMED_MOVES; ply++)
+        {
+            long startTime = System.nanoTime();
+            Move move = (board.isWhiteTurn ? white : black).chooseMove(board, () -> false);
+            line.append(" ").append(System.nanoTime() - startTime);
+            if (move == null)
+                break;
+            board.applyMoveToBoard(move);
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * Compares how long the first moves take in fresh processes with and without warming up, and prints the results.
+     * @param variant The variant to play
+     * @param runs The number of processes to start of each kind
+     * @param depth The depth to search to
+     */
+    private static void compareFirstMoves(Variant variant, int runs, int depth) throws IOException, InterruptedException
+    {
+        System.out.println("Timing the first " + TIMED_MOVES + " moves (" + variant + ", depth " + depth + ") in " +
+                           runs + " fresh processes each, cold and warmed up...");
+        List<List<long[]>> results = new ArrayList<List<long[]>>();
+        results.add(new ArrayList<long[]>());
+        results.add(new ArrayList<long[]>());
+        for (int run = 0; run < runs; run++)
+        {
+            // (alternating, so anything else going on on the machine affects both the same)
+            results.get(0).add(runFirstMoves(variant, depth, false));
+            results.get(1).add(runFirstMoves(variant, depth, true));
+        }
+
+        for (int kind = 0; kind < 2; kind++)
+        {
+            List<long[]> runResults = results.get(kind);
+            System.out.println(kind == 0 ? "Cold:" : "Warmed up (taking " + getMedian(runResults, 0) + "ms to warm up):");
+            for (int move = 1; move <= TIMED_MOVES; move++)
+            {
+                System.out.printf("  move %d: median %.1fms, worst %.1fms%n", move, getMedian(runResults, move) / 1e6,
+                                  getWorst(runResults, move) / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Times the first moves in a new process.
+     * @return Returns the time it took to warm up (in milliseconds), then the time each move took (in nanoseconds)
+     */
+    private static long[] runFirstMoves(Variant variant, int depth, boolean isWarm) throws IOException, InterruptedException
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "WarmUp", FIRST_MOVES,
+                                             variant.name(), String.valueOf(depth), String.valueOf(isWarm))
+            .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        String result = null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                if (line.startsWith(FIRST_MOVES))
+                    result = line;
+            }
+        }
+        if (process.waitFor() != 0 || result == null)
+            throw new IOException("A benchmark run failed (exit code " + process.exitValue() + ")");
+
+        String[] parts = result.split(" ");
+        long[] times = new long[parts.length - 1];
+        for (int i = 1; i < parts.length; i++)
+        {
+            times[i - 1] = Long.parseLong(parts[i]);
+        }
+        return times;
+    }
+
+    /**
+     * @return Returns the median of one of the times of each run.
+     */
+    private static long getMedian(List<long[]> runs, int index)
+    {
+        List<Long> times = new ArrayList<Long>();
+        for (long[] run : runs)
+        {
+            if (index < run.length)
+                times.add(run[index]);
+        }
+        Collections.sort(times);
+        return times.isEmpty() ? 0 : times.get(times.size() / 2);
+    }
+
+    /**
+     * @return Returns the longest of one of the times of each run.
+     */
+    private static long getWorst(List<long[]> runs, int index)
+    {
+        long worst = 0;
+        for (long[] run : runs)
+        {
+            if (index < run.length)
+                worst = Math.max(worst, run[index]);
+        }
+        return worst;
+    }
+}
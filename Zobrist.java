@@ -0,0 +1,54 @@
+import java.util.Random;
+/**
+ * Holds the random keys used to build position hashes (Zobrist hashing).
+ * A position's hash is the XOR of the key for every piece on the board (by space and type),
+ * plus the side-to-move key when it is white's turn, so it can be updated incrementally as pieces move.
+ *
+ * @author Mckenna Cisler
+ * @version 10.19.2026
+ */
+public class Zobrist
+{
+    // the largest board side length we have keys for
+    public static final int MAX_SIZE = 16;
+
+    // the number of piece types (white man, white king, black man, black king)
+    private static final int PIECE_TYPES = 4;
+
+    // use a fixed seed so hashes are the same in every run (and can be stored)
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final long[] pieceKeys = new long[MAX_SIZE * MAX_SIZE * PIECE_TYPES];
+    private static final long whiteToMoveKey;
+
+    static
+    {
+        Random random = new Random(SEED);
+        for (int i = 0; i < pieceKeys.length; i++)
+        {
+            pieceKeys[i] = random.nextLong();
+        }
+        whiteToMoveKey = random.nextLong();
+    }
+
+    /**
+     * @return Returns the key for a piece of the given type standing at the given space.
+     * @param x The x coordinate of the space
+     * @param y The y coordinate of the space
+     * @param isWhite Whether the piece is white
+     * @param isKing Whether the piece is a king
+     */
+    public static long getPieceKey(int x, int y, boolean isWhite, boolean isKing)
+    {
+        int type = (isWhite ? 0 : 2) + (isKing ? 1 : 0);
+        return pieceKeys[(y * MAX_SIZE + x) * PIECE_TYPES + type];
+    }
+
+    /**
+     * @return Returns the key that is included in the hash whenever it is white's turn to move.
+     */
+    public static long getWhiteToMoveKey()
+    {
+        return whiteToMoveKey;
+    }
+}